@@ -1,18 +1,29 @@
 package blocky;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Random;
 
 import blocky.controller.BlockyController;
 import blocky.controller.SimpleBlockyController;
 import blocky.model.BlockyModel;
 import blocky.model.SimpleBlockyModel;
 import blocky.util.levels.Level;
+import blocky.util.levels.GeneratorMode;
+import blocky.util.levels.LevelBatch;
+import blocky.util.levels.LevelBuckets;
+import blocky.util.levels.LevelFarm;
 import blocky.util.levels.LevelSet;
 import blocky.util.Direction;
 import blocky.util.levels.LevelFileReader;
+import blocky.util.levels.LevelFileWriter;
 import blocky.util.levels.LevelGenerator;
 import blocky.util.levels.LevelSolver;
 import blocky.util.levels.RandomLevelSet;
+import blocky.util.levels.SolverMode;
 import blocky.view.BlockyView;
 import blocky.util.GraphicsQuality;
 import blocky.view.TextBlockyView;
@@ -41,11 +52,14 @@ public class Blocky {
           runGame(parseView(args), parseLevelSet(args));
           break;
         case "solve":
-          findSolutions(parseLevelSet(args));
+          findSolutions(parseLevelSet(args), parseSolverMode(args));
           break;
         case "gen":
           parseGenerationArgs(args);
           break;
+        case "farm":
+          parseFarmArgs(args);
+          break;
         default:
           throw new IllegalArgumentException("Unexpected token found: " + firstArg);
       }
@@ -124,8 +138,10 @@ public class Blocky {
         try {
           int size = Integer.parseInt(args[i + 1]);
           int moves = Integer.parseInt(args[i + 2]);
-          LevelGenerator generator = new LevelGenerator(size, moves);
-          return new RandomLevelSet(generator);
+          LevelGenerator generator = new LevelGenerator(size, moves, parseGeneratorMode(args));
+          generator = parseBudget(args, generator);
+          int[] prefetch = parsePrefetch(args);
+          return new RandomLevelSet(generator, prefetch[0], prefetch[1]);
         } catch (NumberFormatException | IndexOutOfBoundsException e) {
           throw new IllegalArgumentException("Expected two integer tokens after \"-random\".");
         }
@@ -135,6 +151,51 @@ public class Blocky {
     throw new IllegalArgumentException("No level set data source specified.");
   }
 
+  /**
+   * Parses command line input for how many random levels to keep ready and how many threads to
+   * generate them on, if given. See README.md for detailed information regarding run
+   * configurations.
+   *
+   * @param args list of command line arguments
+   * @return depth of queue and number of workers, or the defaults of RandomLevelSet if not given
+   * @throws IllegalArgumentException if input is malformatted
+   */
+  private static int[] parsePrefetch(String[] args) throws IllegalArgumentException {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-prefetch")) {
+        try {
+          return new int[]{Integer.parseInt(args[i + 1]), Integer.parseInt(args[i + 2])};
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+          throw new IllegalArgumentException("Expected two integer tokens after \"-prefetch\".");
+        }
+      }
+    }
+
+    return new int[]{RandomLevelSet.DEFAULT_DEPTH, RandomLevelSet.DEFAULT_WORKERS};
+  }
+
+  /**
+   * Parses command line input for the solver mode to use, if one is given. See README.md for
+   * detailed information regarding run configurations.
+   *
+   * @param args list of command line arguments
+   * @return solver mode parsed from command line input, or breadth first search if none is given
+   * @throws IllegalArgumentException if input is malformatted
+   */
+  private static SolverMode parseSolverMode(String[] args) throws IllegalArgumentException {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-mode")) {
+        try {
+          return SolverMode.parseString(args[i + 1]);
+        } catch (IndexOutOfBoundsException e) {
+          throw new IllegalArgumentException("Expected solver mode after \"-mode\".");
+        }
+      }
+    }
+
+    return SolverMode.BREADTH_FIRST;
+  }
+
   /**
    * Parses command line input for level generation information. See README.md for detailed
    * information regarding run configurations.
@@ -143,16 +204,252 @@ public class Blocky {
    * @throws IllegalArgumentException if input is malformatted
    */
   private static void parseGenerationArgs(String[] args) throws IllegalArgumentException {
+    LevelBuckets buckets = parseBuckets(args);
+    if (buckets != null) {
+      if (parseOutputFile(args) != null) {
+        throw new IllegalArgumentException("\"-buckets\" cannot be used with \"-out\".");
+      }
+
+      try {
+        int size = Integer.parseInt(args[1]);
+        LevelGenerator generator = new LevelGenerator(size, buckets.minMoves(),
+                parseGeneratorMode(args));
+        generateBucketedLevels(parseBudget(args, generator), buckets, parseSeed(args));
+        return;
+      } catch (NumberFormatException | IndexOutOfBoundsException e) {
+        throw new IllegalArgumentException("Expected integer token after \"gen\".");
+      }
+    }
+
     try {
       int size = Integer.parseInt(args[1]);
       int moves = Integer.parseInt(args[2]);
       int quantity = Integer.parseInt(args[3]);
-      generateRandomLevels(size, moves, quantity);
+      LevelGenerator generator = new LevelGenerator(size, moves, parseGeneratorMode(args));
+      generator = parseBudget(args, generator);
+      generateRandomLevels(generator, quantity, parseSeed(args), parseOutputFile(args));
     } catch (NumberFormatException | IndexOutOfBoundsException e) {
       throw new IllegalArgumentException("Expected three integer tokens after \"gen\".");
     }
   }
 
+  /**
+   * Parses command line input for a command of a level farm, and runs it. See README.md for
+   * detailed information regarding run configurations.
+   *
+   * @param args list of command line arguments
+   * @throws IllegalArgumentException if input is malformatted
+   */
+  private static void parseFarmArgs(String[] args) throws IllegalArgumentException {
+    String command;
+    Path dir;
+    try {
+      command = args[1];
+      dir = Paths.get(args[2]);
+    } catch (IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Expected command and directory after \"farm\".");
+    }
+
+    try {
+      switch (command) {
+        case "init":
+          try {
+            int size = Integer.parseInt(args[3]);
+            int moves = Integer.parseInt(args[4]);
+            int quantity = Integer.parseInt(args[5]);
+            int shardSize = Integer.parseInt(args[6]);
+            LevelFarm farm = LevelFarm.create(dir, size, moves, parseGeneratorMode(args),
+                    parseSeed(args), quantity, shardSize);
+            System.err.println("Queued " + farm.shards() + " shards.");
+          } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Expected four integer tokens after \"init\".");
+          }
+          break;
+        case "work":
+          runFarmWorker(LevelFarm.open(dir), args);
+          break;
+        case "requeue":
+          System.err.println("Requeued " + LevelFarm.open(dir).requeue() + " shards.");
+          break;
+        case "merge":
+          LevelFarm farm = LevelFarm.open(dir);
+          try (LevelFileWriter writer = LevelFileWriter.toStream(System.out, farm.generator(),
+                  farm.getSeed())) {
+            int merged = farm.merge(writer);
+            System.err.println("Merged " + merged + " of " + farm.shards() + " shards, "
+                    + writer.levelsWritten() + " levels, left out " + writer.duplicates()
+                    + " duplicates.");
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Unexpected farm command: " + command);
+      }
+    } catch (IllegalStateException | IOException e) {
+      System.err.println(e.getMessage());
+    }
+  }
+
+  /**
+   * Parses command line input for the strategy to generate levels with, if one is given. See
+   * README.md for detailed information regarding run configurations.
+   *
+   * @param args list of command line arguments
+   * @return generator mode parsed from command line input, or sampling if none is given
+   * @throws IllegalArgumentException if input is malformatted
+   */
+  private static GeneratorMode parseGeneratorMode(String[] args) throws IllegalArgumentException {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-generator")) {
+        try {
+          return GeneratorMode.parseString(args[i + 1]);
+        } catch (IndexOutOfBoundsException e) {
+          throw new IllegalArgumentException("Expected generator mode after \"-generator\".");
+        }
+      }
+    }
+
+    return GeneratorMode.SAMPLING;
+  }
+
+  /**
+   * Parses command line input for the budget to generate each level within, if one is given, and
+   * returns the given generator with that budget. See README.md for detailed information
+   * regarding run configurations.
+   *
+   * @param args      list of command line arguments
+   * @param generator generator to give budget to
+   * @return generator with budget parsed from command line input, or given generator if none
+   * @throws IllegalArgumentException if input is malformatted
+   */
+  private static LevelGenerator parseBudget(String[] args, LevelGenerator generator)
+          throws IllegalArgumentException {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-budget")) {
+        try {
+          int attempts = Integer.parseInt(args[i + 1]);
+          long seconds = Long.parseLong(args[i + 2]);
+          return generator.withBudget(attempts, seconds * 1000);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+          throw new IllegalArgumentException("Expected two integer tokens after \"-budget\".");
+        }
+      }
+    }
+
+    return generator;
+  }
+
+  /**
+   * Parses command line input for the seed to generate levels with, if one is given. See README.md
+   * for detailed information regarding run configurations.
+   *
+   * @param args list of command line arguments
+   * @return seed parsed from command line input, or a random seed if none is given
+   * @throws IllegalArgumentException if input is malformatted
+   */
+  private static long parseSeed(String[] args) throws IllegalArgumentException {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-seed")) {
+        try {
+          return Long.parseLong(args[i + 1]);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+          throw new IllegalArgumentException("Expected integer seed after \"-seed\".");
+        }
+      }
+    }
+
+    return new Random().nextLong();
+  }
+
+  /**
+   * Parses command line input for the buckets of moves to sort generated levels into, if any are
+   * given. See README.md for detailed information regarding run configurations.
+   *
+   * @param args list of command line arguments
+   * @return buckets parsed from command line input, or null if none are given
+   * @throws IllegalArgumentException if input is malformatted
+   */
+  private static LevelBuckets parseBuckets(String[] args) throws IllegalArgumentException {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-buckets")) {
+        try {
+          return LevelBuckets.parseString(args[i + 1]);
+        } catch (IndexOutOfBoundsException e) {
+          throw new IllegalArgumentException("Expected buckets after \"-buckets\".");
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Parses command line input for the name of the file to write generated levels to, if one is
+   * given. See README.md for detailed information regarding run configurations.
+   *
+   * @param args list of command line arguments
+   * @return name of file parsed from command line input, or null if levels should be printed
+   * @throws IllegalArgumentException if input is malformatted
+   */
+  private static String parseOutputFile(String[] args) throws IllegalArgumentException {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-out")) {
+        try {
+          return args[i + 1];
+        } catch (IndexOutOfBoundsException e) {
+          throw new IllegalArgumentException("Expected file name after \"-out\".");
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Parses command line input for the name of a farm worker, if one is given. See README.md for
+   * detailed information regarding run configurations.
+   *
+   * @param args list of command line arguments
+   * @return name of worker parsed from command line input, or one made from the process id and
+   *         host name if none is given
+   * @throws IllegalArgumentException if input is malformatted
+   */
+  private static String parseWorker(String[] args) throws IllegalArgumentException {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-worker")) {
+        try {
+          return args[i + 1];
+        } catch (IndexOutOfBoundsException e) {
+          throw new IllegalArgumentException("Expected worker name after \"-worker\".");
+        }
+      }
+    }
+
+    // usually "pid@host", which is unique among processes sharing a filesystem
+    return ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9._-]", "-");
+  }
+
+  /**
+   * Parses command line input for the number of threads to generate levels on, if one is given.
+   * See README.md for detailed information regarding run configurations.
+   *
+   * @param args list of command line arguments
+   * @return number of threads parsed from command line input, or the number of available cores
+   * @throws IllegalArgumentException if input is malformatted
+   */
+  private static int parseThreads(String[] args) throws IllegalArgumentException {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-threads")) {
+        try {
+          return Integer.parseInt(args[i + 1]);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+          throw new IllegalArgumentException("Expected integer after \"-threads\".");
+        }
+      }
+    }
+
+    return Runtime.getRuntime().availableProcessors();
+  }
+
   // -----------------------------------------------------------------------------------------------
   // PLAYING THE GAME (run)
   // -----------------------------------------------------------------------------------------------
@@ -177,11 +474,13 @@ public class Blocky {
    * Finds and prints solutions to every level in the given LevelSet.
    *
    * @param levels LevelSet to find solutions for
+   * @param mode   strategy to use when searching for solutions
    */
-  private static void findSolutions(LevelSet levels) {
+  private static void findSolutions(LevelSet levels, SolverMode mode) {
+    LevelSolver solver = new LevelSolver(mode);
     for (int i = 1; i <= levels.size(); i++) {
       Level level = levels.goToLevel(i);
-      List<Direction> solution = level.getSolution();
+      List<Direction> solution = solver.solve(level);
       int moves = solution.size();
       String solutionString = LevelSolver.solutionToString(solution);
       System.out.println("Level " + i + ": Moves = " + solutionString + ", " + moves);
@@ -193,15 +492,127 @@ public class Blocky {
   // -----------------------------------------------------------------------------------------------
 
   /**
-   * Generates {@param quantity} levels of size {@param size} which require at least {@param moves}
-   * moves in order to be solved.
+   * Generates {@param quantity} levels with the given generator, leaving out levels with the same
+   * board as one already generated. Levels are generated on every available core, and written in
+   * an order that only depends on {@param seed}, which is written first as a comment. Levels are
+   * printed, or written to the file with the given name with checkpoints, in which case a run
+   * that was stopped is resumed with the seed it started with. Statistics of the generator are
+   * printed to standard error at the end, or the reason that generation stopped if a level could
+   * not be generated.
+   *
+   * @param generator generator to generate levels with
+   * @param quantity  number of levels to generate
+   * @param seed      seed to generate levels with, unless resuming
+   * @param fileName  name of file to write levels to, or null to print them
+   */
+  private static void generateRandomLevels(LevelGenerator generator, int quantity, long seed,
+                                           String fileName) {
+    int workers = Runtime.getRuntime().availableProcessors();
+
+    try (LevelFileWriter writer = fileName == null
+            ? LevelFileWriter.toStream(System.out, generator, seed)
+            : LevelFileWriter.toFile(fileName, generator, seed)) {
+      // duplicates that were left out are made up for by another batch; they are generated and
+      // solved like any other level, so that every index of the sequence of the seed stays fixed
+      while (writer.levelsWritten() < quantity) {
+        int remaining = quantity - writer.levelsWritten();
+        LevelBatch batch = generator.generateBatch(writer.nextIndex(), remaining,
+                writer.getSeed(), workers);
+
+        try {
+          for (int i = 0; i < batch.size(); i++) writer.write(batch.get(i));
+        } finally {
+          batch.cancel(); // only stops work if writing stopped early
+        }
+      }
+
+      System.err.println("Generated " + writer.levelsWritten() + " levels, left out "
+              + writer.duplicates() + " duplicates: " + generator.getStats());
+    } catch (IllegalStateException | IOException e) {
+      System.err.println(e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Generates levels with the given generator until every one of the given buckets is full,
+   * keeping each level in the bucket its number of moves falls in. Levels are generated on every
+   * available core in an order that only depends on {@param seed}. Once the buckets requiring the
+   * fewest moves are full, only levels requiring enough moves for the rest are generated. The seed
+   * and then the levels of every bucket are printed at the end, along with the levels kept so far
+   * if a level could not be generated. Statistics of the generator are printed to standard error.
    *
-   * @param size     size of levels to generate
-   * @param moves    minimum number of moves required to solve levels
-   * @param quantity number of levels to generate
+   * @param generator generator to generate levels with, whose minimum moves are replaced
+   * @param buckets   buckets to fill with levels
+   * @param seed      seed to generate levels with
    */
-  private static void generateRandomLevels(int size, int moves, int quantity) {
-    LevelGenerator generator = new LevelGenerator(size, moves);
-    for (int i = 0; i < quantity; i++) System.out.println(generator.generateLevelString() + "\n");
+  private static void generateBucketedLevels(LevelGenerator generator, LevelBuckets buckets,
+                                             long seed) {
+    int workers = Runtime.getRuntime().availableProcessors();
+    int nextIndex = 0;
+    int minMoves = buckets.minMoves();
+    LevelGenerator phase = generator.withMinMoves(minMoves);
+
+    try {
+      while (!buckets.isFull()) {
+        // raising the minimum moves once the buckets needing the fewest moves are full
+        if (buckets.minMoves() != minMoves) {
+          System.err.println("Levels requiring at least " + minMoves + " moves: "
+                  + phase.getStats());
+          minMoves = buckets.minMoves();
+          phase = generator.withMinMoves(minMoves);
+        }
+
+        LevelBatch batch = phase.generateBatch(nextIndex, buckets.remaining(), seed, workers);
+        try {
+          for (int i = 0; i < batch.size() && !buckets.isFull()
+                  && buckets.minMoves() == minMoves; i++) {
+            buckets.offer(batch.get(i));
+            nextIndex++;
+          }
+        } finally {
+          batch.cancel(); // only stops work if the batch was left early
+        }
+      }
+    } catch (IllegalStateException e) {
+      System.err.println(e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    System.err.println("Levels requiring at least " + minMoves + " moves: " + phase.getStats());
+
+    System.out.print("# seed " + seed + "\n\n" + buckets);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // GENERATING LEVELS ACROSS PROCESSES (farm)
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Works on the given farm until its queue is empty, with the worker name, threads, and budget
+   * given as command line input. Statistics of the generator are printed to standard error at the
+   * end, or the reason that work stopped if a level could not be generated.
+   *
+   * @param farm farm to work on
+   * @param args list of command line arguments
+   * @throws IllegalArgumentException if input is malformatted
+   * @throws IOException              if a job or the results could not be read or written
+   */
+  private static void runFarmWorker(LevelFarm farm, String[] args)
+          throws IllegalArgumentException, IOException {
+    LevelGenerator generator = parseBudget(args, farm.generator());
+    String worker = parseWorker(args);
+
+    try {
+      int shards = farm.work(generator, worker, parseThreads(args));
+      System.err.println("Worker " + worker + " generated " + shards + " shards: "
+              + generator.getStats());
+    } catch (IllegalStateException e) {
+      System.err.println(e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
   }
 }
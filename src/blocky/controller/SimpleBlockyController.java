@@ -98,6 +98,24 @@ public class SimpleBlockyController implements BlockyController {
     this.updateViewMove(); // view will let this know when to allow a move again
   }
 
+  @Override
+  public void undo() throws IllegalStateException {
+    if (!this.allowMove) throw new IllegalStateException("Cannot undo while rendering.");
+
+    this.model.undo(); // might throw ISE
+    this.allowMove = false;
+    this.updateViewMove(); // view will let this know when to allow a move again
+  }
+
+  @Override
+  public void redo() throws IllegalStateException {
+    if (!this.allowMove) throw new IllegalStateException("Cannot redo while rendering.");
+
+    this.model.redo(); // might throw ISE
+    this.allowMove = false;
+    this.updateViewMove(); // view will let this know when to allow a move again
+  }
+
   @Override
   public void nextLevel() throws IllegalStateException {
     this.model.loadLevel(this.levels.nextLevel());
@@ -148,6 +166,8 @@ public class SimpleBlockyController implements BlockyController {
             " - a = move left\n" +
             " - s = move down\n" +
             " - d = move right\n" +
+            " - /undo = undo last move\n" +
+            " - /redo = redo last move undone\n" +
             " - /re = restart current level\n" +
             " - /next = go to next level\n" +
             " - /prev = go back to previous level\n" +
@@ -185,14 +205,18 @@ public class SimpleBlockyController implements BlockyController {
     // displaying if beat with max moves
     if (this.model.foundOptimalSolution()) {
       this.view.display("Good job!");
-      try {
-        // loading next level
-        this.model.loadLevel(this.levels.nextLevel());
-      } catch (IllegalStateException e) {
-        // fixme change how this moves to next level
+      if (!this.levels.hasNextLevel()) {
         this.view.display("Congrats! You've completed this level set!");
         this.levels.restart();
         this.model.loadLevel(this.levels.curLevel());
+      } else {
+        try {
+          this.model.loadLevel(this.levels.nextLevel());
+        } catch (IllegalStateException e) {
+          // next level exists but could not be loaded (e.g. could not be generated), staying here
+          this.view.display(e.getMessage());
+          this.model.restartLevel();
+        }
       }
     } else {
       this.view.display("This level has a quicker solution. Try again!");
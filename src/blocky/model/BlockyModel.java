@@ -57,6 +57,24 @@ public interface BlockyModel {
    */
   boolean move(Direction dir) throws IllegalStateException;
 
+  /**
+   * Takes back the last move made since the current level was loaded or restarted, and keeps it so
+   * that it can be made again with redo().
+   *
+   * @throws IllegalStateException if no level has been loaded into model yet, or if there is no
+   *                               move to undo
+   */
+  void undo() throws IllegalStateException;
+
+  /**
+   * Makes again the last move taken back with undo(). Moves that were taken back can no longer be
+   * redone once another move is made.
+   *
+   * @throws IllegalStateException if no level has been loaded into model yet, or if there is no
+   *                               move to redo
+   */
+  void redo() throws IllegalStateException;
+
   /**
    * Returns the number of moves the player has made since the last level change / reset.
    *
@@ -84,6 +102,16 @@ public interface BlockyModel {
    */
   List<List<GamePiece>> layout() throws IllegalStateException;
 
+  /**
+   * Returns a compact encoding of the current state of the game board, packing the state code of
+   * every cell (see GamePiece.stateCode()) into four bits, row by row. Two boards of the same level
+   * are in the same state if and only if their encodings are equal.
+   *
+   * @return current state of board packed into an array of longs
+   * @throws IllegalStateException if no level has been loaded into model yet
+   */
+  long[] packedLayout() throws IllegalStateException;
+
   /**
    * Initializes and returns a list of all sprites in this model.
    *
@@ -2,24 +2,25 @@ package blocky.model;
 
 import blocky.model.gamepieces.GamePiece;
 import blocky.util.Direction;
-import blocky.util.Position;
 
 /**
- * Represents a model that is able to be manipulated by model commands in more specific ways. This
- * interface intended for use with commands only, not the controller.
+ * Represents a model that is able to be manipulated by effects in more specific ways. This
+ * interface intended for use with an EffectQueue only, not the controller.
  */
 public interface CommandBlockyModel extends BlockyModel {
   /**
    * Moves the MovingGamePiece at the given position in the given direction. Will throw IAE if not
-   * given the position of a MovingGamePiece.
+   * given the position of a MovingGamePiece. The effects of the piece hitting whatever stops it
+   * (e.g. pushing another piece) are added to the model's EffectQueue to be carried out after
+   * this method returns, rather than carried out by this method.
    *
-   * @param pos position of MovingGamePiece to move
+   * @param pos position of MovingGamePiece to move, packed (see Position.pack())
    * @param dir direction to move piece in
-   * @return whether or not move was successful
+   * @return whether or not the piece moved
    * @throws IllegalArgumentException if piece at given position is not a MovingGamePiece
    * @throws IllegalStateException    if no level has been loaded into model yet
    */
-  boolean movePieceAt(Position pos, Direction dir)
+  boolean movePieceAt(int pos, Direction dir)
           throws IllegalArgumentException, IllegalStateException;
 
   /**
@@ -28,12 +29,12 @@ public interface CommandBlockyModel extends BlockyModel {
    * are solid or open but not filled. Returns {@code true} if the original piece was not already an
    * Empty, meaning the board has changed.
    *
-   * @param pos position of piece to delete
+   * @param pos position of piece to delete, packed (see Position.pack())
    * @return whether or not board has actually changed
-   * @throws IllegalArgumentException if given position is null or invalid
+   * @throws IllegalArgumentException if given position is invalid
    * @throws IllegalStateException    if no level has been loaded into model yet
    */
-  boolean deletePieceAt(Position pos) throws IllegalArgumentException, IllegalStateException;
+  boolean deletePieceAt(int pos) throws IllegalArgumentException, IllegalStateException;
 
   /**
    * Updates the sprite of the corresponding GamePiece to render as the other given GamePiece at the
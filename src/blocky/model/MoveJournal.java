@@ -0,0 +1,227 @@
+package blocky.model;
+
+import java.util.Arrays;
+
+import blocky.model.gamepieces.GamePiece;
+import blocky.util.Direction;
+
+/**
+ * Records the cells changed by moves made in a model so that those moves can be undone. For every
+ * move, the journal holds the direction it was made in and what the model looked like before the
+ * move (player position, number of moves, and current step), followed by the piece in each cell
+ * right before it was changed and the step of each key frame the move added to a sprite. The model
+ * must change a copy in place of any piece it records, so that recorded pieces never change.
+ */
+class MoveJournal {
+  private GamePiece[] cells; // INVARIANT: never null, pieces in cells before they were changed
+  private int[] indices; // INVARIANT: never null, index on the board of each cell in this.cells
+  private int size; // INVARIANT: never negative, number of cells recorded
+
+  private Sprite[] frameSprites; // INVARIANT: never null, sprite of each key frame added
+  private int[] frameSteps; // INVARIANT: never null, step of each key frame in this.frameSprites
+  private int frameCount; // INVARIANT: never negative, number of key frames recorded
+
+  private int[] moveStarts; // INVARIANT: never null, index of first cell recorded for each move
+  private int[] frameStarts; // INVARIANT: never null, index of first key frame for each move
+  private Direction[] directions; // INVARIANT: never null, direction of each move
+  private int[] playerPositions; // INVARIANT: never null, packed player position before each move
+  private int[] movesMade; // INVARIANT: never null, moves made before each move
+  private int[] steps; // INVARIANT: never null, current step before each move
+  private int moveCount; // INVARIANT: never negative, number of moves recorded
+
+  /**
+   * Constructs a new, empty MoveJournal.
+   */
+  MoveJournal() {
+    this.cells = new GamePiece[32];
+    this.indices = new int[32];
+    this.size = 0;
+
+    this.frameSprites = new Sprite[16];
+    this.frameSteps = new int[16];
+    this.frameCount = 0;
+
+    this.moveStarts = new int[16];
+    this.frameStarts = new int[16];
+    this.directions = new Direction[16];
+    this.playerPositions = new int[16];
+    this.movesMade = new int[16];
+    this.steps = new int[16];
+    this.moveCount = 0;
+  }
+
+  /**
+   * Marks the start of a new move, recording the state of the model that is not stored in cells.
+   *
+   * @param dir       direction the move is made in
+   * @param playerPos packed position of the player before the move (see Position.pack())
+   * @param moves     number of moves made before the move
+   * @param step      current step before the move
+   */
+  void beginMove(Direction dir, int playerPos, int moves, int step) {
+    if (this.moveCount == this.moveStarts.length) {
+      int length = this.moveCount * 2;
+      this.moveStarts = Arrays.copyOf(this.moveStarts, length);
+      this.frameStarts = Arrays.copyOf(this.frameStarts, length);
+      this.directions = Arrays.copyOf(this.directions, length);
+      this.playerPositions = Arrays.copyOf(this.playerPositions, length);
+      this.movesMade = Arrays.copyOf(this.movesMade, length);
+      this.steps = Arrays.copyOf(this.steps, length);
+    }
+
+    this.moveStarts[this.moveCount] = this.size;
+    this.frameStarts[this.moveCount] = this.frameCount;
+    this.directions[this.moveCount] = dir;
+    this.playerPositions[this.moveCount] = playerPos;
+    this.movesMade[this.moveCount] = moves;
+    this.steps[this.moveCount] = step;
+    this.moveCount++;
+  }
+
+  /**
+   * Records the given cell as it is right before being changed by the current move.
+   *
+   * @param cell   index of the cell on the board, row by row
+   * @param before piece in the cell before it is changed
+   * @throws IllegalStateException if no move has been started
+   */
+  void record(int cell, GamePiece before) throws IllegalStateException {
+    if (this.moveCount == 0) throw new IllegalStateException("Tried to record outside of a move.");
+
+    if (this.size == this.cells.length) {
+      int length = this.size * 2;
+      this.cells = Arrays.copyOf(this.cells, length);
+      this.indices = Arrays.copyOf(this.indices, length);
+    }
+
+    this.cells[this.size] = before;
+    this.indices[this.size] = cell;
+    this.size++;
+  }
+
+  /**
+   * Records that the current move added a key frame to the given sprite at the given step.
+   *
+   * @param sprite sprite the key frame was added to
+   * @param step   step of the key frame
+   * @throws IllegalStateException if no move has been started
+   */
+  void recordKeyFrame(Sprite sprite, int step) throws IllegalStateException {
+    if (this.moveCount == 0) throw new IllegalStateException("Tried to record outside of a move.");
+
+    if (this.frameCount == this.frameSprites.length) {
+      int length = this.frameCount * 2;
+      this.frameSprites = Arrays.copyOf(this.frameSprites, length);
+      this.frameSteps = Arrays.copyOf(this.frameSteps, length);
+    }
+
+    this.frameSprites[this.frameCount] = sprite;
+    this.frameSteps[this.frameCount] = step;
+    this.frameCount++;
+  }
+
+  /**
+   * Returns whether or not there is a recorded move that can be undone.
+   *
+   * @return whether or not a move has been recorded
+   */
+  boolean hasMoves() {
+    return this.moveCount > 0;
+  }
+
+  /**
+   * Returns the direction of the most recently recorded move.
+   *
+   * @return direction of last move
+   * @throws IllegalStateException if no move has been recorded
+   */
+  Direction lastDirection() throws IllegalStateException {
+    this.requireMove();
+    return this.directions[this.moveCount - 1];
+  }
+
+  /**
+   * Returns the packed position of the player before the most recently recorded move.
+   *
+   * @return packed player position before last move
+   * @throws IllegalStateException if no move has been recorded
+   */
+  int lastPlayerPosition() throws IllegalStateException {
+    this.requireMove();
+    return this.playerPositions[this.moveCount - 1];
+  }
+
+  /**
+   * Returns the number of moves made before the most recently recorded move.
+   *
+   * @return moves made before last move
+   * @throws IllegalStateException if no move has been recorded
+   */
+  int lastMovesMade() throws IllegalStateException {
+    this.requireMove();
+    return this.movesMade[this.moveCount - 1];
+  }
+
+  /**
+   * Returns the current step before the most recently recorded move.
+   *
+   * @return step before last move
+   * @throws IllegalStateException if no move has been recorded
+   */
+  int lastStep() throws IllegalStateException {
+    this.requireMove();
+    return this.steps[this.moveCount - 1];
+  }
+
+  /**
+   * Restores every cell changed by the most recently recorded move on the given board, newest
+   * first, and removes every key frame it added, then forgets that move. Restored pieces may be
+   * shared with other boards, so the given flags of which cells the board has to itself are cleared
+   * for every restored cell.
+   *
+   * @param board cells of board to restore cells on, row by row
+   * @param owned whether or not the board has each cell to itself
+   * @throws IllegalStateException if no move has been recorded
+   */
+  void undoMove(GamePiece[] board, boolean[] owned) throws IllegalStateException {
+    this.requireMove();
+
+    int start = this.moveStarts[this.moveCount - 1];
+    for (int i = this.size - 1; i >= start; i--) {
+      board[this.indices[i]] = this.cells[i];
+      owned[this.indices[i]] = false;
+      this.cells[i] = null;
+    }
+
+    this.size = start;
+
+    int frameStart = this.frameStarts[this.moveCount - 1];
+    for (int i = this.frameCount - 1; i >= frameStart; i--) {
+      this.frameSprites[i].removeKeyFrame(this.frameSteps[i]);
+      this.frameSprites[i] = null;
+    }
+
+    this.frameCount = frameStart;
+    this.moveCount--;
+  }
+
+  /**
+   * Forgets every recorded move.
+   */
+  void clear() {
+    Arrays.fill(this.cells, 0, this.size, null);
+    this.size = 0;
+    Arrays.fill(this.frameSprites, 0, this.frameCount, null);
+    this.frameCount = 0;
+    this.moveCount = 0;
+  }
+
+  /**
+   * Throws ISE if no move has been recorded.
+   *
+   * @throws IllegalStateException if no move has been recorded
+   */
+  private void requireMove() throws IllegalStateException {
+    if (this.moveCount == 0) throw new IllegalStateException("No move to undo.");
+  }
+}
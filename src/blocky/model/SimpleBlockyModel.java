@@ -1,14 +1,18 @@
 package blocky.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import blocky.model.commands.EffectQueue;
 import blocky.model.gamepieces.Empty;
 import blocky.model.gamepieces.GamePiece;
 import blocky.model.gamepieces.MovingGamePiece;
 import blocky.model.gamepieces.PlayerBlock;
+import blocky.model.gamepieces.Wall;
+import blocky.model.gamepieces.WinningPiece;
 import blocky.util.levels.Level;
 import blocky.util.Direction;
 import blocky.util.Position;
@@ -17,15 +21,54 @@ import blocky.util.Position;
  * Acts as a model for the Blocky game.
  */
 public class SimpleBlockyModel implements CommandBlockyModel {
-  private List<List<GamePiece>> layout; // INVARIANT: never null after initially set
+  private static final int DIRECTIONS = Direction.values().length;
+
+  private GamePiece[] cells; // INVARIANT: never null after initially set, row by row
+  private boolean[] owned; // INVARIANT: same length as this.cells, whether only this model has cell
+  private int width; // INVARIANT: never negative, number of columns in this.cells
+  private int height; // INVARIANT: never negative, number of rows in this.cells
+  private int piecesOnBoard; // INVARIANT: never negative, number of non-null cells
   private Map<String, Sprite> sprites; // INVARIANT: never null after initially set
-  private Position playerPosition; // INVARIANT: never off board, not null if has level
+  private List<Sprite> fixedSprites; // INVARIANT: never null after initially set
+  private int playerPosition; // INVARIANT: never off board, packed (see Position.pack())
   private BlockyModelListener listener; // INVARIANT: never null after initially set
   private Level level; // INVARIANT: never null after initially set
   private int moves; // INVARIANT: never negative
   private int curStep; // INVARIANT: never negative
+  private final MoveJournal journal; // INVARIANT: never null
+  private boolean journaling; // whether or not changed cells are being recorded in journal
+  private boolean journalComplete; // whether or not journal holds every change since level loaded
+  private final List<Direction> undone; // INVARIANT: never null, moves to redo, most recent last
+  private final boolean animated; // whether or not sprites are kept up to date for rendering
+  private int[] links; // INVARIANT: never null after initially set, stamp of last link per cell/dir
+  private int linkStamp; // INVARIANT: always > 0, stamp of links made since the board last changed
+  private final EffectQueue effects; // INVARIANT: never null, effects of the move in progress
+
+  /**
+   * Constructs a new SimpleBlockyModel with no level loaded that keeps its sprites up to date so
+   * that it can be rendered.
+   */
+  public SimpleBlockyModel() {
+    this(true);
+  }
 
-  // fixme something to prevent crashing when bouncing between two blues
+  /**
+   * Constructs a new SimpleBlockyModel with no level loaded. A model that is not animated follows
+   * exactly the same rules, but records no sprites or key frames, never advances its current step,
+   * and keeps no journal of the moves made with move(), so it cannot be rendered by a visual view
+   * and its moves cannot be undone; it is intended for simulating moves (e.g. when solving or
+   * generating levels), where that information would never be used.
+   *
+   * @param animated whether or not to keep sprites up to date for rendering
+   */
+  public SimpleBlockyModel(boolean animated) {
+    this.journal = new MoveJournal();
+    this.journaling = false;
+    this.journalComplete = false;
+    this.undone = new ArrayList<>();
+    this.animated = animated;
+    this.effects = new EffectQueue();
+  }
 
   // -----------------------------------------------------------------------------------------------
   // BlockyModel INTERFACE METHODS
@@ -34,19 +77,22 @@ public class SimpleBlockyModel implements CommandBlockyModel {
   @Override
   public void restartLevel() throws IllegalStateException {
     this.requireLevel();
+    this.undone.clear();
 
-    this.layout = this.level.getLayout();
-    this.initializeSprites();
-    this.playerPosition = this.level.getPlayerPosition();
-    this.moves = 0;
-    this.curStep = 0;
+    if (!this.journalComplete) {
+      this.resetBoard();
+    } else {
+      // only the cells and key frames changed since the level was loaded need to be put back
+      while (this.journal.hasMoves()) this.curStep = this.rollBackMove();
+    }
   }
 
   @Override
   public void loadLevel(Level level) throws IllegalArgumentException {
     if (level == null) throw new IllegalArgumentException("Tried to load null level into model.");
     this.level = level;
-    this.restartLevel();
+    this.undone.clear();
+    this.resetBoard();
   }
 
   @Override
@@ -57,22 +103,47 @@ public class SimpleBlockyModel implements CommandBlockyModel {
 
   @Override
   public int levelWidth() throws IllegalStateException {
-    int width = 0;
-    for (List<GamePiece> row : this.layout) if (row.size() > width) width = row.size();
-    return width;
+    this.requireLevel();
+    return this.width;
   }
 
   @Override
   public int levelHeight() throws IllegalStateException {
-    return this.layout.size();
+    this.requireLevel();
+    return this.height;
   }
 
   @Override
   public boolean move(Direction dir) throws IllegalStateException {
-    this.moves++; // moves++ must precede movePieceAt or else winning move won't count as a move
-    boolean moveMade = this.movePieceAt(this.playerPosition, dir); // might throw ISE
-    if (!moveMade) this.moves--; // do NOT replace with [if (moveMade) this.moves++;], see above
-    return moveMade;
+    if (!this.animated) {
+      this.journalComplete = false;
+      return this.playMove(dir);
+    }
+
+    if (!this.makeMove(dir)) {
+      this.unmakeMove(); // nothing changed, so there is nothing to undo
+      return false;
+    }
+
+    this.undone.clear();
+    return true;
+  }
+
+  @Override
+  public void undo() throws IllegalStateException {
+    this.requireLevel();
+    Direction dir = this.journal.lastDirection(); // throws ISE if there is no move to undo
+    this.unmakeMove();
+    this.undone.add(dir);
+  }
+
+  @Override
+  public void redo() throws IllegalStateException {
+    this.requireLevel();
+    if (this.undone.isEmpty()) throw new IllegalStateException("No move to redo.");
+
+    // moves are deterministic, so making the move again gives back exactly what was undone
+    this.makeMove(this.undone.remove(this.undone.size() - 1));
   }
 
   @Override
@@ -96,13 +167,40 @@ public class SimpleBlockyModel implements CommandBlockyModel {
   @Override
   public List<List<GamePiece>> layout() throws IllegalStateException {
     this.requireLevel();
-    return this.copyLayout();
+
+    List<List<GamePiece>> layout = new ArrayList<>();
+    for (int row = 0; row < this.height; row++) {
+      List<GamePiece> newRow = new ArrayList<>();
+      for (int cell = row * this.width; cell < (row + 1) * this.width; cell++) {
+        if (this.cells[cell] != null) newRow.add(this.cells[cell].copy());
+      }
+      layout.add(newRow);
+    }
+
+    return layout;
+  }
+
+  @Override
+  public long[] packedLayout() throws IllegalStateException {
+    this.requireLevel();
+
+    // 16 cells of 4 bits each fit into every long, with cells off the board left out
+    long[] packed = new long[(this.piecesOnBoard + 15) / 16];
+    int index = 0;
+    for (GamePiece gp : this.cells) {
+      if (gp == null) continue;
+      packed[index / 16] |= ((long) gp.stateCode()) << ((index % 16) * 4);
+      index++;
+    }
+
+    return packed;
   }
 
   @Override
   public List<Sprite> sprites() throws IllegalStateException {
     List<Sprite> spriteList = new ArrayList<>();
     for (String name : this.sprites.keySet()) spriteList.add(this.sprites.get(name));
+    spriteList.addAll(this.fixedSprites);
     return spriteList;
   }
 
@@ -119,12 +217,26 @@ public class SimpleBlockyModel implements CommandBlockyModel {
 
   @Override
   public BlockyModel copy() {
-    SimpleBlockyModel model = new SimpleBlockyModel();
-    model.layout = this.copyLayout();
-    model.playerPosition = this.playerPosition.copy();
+    SimpleBlockyModel model = new SimpleBlockyModel(this.animated);
+    model.cells = this.cells.clone();
+    model.owned = new boolean[this.cells.length];
+    for (int cell = 0; cell < this.cells.length; cell++) {
+      // cells that this model does not have to itself are never changed, so can be shared
+      if (this.owned[cell]) {
+        model.cells[cell] = this.cells[cell].copy();
+        model.owned[cell] = true;
+      }
+    }
+    model.width = this.width;
+    model.height = this.height;
+    model.piecesOnBoard = this.piecesOnBoard;
+    model.playerPosition = this.playerPosition;
     model.level = this.level;
     model.listener = this.listener;
+    model.moves = this.moves;
     model.curStep = this.curStep;
+    model.links = new int[this.links.length];
+    model.linkStamp = 1;
     model.initializeSprites();
     return model;
   }
@@ -134,48 +246,67 @@ public class SimpleBlockyModel implements CommandBlockyModel {
   // -----------------------------------------------------------------------------------------------
 
   @Override
-  public boolean movePieceAt(Position pos, Direction dir)
+  public boolean movePieceAt(int pos, Direction dir)
           throws IllegalArgumentException, IllegalStateException {
     this.requireLevel();
 
+    int row = Position.rowOf(pos);
+    int col = Position.colOf(pos);
+
     try {
-      boolean movingPlayer = pos.equals(this.playerPosition);
+      boolean movingPlayer = pos == this.playerPosition;
+
+      int cellOfMovingPiece = this.cellAt(row, col);
+      if (this.isRepeatedLink(cellOfMovingPiece, dir)) {
+        // a moving piece is caught between BlueBlocks, and would bounce between them forever
+        this.fatalMoveMade();
+        return true;
+      }
 
-      Position posOfMovingPiece = pos.copy();
-      MovingGamePiece movingPiece = this.movingPieceAt(posOfMovingPiece);
+      MovingGamePiece movingPiece = this.movingPieceAt(cellOfMovingPiece);
 
-      Position posOfNextPiece = nextPosition(posOfMovingPiece, dir);
-      GamePiece nextPiece = posOfNextPiece.getItem(this.layout);
+      int cellOfNextPiece = this.cellAt(row + dir.rowChange(), col + dir.colChange());
+      GamePiece nextPiece = this.cells[cellOfNextPiece];
 
       boolean pieceMoved = false;
       while (nextPiece.canBeEntered()) {
-        this.curStep++;
+        if (this.animated) this.curStep++;
 
-        movingPiece = this.extractMovingPieceAt(posOfMovingPiece);
-        nextPiece.beEnteredBy(movingPiece).execute(this);
+        this.claimCell(cellOfMovingPiece);
+        movingPiece = this.extractMovingPieceAt(cellOfMovingPiece);
+        nextPiece = this.claimCell(cellOfNextPiece);
+        // entering a piece may change its state (e.g. popping), which happens before the slide goes
+        // on, and before any effects already queued by the drain in progress
+        int mark = this.effects.mark();
+        nextPiece.beEnteredBy(movingPiece, this.effects);
+        this.effects.drainFrom(this, mark);
 
-        posOfMovingPiece = posOfNextPiece.copy();
-        posOfNextPiece = nextPosition(posOfMovingPiece, dir);
+        row += dir.rowChange();
+        col += dir.colChange();
+        cellOfMovingPiece = cellOfNextPiece;
+        cellOfNextPiece = this.cellAt(row + dir.rowChange(), col + dir.colChange());
 
-        nextPiece = posOfNextPiece.getItem(this.layout);
+        nextPiece = this.cells[cellOfNextPiece];
 
         pieceMoved = true;
       }
 
       if (movingPlayer) {
-        this.playerPosition = posOfMovingPiece.copy();
-      } else {
+        this.playerPosition = Position.pack(row, col);
+      } else if (this.animated) {
         this.markPlayerPosition();
       }
 
-      if (pieceMoved) {
+      if (pieceMoved && this.animated) {
         Sprite sprite = this.sprites.get(movingPiece.getName());
-        sprite.addKeyFrame(this.curStep, movingPiece, posOfMovingPiece.copy());
+        this.addKeyFrame(sprite, movingPiece, new Position(row, col));
       }
 
-      boolean otherPieceMoved = nextPiece.hitBy(movingPiece, dir).execute(this);
+      // being hit may change the state of a piece (e.g. cracking)
+      nextPiece = this.claimCell(cellOfNextPiece);
+      nextPiece.hitBy(movingPiece, dir, this.effects);
 
-      return pieceMoved || otherPieceMoved;
+      return pieceMoved;
     } catch (ClassCastException e) {
       throw new IllegalArgumentException("Tried to move a stationary block.");
     } catch (IndexOutOfBoundsException e) {
@@ -184,14 +315,18 @@ public class SimpleBlockyModel implements CommandBlockyModel {
   }
 
   @Override
-  public boolean deletePieceAt(Position pos) throws IllegalArgumentException, IllegalStateException {
+  public boolean deletePieceAt(int pos) throws IllegalArgumentException, IllegalStateException {
     this.requireLevel();
 
     try {
-      GamePiece itemBefore = pos.getItem(this.layout);
-      Empty replacement = new Empty(itemBefore.getName(), pos.copy());
-      if (!itemBefore.deletePieceInside()) pos.setItem(this.layout, replacement);
-      return !itemBefore.equals(replacement);
+      int cell = this.cellAt(Position.rowOf(pos), Position.colOf(pos));
+      GamePiece itemBefore = this.claimCell(cell);
+      Empty replacement = new Empty(itemBefore.getName(), Position.unpack(pos));
+      if (!itemBefore.deletePieceInside()) this.cells[cell] = replacement;
+      if (itemBefore.equals(replacement)) return false;
+
+      this.forgetLinks();
+      return true;
     } catch (IndexOutOfBoundsException e) {
       throw new IllegalArgumentException("Tried to set value of GamePiece that doesn't exist.");
     }
@@ -199,13 +334,17 @@ public class SimpleBlockyModel implements CommandBlockyModel {
 
   @Override
   public void updateSpriteRender(GamePiece gp, GamePiece renderAs) {
+    // a piece rendered as another piece has changed state (e.g. popping or cracking)
+    if (gp != renderAs) this.forgetLinks();
+    if (!this.animated) return;
+
     Sprite sprite = this.sprites.get(gp.getName());
 
     try {
-      sprite.addKeyFrame(this.curStep, renderAs, gp.getPosition());
+      this.addKeyFrame(sprite, renderAs, gp.getPosition());
     } catch (IllegalArgumentException e) {
       this.curStep++;
-      sprite.addKeyFrame(this.curStep, renderAs, gp.getPosition());
+      this.addKeyFrame(sprite, renderAs, gp.getPosition());
     }
   }
 
@@ -221,49 +360,232 @@ public class SimpleBlockyModel implements CommandBlockyModel {
     this.listener.fatalMoveMade();
   }
 
+  // -----------------------------------------------------------------------------------------------
+  // MOVE SIMULATION METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Moves player block in given direction exactly like move(), but also records every cell that
+   * the move changes so that it can be rolled back in place with unmakeMove(). Intended for
+   * searching through moves with a single model rather than a copy of the model for every move.
+   * Every call to this method should be paired with a call to unmakeMove(), even if it returns
+   * {@code false}.
+   *
+   * @param dir direction to move player in
+   * @return whether or not move was successful
+   * @throws IllegalStateException if no level has been loaded into model yet
+   */
+  public boolean makeMove(Direction dir) throws IllegalStateException {
+    this.requireLevel();
+    this.journal.beginMove(dir, this.playerPosition, this.moves, this.curStep);
+
+    this.journaling = true;
+    try {
+      return this.playMove(dir);
+    } finally {
+      this.journaling = false;
+    }
+  }
+
+  /**
+   * Rolls back the last move made with makeMove(), restoring every cell it changed along with the
+   * player position, number of moves made, and current step. An animated model makes every move
+   * with makeMove(), so this also rolls back the last move made with move() on such a model, but
+   * unlike undo() the move cannot then be redone.
+   *
+   * @throws IllegalStateException if no level has been loaded into model yet, or if there is no
+   *                               move made with makeMove() left to roll back
+   */
+  public void unmakeMove() throws IllegalStateException {
+    this.requireLevel();
+
+    this.curStep = this.rollBackMove(); // throws ISE if there is no move to roll back
+  }
+
   // -----------------------------------------------------------------------------------------------
   // PRIVATE METHODS
   // -----------------------------------------------------------------------------------------------
 
+  /**
+   * Moves player block in given direction, recording the cells it changes in the journal only if
+   * a move made with makeMove() is in progress.
+   *
+   * @param dir direction to move player in
+   * @return whether or not move was successful
+   * @throws IllegalStateException if no level has been loaded into model yet
+   */
+  private boolean playMove(Direction dir) throws IllegalStateException {
+    this.moves++; // moves++ must precede movePieceAt or else winning move won't count as a move
+    this.forgetLinks();
+    this.effects.clear();
+    boolean moveMade = this.movePieceAt(this.playerPosition, dir); // might throw ISE
+    if (this.effects.drain(this)) moveMade = true; // might throw ISE
+    if (!moveMade) this.moves--; // do NOT replace with [if (moveMade) this.moves++;], see above
+    return moveMade;
+  }
+
+  /**
+   * Puts the board back to the layout of the current level, creating every sprite anew and
+   * forgetting every move in the journal.
+   */
+  private void resetBoard() {
+    // the cells are shared with the level until they are changed, see claimCell()
+    this.cells = this.level.getCells();
+    this.owned = new boolean[this.cells.length];
+    this.width = this.level.getWidth();
+    this.height = this.level.getHeight();
+    this.piecesOnBoard = 0;
+    for (GamePiece gp : this.cells) if (gp != null) this.piecesOnBoard++;
+
+    this.links = new int[this.cells.length * DIRECTIONS];
+    this.linkStamp = 1;
+
+    this.initializeSprites();
+    this.playerPosition = this.level.getPlayerPosition().packed();
+    this.moves = 0;
+    this.curStep = 0;
+    this.journal.clear();
+    this.journalComplete = true;
+  }
+
+  /**
+   * Restores every cell and removes every key frame changed by the most recently journaled move,
+   * along with the player position and number of moves made, then forgets that move. Leaves the
+   * current step as it is.
+   *
+   * @return current step before the move that was rolled back
+   * @throws IllegalStateException if there is no move in the journal
+   */
+  private int rollBackMove() throws IllegalStateException {
+    int step = this.journal.lastStep(); // throws ISE if there is no move to roll back
+    this.playerPosition = this.journal.lastPlayerPosition();
+    this.moves = this.journal.lastMovesMade();
+    this.journal.undoMove(this.cells, this.owned);
+    return step;
+  }
+
   /**
    * Marks the player's position in its sprite at the current step.
    */
   private void markPlayerPosition() {
     // if ClassCastException thrown, playerPosition has fallen out of sync with player block
-    PlayerBlock player = (PlayerBlock) this.movingPieceAt(this.playerPosition);
+    int pos = this.playerPosition;
+    PlayerBlock player = (PlayerBlock) this.movingPieceAt(this.cellAt(Position.rowOf(pos),
+            Position.colOf(pos)));
     this.updateSpriteRender(player, player);
   }
 
   /**
-   * Initializes this.sprites with all new Sprite objects.
+   * Adds a key frame at the current step to the given sprite, recording it in the journal if a
+   * move made with makeMove() is in progress so that it can be removed when the move is undone.
+   *
+   * @param sprite   sprite to add key frame to
+   * @param renderAs piece to render sprite as
+   * @param pos      position of sprite at key frame
+   * @throws IllegalArgumentException if sprite already has a key frame at the current step
    */
-  private void initializeSprites() {
-    this.sprites = new HashMap<>();
+  private void addKeyFrame(Sprite sprite, GamePiece renderAs, Position pos)
+          throws IllegalArgumentException {
+    sprite.addKeyFrame(this.curStep, renderAs, pos);
+    if (this.journaling) this.journal.recordKeyFrame(sprite, this.curStep);
+  }
 
-    for (List<GamePiece> row : this.layout) {
-      for (GamePiece gp : row) {
-        GamePiece mgp = gp.renderAs();
-        if (!gp.equals(mgp)) this.sprites.put(mgp.getName(), new Sprite(mgp, mgp.getPosition()));
-        this.sprites.put(gp.getName(), new Sprite(gp, gp.getPosition()));
-      }
+  /**
+   * Returns the index in this.cells of the cell at the given row and column, or -1 if there is no
+   * such cell on the board, so that indexing this.cells with the result throws an
+   * IndexOutOfBoundsException exactly when the position is off the board.
+   *
+   * @param row row of cell
+   * @param col column of cell
+   * @return index of cell, or -1 if off the board
+   */
+  private int cellAt(int row, int col) {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) return -1;
+
+    int cell = row * this.width + col;
+    return this.cells[cell] == null ? -1 : cell;
+  }
+
+  /**
+   * Makes sure that the piece in the given cell belongs to this model alone, so that it can be
+   * changed, and returns it. Until a cell is first changed, its piece is shared with the level (or
+   * with the model this one was copied from), so it is copied here first. If a move made with
+   * makeMove() is in progress, the piece that was in the cell is recorded in the journal and a copy
+   * takes its place even if it already belonged to this model, so that the move can be rolled back.
+   * Must be called right before the cell is changed.
+   *
+   * @param cell index of cell that is about to change
+   * @return piece in cell, which may now be changed
+   * @throws IndexOutOfBoundsException if given cell is off the board
+   */
+  private GamePiece claimCell(int cell) throws IndexOutOfBoundsException {
+    GamePiece gp = this.cells[cell];
+    if (this.journaling) {
+      this.journal.record(cell, gp);
+    } else if (this.owned[cell]) {
+      return gp;
     }
+
+    this.cells[cell] = gp.copy();
+    this.owned[cell] = true;
+    return this.cells[cell];
   }
 
   /**
-   * Returns copy of board layout.
+   * Determines whether the piece in the given cell has already been moved in the given direction
+   * since the board last changed during the move in progress, and records this link of the move if
+   * not. Within a move, pieces only ever slide back and forth along one line, and only moving
+   * pieces change places until something changes state or is deleted, so a repeated link means the
+   * pieces are where they were the last time, and the move would repeat the same links forever.
    *
-   * @return copy of board layout
+   * @param cell index of cell of piece being moved
+   * @param dir  direction piece is being moved in
+   * @return whether or not this link has already happened since the board last changed
+   * @throws IndexOutOfBoundsException if given cell is off the board
    */
-  private List<List<GamePiece>> copyLayout() {
-    List<List<GamePiece>> layout = new ArrayList<>();
+  private boolean isRepeatedLink(int cell, Direction dir) throws IndexOutOfBoundsException {
+    int link = cell * DIRECTIONS + dir.ordinal();
+    if (this.links[link] == this.linkStamp) return true;
 
-    for (List<GamePiece> row : this.layout) {
-      List<GamePiece> newRow = new ArrayList<>();
-      for (GamePiece gp : row) newRow.add(gp.copy());
-      layout.add(newRow);
+    this.links[link] = this.linkStamp;
+    return false;
+  }
+
+  /**
+   * Forgets every link recorded by isRepeatedLink(), as the board has changed (or a new move has
+   * started) since they were made.
+   */
+  private void forgetLinks() {
+    this.linkStamp++;
+    if (this.linkStamp == Integer.MAX_VALUE) {
+      // stamps have run out, so the links are cleared for real and stamps start over
+      Arrays.fill(this.links, 0);
+      this.linkStamp = 1;
     }
+  }
 
-    return layout;
+  /**
+   * Initializes this.sprites with all new Sprite objects.
+   */
+  private void initializeSprites() {
+    this.sprites = new HashMap<>();
+    this.fixedSprites = new ArrayList<>();
+    if (!this.animated) return;
+
+    for (GamePiece gp : this.cells) {
+      // walls are not rendered as sprites, and neither are empty spaces apart from their contents
+      if (gp == null || gp instanceof Wall) continue;
+      GamePiece mgp = gp.renderAs();
+      if (!gp.equals(mgp)) this.sprites.put(mgp.getName(), new Sprite(mgp, mgp.getPosition()));
+      if (gp instanceof Empty) continue;
+
+      // winning pieces all share one name, but never change, so they are never looked up by name
+      if (gp instanceof WinningPiece) {
+        this.fixedSprites.add(new Sprite(gp, gp.getPosition()));
+      } else {
+        this.sprites.put(gp.getName(), new Sprite(gp, gp.getPosition()));
+      }
+    }
   }
 
   /**
@@ -276,39 +598,30 @@ public class SimpleBlockyModel implements CommandBlockyModel {
   }
 
   /**
-   * Finds the next position that the current moving piece will go to.
-   *
-   * @param pos current position that moving piece is in
-   * @param dir direction that the moving piece is going
-   * @return next position that the moving piece will go to
-   */
-  private static Position nextPosition(Position pos, Direction dir) {
-    return new Position(pos.row + dir.rowChange(), pos.col + dir.colChange());
-  }
-
-  /**
-   * Finds and returns MovingGamePiece at given position, but does not extract it.
+   * Finds and returns MovingGamePiece in given cell, but does not extract it.
    *
-   * @param pos position at which to find MovingGamePiece
-   * @return MovingGamePiece at given position
-   * @throws ClassCastException if there is no MovingGamePiece at given position
+   * @param cell index of cell in which to find MovingGamePiece
+   * @return MovingGamePiece in given cell
+   * @throws ClassCastException        if there is no MovingGamePiece in given cell
+   * @throws IndexOutOfBoundsException if given cell is off the board
    */
-  private MovingGamePiece movingPieceAt(Position pos) throws ClassCastException {
-    return (MovingGamePiece) pos.getItem(this.layout).renderAs();
+  private MovingGamePiece movingPieceAt(int cell)
+          throws ClassCastException, IndexOutOfBoundsException {
+    return (MovingGamePiece) this.cells[cell].renderAs();
   }
 
   /**
-   * Finds, extracts, and returns MovingGamePiece at given position.
+   * Finds, extracts, and returns MovingGamePiece in given cell.
    *
-   * @param pos position at which to find MovingGamePiece
-   * @return MovingGamePiece at given position
-   * @throws ClassCastException if there is no MovingGamePiece at given position
+   * @param cell index of cell in which to find MovingGamePiece
+   * @return MovingGamePiece in given cell
+   * @throws ClassCastException if there is no MovingGamePiece in given cell
    */
-  private MovingGamePiece extractMovingPieceAt(Position pos) throws ClassCastException {
+  private MovingGamePiece extractMovingPieceAt(int cell) throws ClassCastException {
     try {
-      GamePiece pieceAtPosition = pos.getItem(this.layout);
+      GamePiece pieceAtPosition = this.cells[cell];
       MovingGamePiece movingGamePiece = pieceAtPosition.extractMovingPiece();
-      pos.setItem(this.layout, pieceAtPosition.replacementAfterExtraction());
+      this.cells[cell] = pieceAtPosition.replacementAfterExtraction();
       return movingGamePiece;
     } catch (UnsupportedOperationException | IllegalStateException e) {
       throw new ClassCastException("Tried to access moving piece where there was not one.");
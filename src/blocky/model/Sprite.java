@@ -102,6 +102,16 @@ public class Sprite {
     }
   }
 
+  /**
+   * Removes the key frame of this sprite at the given step, if there is one.
+   *
+   * @param step step to remove key frame at
+   * @throws IllegalArgumentException if step is negative
+   */
+  void removeKeyFrame(int step) throws IllegalArgumentException {
+    this.keyFrames.remove(new KeyFrame(step));
+  }
+
   // -----------------------------------------------------------------------------------------------
   // PRIVATE METHODS
   // -----------------------------------------------------------------------------------------------
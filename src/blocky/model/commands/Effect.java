@@ -0,0 +1,37 @@
+package blocky.model.commands;
+
+/**
+ * Represents an effect that may arise when game pieces interact with one another, which an
+ * EffectQueue carries out on a model.
+ */
+public enum Effect {
+  /**
+   * Marks where a piece is in its sprite so it does not move too early.
+   */
+  MARK_POSITION,
+
+  /**
+   * Lets the model know that a piece has changed states, so that its sprite renders as another.
+   */
+  CHANGE_STATE,
+
+  /**
+   * Moves a piece in a direction.
+   */
+  MOVE,
+
+  /**
+   * Deletes a piece, leaving an empty space behind.
+   */
+  DELETE,
+
+  /**
+   * Tells the model that the game has been won.
+   */
+  WIN_GAME,
+
+  /**
+   * Tells the model that a fatal move has been made.
+   */
+  FATAL_MOVE
+}
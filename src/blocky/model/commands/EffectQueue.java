@@ -0,0 +1,264 @@
+package blocky.model.commands;
+
+import java.util.Arrays;
+
+import blocky.model.CommandBlockyModel;
+import blocky.model.gamepieces.Empty;
+import blocky.model.gamepieces.GamePiece;
+import blocky.util.Direction;
+
+/**
+ * A queue of the effects that arise when game pieces interact with one another. Pieces add effects
+ * to the queue, and the model carries them out in the order they were added by draining it. Moving
+ * a piece may add more effects while the queue is being drained (e.g. a chain of blocks being
+ * hit), which are carried out by the same drain, so chain reactions run as a loop rather than as
+ * recursive calls. Effects that must be carried out right away while the queue is being drained
+ * (e.g. a piece popping as it is entered mid-slide) are added after a mark and carried out with
+ * drainFrom(), which leaves the effects before the mark to the drain in progress. The queue is
+ * reused from move to move, so adding effects allocates nothing once it has grown large enough.
+ */
+public class EffectQueue {
+  private Effect[] effects; // INVARIANT: never null, effect of each entry
+  private GamePiece[] pieces; // INVARIANT: never null, piece each entry acts on, might be null
+  private GamePiece[] renderAs; // INVARIANT: never null, piece to render as for CHANGE_STATE
+  private Direction[] directions; // INVARIANT: never null, direction to move in for MOVE
+  private int head; // INVARIANT: never negative or > this.tail, index of next entry to carry out
+  private int tail; // INVARIANT: never negative, index after last entry added
+  private boolean draining; // whether or not drain() is in progress
+
+  /**
+   * Constructs a new, empty EffectQueue.
+   */
+  public EffectQueue() {
+    this.effects = new Effect[8];
+    this.pieces = new GamePiece[8];
+    this.renderAs = new GamePiece[8];
+    this.directions = new Direction[8];
+    this.head = 0;
+    this.tail = 0;
+    this.draining = false;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // ADDING EFFECTS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Adds an effect to mark where the given GamePiece is in its sprite so it does not move too
+   * early.
+   *
+   * @param gp GamePiece to mark position of
+   */
+  public void markPosition(GamePiece gp) {
+    this.add(Effect.MARK_POSITION, gp, null, null);
+  }
+
+  /**
+   * Adds an effect to let the model know that the given GamePiece is becoming another GamePiece.
+   *
+   * @param before GamePiece that is changing states
+   * @param after  GamePiece that before is becoming
+   */
+  public void changeState(GamePiece before, GamePiece after) {
+    this.add(Effect.CHANGE_STATE, before, after, null);
+  }
+
+  /**
+   * Adds an effect to move the given GamePiece in the given Direction from wherever it is when the
+   * effect is carried out.
+   *
+   * @param gp  GamePiece to move
+   * @param dir direction to move in
+   */
+  public void move(GamePiece gp, Direction dir) {
+    this.add(Effect.MOVE, gp, null, dir);
+  }
+
+  /**
+   * Adds an effect to delete the given GamePiece.
+   *
+   * @param gp GamePiece to delete
+   */
+  public void delete(GamePiece gp) {
+    this.add(Effect.DELETE, gp, null, null);
+  }
+
+  /**
+   * Adds an effect to tell the model to win the game.
+   */
+  public void winGame() {
+    this.add(Effect.WIN_GAME, null, null, null);
+  }
+
+  /**
+   * Adds an effect to tell the model that a fatal move has been made.
+   */
+  public void fatalMove() {
+    this.add(Effect.FATAL_MOVE, null, null, null);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // CARRYING OUT EFFECTS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Carries out every effect in this queue on the given model, in the order they were added,
+   * including any effects added while doing so, and returns whether any of them changed anything.
+   * The queue is empty afterwards. Must not be called while this queue is already being drained;
+   * use mark() and drainFrom() to carry out effects right away during a drain.
+   *
+   * @param model model to carry out effects on
+   * @return whether or not any effect changed anything
+   * @throws IllegalArgumentException if an effect cannot be carried out on its piece
+   * @throws IllegalStateException    if an effect cannot currently be carried out, or if this queue
+   *                                  is already being drained
+   */
+  public boolean drain(CommandBlockyModel model)
+          throws IllegalArgumentException, IllegalStateException {
+    if (this.draining) throw new IllegalStateException("Tried to drain queue while draining it.");
+
+    this.draining = true;
+    try {
+      boolean changed = false;
+      while (this.head < this.tail) changed |= this.carryOut(model, this.head++);
+      return changed;
+    } finally {
+      this.draining = false;
+      this.clear();
+    }
+  }
+
+  /**
+   * Returns a mark of the current end of this queue, so that the effects added after it can be
+   * carried out on their own with drainFrom().
+   *
+   * @return mark of end of queue
+   */
+  public int mark() {
+    return this.tail;
+  }
+
+  /**
+   * Carries out every effect added to this queue since the given mark was taken on the given model,
+   * in the order they were added, including any effects added while doing so, then removes them
+   * from the queue and returns whether any of them changed anything. Effects added before the mark
+   * are left as they are, so this may be called while the queue is being drained without
+   * disturbing the drain in progress.
+   *
+   * @param model model to carry out effects on
+   * @param mark  mark taken with mark() before the effects to carry out were added
+   * @return whether or not any effect changed anything
+   * @throws IllegalArgumentException if an effect cannot be carried out on its piece, or if given
+   *                                  mark is not within the effects yet to be carried out
+   * @throws IllegalStateException    if an effect cannot currently be carried out
+   */
+  public boolean drainFrom(CommandBlockyModel model, int mark)
+          throws IllegalArgumentException, IllegalStateException {
+    if (mark < this.head || mark > this.tail) {
+      throw new IllegalArgumentException("Mark must be within effects yet to be carried out.");
+    }
+
+    boolean changed = false;
+    for (int index = mark; index < this.tail; index++) changed |= this.carryOut(model, index);
+    this.tail = mark;
+    return changed;
+  }
+
+  /**
+   * Forgets every effect in this queue without carrying them out.
+   */
+  public void clear() {
+    Arrays.fill(this.pieces, 0, this.tail, null);
+    Arrays.fill(this.renderAs, 0, this.tail, null);
+    this.head = 0;
+    this.tail = 0;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Adds an entry with the given effect and arguments to the end of this queue, growing it if
+   * needed.
+   *
+   * @param effect   effect of entry
+   * @param gp       piece the effect acts on, or null if it acts on none
+   * @param renderAs piece to render as, or null if not changing states
+   * @param dir      direction to move in, or null if not moving
+   */
+  private void add(Effect effect, GamePiece gp, GamePiece renderAs, Direction dir) {
+    if (this.tail == this.effects.length) {
+      int length = this.tail * 2;
+      this.effects = Arrays.copyOf(this.effects, length);
+      this.pieces = Arrays.copyOf(this.pieces, length);
+      this.renderAs = Arrays.copyOf(this.renderAs, length);
+      this.directions = Arrays.copyOf(this.directions, length);
+    }
+
+    this.effects[this.tail] = effect;
+    this.pieces[this.tail] = gp;
+    this.renderAs[this.tail] = renderAs;
+    this.directions[this.tail] = dir;
+    this.tail++;
+  }
+
+  /**
+   * Carries out the entry at the given index on the given model, forgetting the pieces it holds,
+   * and returns whether it changed anything.
+   *
+   * @param model model to carry out entry on
+   * @param index index of entry
+   * @return whether or not the entry changed anything
+   * @throws IllegalArgumentException if the effect cannot be carried out on its piece
+   * @throws IllegalStateException    if the effect cannot currently be carried out
+   */
+  private boolean carryOut(CommandBlockyModel model, int index)
+          throws IllegalArgumentException, IllegalStateException {
+    GamePiece gp = this.pieces[index];
+    GamePiece after = this.renderAs[index];
+    this.pieces[index] = null;
+    this.renderAs[index] = null;
+    return this.carryOut(model, this.effects[index], gp, after, this.directions[index]);
+  }
+
+  /**
+   * Carries out the given effect on the given model, returns whether it changed anything.
+   *
+   * @param model  model to carry out effect on
+   * @param effect effect to carry out
+   * @param gp     piece the effect acts on, or null if it acts on none
+   * @param after  piece to render as, or null if not changing states
+   * @param dir    direction to move in, or null if not moving
+   * @return whether or not the effect changed anything
+   * @throws IllegalArgumentException if the effect cannot be carried out on its piece
+   * @throws IllegalStateException    if the effect cannot currently be carried out
+   */
+  private boolean carryOut(CommandBlockyModel model, Effect effect, GamePiece gp, GamePiece after,
+                           Direction dir) throws IllegalArgumentException, IllegalStateException {
+    switch (effect) {
+      case MARK_POSITION:
+        model.updateSpriteRender(gp, gp);
+        return true;
+      case CHANGE_STATE:
+        model.updateSpriteRender(gp, after);
+        return true;
+      case MOVE:
+        return model.movePieceAt(gp.packedPosition(), dir);
+      case DELETE:
+        model.updateSpriteRender(gp, new Empty(gp.getName(), gp.getPosition()));
+        boolean pieceChange = model.deletePieceAt(gp.packedPosition());
+        gp.willDelete(this);
+        return pieceChange;
+      case WIN_GAME:
+        model.winGame();
+        return true;
+      case FATAL_MOVE:
+        model.fatalMoveMade();
+        return true;
+      default:
+        // this will never actually be thrown
+        throw new IllegalArgumentException("Tried to carry out null effect.");
+    }
+  }
+}
@@ -1,8 +1,6 @@
 package blocky.model.gamepieces;
 
-import blocky.model.commands.ComboCommand;
-import blocky.model.commands.ModelCommand;
-import blocky.model.commands.MoveCommand;
+import blocky.model.commands.EffectQueue;
 import blocky.util.Direction;
 import blocky.util.Position;
 
@@ -27,14 +25,10 @@ public final class BlueBlock extends StationaryGamePiece {
   }
 
   @Override
-  public BlueBlock copy() {
-    return new BlueBlock(this.getName(), this.getPosition());
-  }
-
-  @Override
-  public ModelCommand hitBy(MovingGamePiece gp, Direction dir) {
+  public void hitBy(MovingGamePiece gp, Direction dir, EffectQueue effects) {
     // stop block, then reverse its direction
-    return new ComboCommand(super.hitBy(gp, dir), new MoveCommand(gp, dir.opposite()));
+    super.hitBy(gp, dir, effects);
+    effects.move(gp, dir.opposite());
   }
 
   @Override
@@ -42,6 +36,11 @@ public final class BlueBlock extends StationaryGamePiece {
     return "B";
   }
 
+  @Override
+  public int stateCode() {
+    return 13;
+  }
+
   @Override
   int hashCodeID() {
     return 9;
@@ -1,7 +1,6 @@
 package blocky.model.gamepieces;
 
-import blocky.model.commands.ChangedStatesCommand;
-import blocky.model.commands.ModelCommand;
+import blocky.model.commands.EffectQueue;
 import blocky.util.Direction;
 import blocky.util.Position;
 
@@ -44,11 +43,15 @@ public final class CrackedBlock extends OpenGamePiece {
   }
 
   @Override
-  public ModelCommand hitBy(MovingGamePiece gp, Direction dir) {
-    if (this.hasCracked) return super.hitBy(gp, dir);
+  public void hitBy(MovingGamePiece gp, Direction dir, EffectQueue effects) {
+    if (this.hasCracked) {
+      super.hitBy(gp, dir, effects);
+      return;
+    }
+
     this.hasCracked = true;
-    // fixme just use new DeleteCommand(this); ?
-    return new ChangedStatesCommand(this, new Empty(this.getName(), this.getPosition()));
+    // fixme just use effects.delete(this); ?
+    effects.changeState(this, new Empty(this.getName(), this.getPosition()));
   }
 
   @Override
@@ -65,6 +68,11 @@ public final class CrackedBlock extends OpenGamePiece {
     return "C" + (this.hasCracked ? "!" : "") + super.uniqueIdentifier();
   }
 
+  @Override
+  public int stateCode() {
+    return (this.hasCracked ? 8 : 7) + super.stateCode();
+  }
+
   @Override
   int hashCodeID() {
     return 6;
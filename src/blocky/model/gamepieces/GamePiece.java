@@ -1,7 +1,6 @@
 package blocky.model.gamepieces;
 
-import blocky.model.commands.DoNothingCommand;
-import blocky.model.commands.ModelCommand;
+import blocky.model.commands.EffectQueue;
 import blocky.util.Direction;
 import blocky.util.Position;
 
@@ -10,7 +9,7 @@ import blocky.util.Position;
  */
 public abstract class GamePiece {
   private final String name; // INVARIANT: never null or empty
-  private Position position; // INVARIANT: never null or negative
+  private int position; // INVARIANT: never negative, packed row and col (see Position.pack())
 
   /**
    * Constructs a new GamePiece with the given name and position.
@@ -32,7 +31,7 @@ public abstract class GamePiece {
   public boolean equals(Object other) {
     if (!(other instanceof GamePiece)) return false;
     GamePiece that = (GamePiece) other;
-    return this.name.equals(that.name) && this.position.equals(that.position);
+    return this.name.equals(that.name) && this.position == that.position;
   }
 
   @Override
@@ -41,7 +40,8 @@ public abstract class GamePiece {
     // all open pieces add an additional one char int times 1,000,000 for their piece inside
     // the hashCode of the position is only going to occupy the final 6 digits
     // the name of the game piece is not incorporated into the hashCode
-    return this.position.hashCode() + (this.hashCodeID() * 10000000);
+    int positionHash = Position.rowOf(this.position) * 1000 + Position.colOf(this.position);
+    return positionHash + (this.hashCodeID() * 10000000);
   }
 
   // -----------------------------------------------------------------------------------------------
@@ -63,7 +63,17 @@ public abstract class GamePiece {
    * @return copy of current position
    */
   public Position getPosition() {
-    return this.position.copy();
+    return Position.unpack(this.position);
+  }
+
+  /**
+   * Returns the current position of this GamePiece packed into an int (see Position.pack()), so
+   * that it can be read without allocating a Position.
+   *
+   * @return current position, packed
+   */
+  public int packedPosition() {
+    return this.position;
   }
 
   /**
@@ -77,29 +87,41 @@ public abstract class GamePiece {
       throw new IllegalArgumentException("Tried to set position of GamePiece to either null.");
     }
 
-    this.position = position.copy();
+    this.position = position.packed();
+  }
+
+  /**
+   * Sets position of this GamePiece to given packed position (see Position.pack()), if valid.
+   *
+   * @param position new position of this GamePiece, packed
+   * @throws IllegalArgumentException if given position is negative
+   */
+  public void setPackedPosition(int position) throws IllegalArgumentException {
+    if (position < 0) throw new IllegalArgumentException("Tried to set negative position.");
+    this.position = position;
   }
 
   /**
    * Inserts the given MovingGamePiece into this one, if possible.
    *
-   * @param gp MovingGamePiece entering this one
-   * @return command to be executed upon this piece being entered
+   * @param gp      MovingGamePiece entering this one
+   * @param effects queue to add effects of this piece being entered to
    * @throws IllegalStateException         if this piece has already been entered
    * @throws UnsupportedOperationException if this piece cannot be entered
    */
-  public ModelCommand beEnteredBy(MovingGamePiece gp)
+  public void beEnteredBy(MovingGamePiece gp, EffectQueue effects)
           throws IllegalStateException, UnsupportedOperationException {
-    return new DoNothingCommand();
+    // intentionally left blank, entering most pieces has no effect
   }
 
   /**
-   * Notifies this piece that it is going to be deleted, returns what model should do.
+   * Notifies this piece that it is going to be deleted, so that it can add what the model should
+   * do about it to the given queue.
    *
-   * @return ModelCommand to perform when this piece is deleted
+   * @param effects queue to add effects of this piece being deleted to
    */
-  public ModelCommand willDelete() {
-    return new DoNothingCommand();
+  public void willDelete(EffectQueue effects) {
+    // intentionally left blank, deleting most pieces has no effect
   }
 
   /**
@@ -119,6 +141,8 @@ public abstract class GamePiece {
   /**
    * Constructs and returns a copy of this GamePiece. This method exists so as to reduce mutation of
    * GamePieces, especially to reduce the effects of altering the game board when restarting.
+   * GamePieces that can never change (i.e. StationaryGamePieces) return themselves, so that they
+   * are shared rather than copied.
    *
    * @return copy of this GamePiece
    */
@@ -133,14 +157,14 @@ public abstract class GamePiece {
 
   /**
    * Notifies this GamePiece that it has been hit by the given MovingGamePiece from the given
-   * direction so that it can determine what the game's response should be via a ModelCommand.
+   * direction so that it can add what the game's response should be to the given queue.
    *
-   * @param gp  MovingGamePiece that has hit this one
-   * @param dir direction from which MovingGamePiece hit this one
-   * @return ModelCommand detailing what should be done for this collision
+   * @param gp      MovingGamePiece that has hit this one
+   * @param dir     direction from which MovingGamePiece hit this one
+   * @param effects queue to add effects of this collision to
    * @throws IllegalStateException if called on a piece that should be entered
    */
-  public abstract ModelCommand hitBy(MovingGamePiece gp, Direction dir)
+  public abstract void hitBy(MovingGamePiece gp, Direction dir, EffectQueue effects)
           throws IllegalStateException;
 
   /**
@@ -180,6 +204,14 @@ public abstract class GamePiece {
    */
   public abstract String uniqueIdentifier();
 
+  /**
+   * Returns a small integer (0-15) that identifies the type and current state of this GamePiece,
+   * including the piece inside of it if there is one. Used for compact encodings of the board.
+   *
+   * @return integer identifying the type and state of this GamePiece
+   */
+  public abstract int stateCode();
+
   // -----------------------------------------------------------------------------------------------
   // PRIVATE ABSTRACT METHODS
   // -----------------------------------------------------------------------------------------------
@@ -1,9 +1,6 @@
 package blocky.model.gamepieces;
 
-import blocky.model.commands.ComboCommand;
-import blocky.model.commands.MarkPositionCommand;
-import blocky.model.commands.ModelCommand;
-import blocky.model.commands.MoveCommand;
+import blocky.model.commands.EffectQueue;
 import blocky.util.Direction;
 import blocky.util.Position;
 
@@ -23,8 +20,9 @@ public abstract class MovingGamePiece extends SolidGamePiece {
   }
 
   @Override
-  public ModelCommand hitBy(MovingGamePiece gp, Direction dir) {
-    return new ComboCommand(new MarkPositionCommand(this), new MoveCommand(this, dir));
+  public void hitBy(MovingGamePiece gp, Direction dir, EffectQueue effects) {
+    effects.markPosition(this);
+    effects.move(this, dir);
   }
 
   @Override
@@ -37,16 +35,11 @@ public abstract class MovingGamePiece extends SolidGamePiece {
     return new Empty(this.getName(), this.getPosition());
   }
 
-  @Override
-  public ModelCommand willDelete() {
-    return super.willDelete();
-  }
-
   /**
-   * Notifies this block that it has hit a winning piece so that it can determine and return what
-   * the game should do about it.
+   * Notifies this block that it has hit a winning piece so that it can add what the game should do
+   * about it to the given queue.
    *
-   * @return command representing what to do
+   * @param effects queue to add effects of hitting a winning piece to
    */
-  public abstract ModelCommand hitWinningPiece();
+  public abstract void hitWinningPiece(EffectQueue effects);
 }
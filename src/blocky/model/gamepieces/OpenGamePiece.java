@@ -1,6 +1,6 @@
 package blocky.model.gamepieces;
 
-import blocky.model.commands.ModelCommand;
+import blocky.model.commands.EffectQueue;
 import blocky.util.Direction;
 import blocky.util.Position;
 
@@ -47,17 +47,21 @@ abstract class OpenGamePiece extends GamePiece {
   }
 
   @Override
-  public ModelCommand beEnteredBy(MovingGamePiece gp) throws IllegalStateException {
+  public void beEnteredBy(MovingGamePiece gp, EffectQueue effects) throws IllegalStateException {
     if (!this.canBeEntered()) throw new IllegalStateException("Tried to enter occupied piece.");
-    gp.setPosition(this.getPosition());
+    gp.setPackedPosition(this.packedPosition());
     this.pieceInside = gp;
-    return super.beEnteredBy(gp);
+    super.beEnteredBy(gp, effects);
   }
 
   @Override
-  public ModelCommand hitBy(MovingGamePiece gp, Direction dir) throws IllegalStateException {
-    if (this.pieceInside != null) return this.pieceInside.hitBy(gp, dir);
-    throw new IllegalStateException("Tried to hit a block that should have been entered.");
+  public void hitBy(MovingGamePiece gp, Direction dir, EffectQueue effects)
+          throws IllegalStateException {
+    if (this.pieceInside == null) {
+      throw new IllegalStateException("Tried to hit a block that should have been entered.");
+    }
+
+    this.pieceInside.hitBy(gp, dir, effects);
   }
 
   @Override
@@ -83,6 +87,12 @@ abstract class OpenGamePiece extends GamePiece {
     return (this.pieceInside == null ? "" : "+" + this.pieceInside.uniqueIdentifier());
   }
 
+  @Override
+  public int stateCode() {
+    // pieces inside are either a PlayerBlock (1) or a YellowBlock (2)
+    return (this.pieceInside == null ? 0 : this.pieceInside.stateCode());
+  }
+
   @Override
   public boolean deletePieceInside() {
     if (this.pieceInside == null) return false;
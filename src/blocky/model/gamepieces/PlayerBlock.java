@@ -1,8 +1,6 @@
 package blocky.model.gamepieces;
 
-import blocky.model.commands.ModelCommand;
-import blocky.model.commands.FatalMoveCommand;
-import blocky.model.commands.WinGameCommand;
+import blocky.model.commands.EffectQueue;
 import blocky.util.Position;
 
 /**
@@ -31,14 +29,14 @@ public final class PlayerBlock extends MovingGamePiece {
   }
 
   @Override
-  public ModelCommand willDelete() {
-    super.willDelete();
-    return new FatalMoveCommand();
+  public void willDelete(EffectQueue effects) {
+    super.willDelete(effects);
+    effects.fatalMove();
   }
 
   @Override
-  public ModelCommand hitWinningPiece() {
-    return new WinGameCommand();
+  public void hitWinningPiece(EffectQueue effects) {
+    effects.winGame();
   }
 
   @Override
@@ -46,6 +44,11 @@ public final class PlayerBlock extends MovingGamePiece {
     return "P";
   }
 
+  @Override
+  public int stateCode() {
+    return 1;
+  }
+
   @Override
   int hashCodeID() {
     return 3;
@@ -1,7 +1,6 @@
 package blocky.model.gamepieces;
 
-import blocky.model.commands.ChangedStatesCommand;
-import blocky.model.commands.ModelCommand;
+import blocky.model.commands.EffectQueue;
 import blocky.util.Direction;
 import blocky.util.Position;
 
@@ -46,19 +45,18 @@ public final class PopBlock extends OpenGamePiece {
   }
 
   @Override
-  public ModelCommand beEnteredBy(MovingGamePiece gp) throws IllegalStateException {
-    super.beEnteredBy(gp);
+  public void beEnteredBy(MovingGamePiece gp, EffectQueue effects) throws IllegalStateException {
+    super.beEnteredBy(gp, effects);
     this.hasPopped = true;
-    return new ChangedStatesCommand(this, this.asSolidBlock());
+    effects.changeState(this, this.asSolidBlock());
   }
 
   @Override
-  public ModelCommand hitBy(MovingGamePiece gp, Direction dir) throws IllegalStateException {
-    try {
-      return super.hitBy(gp, dir);
-    } catch (IllegalStateException e) {
-      return this.asSolidBlock().hitBy(gp, dir);
-    }
+  public void hitBy(MovingGamePiece gp, Direction dir, EffectQueue effects)
+          throws IllegalStateException {
+    // once popped, this is hit like a SolidBlock unless something is inside, and SolidBlocks do
+    // nothing when hit
+    if (this.pieceInside != null) super.hitBy(gp, dir, effects);
   }
 
   @Override
@@ -71,6 +69,11 @@ public final class PopBlock extends OpenGamePiece {
     return "O" + (this.hasPopped ? "!" : "") + super.uniqueIdentifier();
   }
 
+  @Override
+  public int stateCode() {
+    return (this.hasPopped ? 4 : 3) + super.stateCode();
+  }
+
   @Override
   int hashCodeID() {
     return 5;
@@ -1,8 +1,6 @@
 package blocky.model.gamepieces;
 
-import blocky.model.commands.ComboCommand;
-import blocky.model.commands.ModelCommand;
-import blocky.model.commands.DeleteCommand;
+import blocky.model.commands.EffectQueue;
 import blocky.util.Direction;
 import blocky.util.Position;
 
@@ -27,18 +25,19 @@ public final class RedBlock extends StationaryGamePiece {
   }
 
   @Override
-  public RedBlock copy() {
-    return new RedBlock(this.getName(), this.getPosition());
+  public void hitBy(MovingGamePiece gp, Direction dir, EffectQueue effects) {
+    super.hitBy(gp, dir, effects);
+    effects.delete(gp);
   }
 
   @Override
-  public ModelCommand hitBy(MovingGamePiece gp, Direction dir) {
-    return new ComboCommand(super.hitBy(gp, dir), new DeleteCommand(gp));
+  public String uniqueIdentifier() {
+    return "R";
   }
 
   @Override
-  public String uniqueIdentifier() {
-    return "R";
+  public int stateCode() {
+    return 12;
   }
 
   @Override
@@ -23,13 +23,13 @@ public final class SolidBlock extends StationaryGamePiece {
   }
 
   @Override
-  public SolidBlock copy() {
-    return new SolidBlock(this.getName(), this.getPosition());
+  public String uniqueIdentifier() {
+    return "S";
   }
 
   @Override
-  public String uniqueIdentifier() {
-    return "S";
+  public int stateCode() {
+    return 11;
   }
 
   @Override
@@ -1,7 +1,6 @@
 package blocky.model.gamepieces;
 
-import blocky.model.commands.DoNothingCommand;
-import blocky.model.commands.ModelCommand;
+import blocky.model.commands.EffectQueue;
 import blocky.util.Direction;
 import blocky.util.Position;
 
@@ -26,13 +25,14 @@ abstract class SolidGamePiece extends GamePiece {
   }
 
   @Override
-  public ModelCommand beEnteredBy(MovingGamePiece gp) throws UnsupportedOperationException {
+  public void beEnteredBy(MovingGamePiece gp, EffectQueue effects)
+          throws UnsupportedOperationException {
     throw new UnsupportedOperationException("Tried to enter a solid game piece.");
   }
 
   @Override
-  public ModelCommand hitBy(MovingGamePiece gp, Direction dir) {
-    return new DoNothingCommand();
+  public void hitBy(MovingGamePiece gp, Direction dir, EffectQueue effects) {
+    // intentionally left blank, being hit stops the moving piece and does nothing else
   }
 
   @Override
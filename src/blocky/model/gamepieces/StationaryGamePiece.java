@@ -17,6 +17,12 @@ abstract class StationaryGamePiece extends SolidGamePiece {
     super(name, position);
   }
 
+  @Override
+  public GamePiece copy() {
+    // stationary pieces never change, so the same piece can be shared by every board
+    return this;
+  }
+
   @Override
   public MovingGamePiece extractMovingPiece() throws UnsupportedOperationException {
     throw new UnsupportedOperationException("Tried to perform an extraction operation on a " +
@@ -23,13 +23,13 @@ public final class Wall extends StationaryGamePiece {
   }
 
   @Override
-  public Wall copy() {
-    return new Wall(this.getName(), this.getPosition());
+  public String uniqueIdentifier() {
+    return "X";
   }
 
   @Override
-  public String uniqueIdentifier() {
-    return "X";
+  public int stateCode() {
+    return 15;
   }
 
   @Override
@@ -1,6 +1,6 @@
 package blocky.model.gamepieces;
 
-import blocky.model.commands.ModelCommand;
+import blocky.model.commands.EffectQueue;
 import blocky.util.Direction;
 import blocky.util.Position;
 
@@ -25,18 +25,18 @@ public final class WinningPiece extends StationaryGamePiece {
   }
 
   @Override
-  public WinningPiece copy() {
-    return new WinningPiece(this.getName(), this.getPosition());
+  public void hitBy(MovingGamePiece gp, Direction dir, EffectQueue effects) {
+    gp.hitWinningPiece(effects);
   }
 
   @Override
-  public ModelCommand hitBy(MovingGamePiece gp, Direction dir) {
-    return gp.hitWinningPiece();
+  public String uniqueIdentifier() {
+    return "W";
   }
 
   @Override
-  public String uniqueIdentifier() {
-    return "W";
+  public int stateCode() {
+    return 14;
   }
 
   @Override
@@ -1,7 +1,6 @@
 package blocky.model.gamepieces;
 
-import blocky.model.commands.ModelCommand;
-import blocky.model.commands.DeleteCommand;
+import blocky.model.commands.EffectQueue;
 import blocky.util.Position;
 
 /**
@@ -30,8 +29,8 @@ public final class YellowBlock extends MovingGamePiece {
   }
 
   @Override
-  public ModelCommand hitWinningPiece() {
-    return new DeleteCommand(this);
+  public void hitWinningPiece(EffectQueue effects) {
+    effects.delete(this);
   }
 
   @Override
@@ -39,6 +38,11 @@ public final class YellowBlock extends MovingGamePiece {
     return "Y";
   }
 
+  @Override
+  public int stateCode() {
+    return 2;
+  }
+
   @Override
   int hashCodeID() {
     return 8;
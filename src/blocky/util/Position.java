@@ -4,9 +4,14 @@ import java.util.List;
 
 /**
  * Represents a position in a 2D array. Exists with get() and set() methods so as to reduce
- * confusion about row/col placement and therefore (hopefully) reduce bugs.
+ * confusion about row/col placement and therefore (hopefully) reduce bugs. Where allocating a
+ * Position for every step would be wasteful (e.g. while moving pieces), a position can instead be
+ * packed into a single int with pack().
  */
 public class Position {
+  private static final int COL_BITS = 16; // packed positions hold the col in the low 16 bits
+  private static final int COL_MASK = (1 << COL_BITS) - 1;
+
   public int row, col;
 
   /**
@@ -48,6 +53,63 @@ public class Position {
     return "(row: " + this.row + ", col: " + this.col + ")";
   }
 
+  /**
+   * Returns this position packed into a single int (see pack()).
+   *
+   * @return this position as a packed int
+   * @throws IllegalArgumentException if row or col is negative or too large to pack
+   */
+  public int packed() throws IllegalArgumentException {
+    return pack(this.row, this.col);
+  }
+
+  /**
+   * Packs the given row and col into a single int, with the row in the high bits and the col in
+   * the low bits, so that positions can be passed around and compared without allocating.
+   *
+   * @param row row coordinate of position, from 0 to 32767
+   * @param col col coordinate of position, from 0 to 65535
+   * @return position packed into an int
+   * @throws IllegalArgumentException if row or col is negative or too large to pack
+   */
+  public static int pack(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row > (Integer.MAX_VALUE >> COL_BITS) || col < 0 || col > COL_MASK) {
+      throw new IllegalArgumentException("Position (" + row + ", " + col + ") cannot be packed.");
+    }
+
+    return (row << COL_BITS) | col;
+  }
+
+  /**
+   * Returns the row of the given packed position (see pack()).
+   *
+   * @param packed packed position
+   * @return row coordinate of position
+   */
+  public static int rowOf(int packed) {
+    return packed >>> COL_BITS;
+  }
+
+  /**
+   * Returns the col of the given packed position (see pack()).
+   *
+   * @param packed packed position
+   * @return col coordinate of position
+   */
+  public static int colOf(int packed) {
+    return packed & COL_MASK;
+  }
+
+  /**
+   * Constructs a new Position object from the given packed position (see pack()).
+   *
+   * @param packed packed position
+   * @return new Position object with row and col of packed position
+   */
+  public static Position unpack(int packed) {
+    return new Position(rowOf(packed), colOf(packed));
+  }
+
   /**
    * Indexes given list using this position, returns result.
    *
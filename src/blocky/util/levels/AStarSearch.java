@@ -0,0 +1,191 @@
+package blocky.util.levels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import blocky.util.Direction;
+
+/**
+ * An A* search over the configurations of a BitBoard, guided by BitBoard.lowerBound(). Since every
+ * move costs one, open configurations are kept in a bucket queue indexed by their estimated total
+ * number of moves, and each bucket is used as a stack so that deeper configurations are expanded
+ * first among equals. The lower bound is consistent, so a configuration never needs to be expanded
+ * again after it is first expanded, and the search can stop as soon as no open configuration could
+ * lead to a shorter solution than the best one found.
+ */
+class AStarSearch {
+  private static final Direction[] DIRECTIONS = Direction.allDirections();
+
+  private final BitBoard board; // INVARIANT: never null
+  private final StateTable states; // INVARIANT: never null, ids of every configuration found
+  private int[] depths; // INVARIANT: never null, fewest moves found to each configuration
+  private int[] parents; // INVARIANT: never null, configuration each one was best reached from
+  private byte[] moves; // INVARIANT: never null, index in DIRECTIONS of move from parent
+  private boolean[] expanded; // INVARIANT: never null, whether each configuration was expanded
+  private int[][] buckets; // INVARIANT: never null, open ids by estimated total moves
+  private int[] bucketSizes; // INVARIANT: never null, number of ids in each bucket
+  private int expandedCount; // INVARIANT: never negative
+
+  /**
+   * Constructs a new AStarSearch over the given board.
+   *
+   * @param board board to search
+   * @throws IllegalArgumentException if given board is null
+   */
+  AStarSearch(BitBoard board) throws IllegalArgumentException {
+    if (board == null) throw new IllegalArgumentException("Board must be non-null.");
+
+    this.board = board;
+    this.states = new StateTable(board.stateLength());
+    this.depths = new int[1024];
+    this.parents = new int[1024];
+    this.moves = new byte[1024];
+    this.expanded = new boolean[1024];
+    this.buckets = new int[16][];
+    this.bucketSizes = new int[16];
+    this.expandedCount = 0;
+  }
+
+  /**
+   * Finds and returns an optimal solution to the level on the board of this search.
+   *
+   * @return list of moves to optimally solve level
+   * @throws IllegalStateException if level does not have a solution, or if a piece would be moved
+   *                               off the board
+   */
+  List<Direction> solve() throws IllegalStateException {
+    long[] current = this.board.initialState();
+    long[] next = new long[current.length];
+
+    int bound = this.board.lowerBound(current);
+    if (bound == BitBoard.UNREACHABLE) {
+      throw new IllegalStateException("No solution exists for this level.");
+    }
+
+    this.states.add(current);
+    this.parents[0] = -1;
+    this.push(0, bound);
+
+    int bestWin = Integer.MAX_VALUE; // moves in best solution found so far
+    int bestParent = -1; // configuration that best solution wins from
+    int bestMove = -1; // index in DIRECTIONS of winning move of best solution
+
+    for (int estimate = bound; estimate < Math.min(bestWin, this.buckets.length); estimate++) {
+      while (this.bucketSizes[estimate] > 0) {
+        int id = this.buckets[estimate][--this.bucketSizes[estimate]];
+        if (this.expanded[id]) continue;
+        this.expanded[id] = true;
+        this.expandedCount++;
+
+        this.states.copyKey(id, current);
+        int depth = this.depths[id];
+
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+          int outcome = this.board.move(current, DIRECTIONS[d], next);
+
+          if (outcome == BitBoard.WINNING_MOVE) {
+            if (depth + 1 < bestWin) {
+              bestWin = depth + 1;
+              bestParent = id;
+              bestMove = d;
+            }
+          } else if (outcome == BitBoard.MOVED) {
+            this.reach(next, id, d, depth + 1);
+          }
+        }
+      }
+    }
+
+    if (bestParent < 0) throw new IllegalStateException("No solution exists for this level.");
+
+    List<Direction> solution = new ArrayList<>();
+    solution.add(DIRECTIONS[bestMove]);
+    for (int id = bestParent; this.parents[id] != -1; id = this.parents[id]) {
+      solution.add(DIRECTIONS[this.moves[id]]);
+    }
+
+    Collections.reverse(solution);
+    return solution;
+  }
+
+  /**
+   * Returns the number of configurations expanded by this search so far.
+   *
+   * @return number of configurations expanded
+   */
+  int expanded() {
+    return this.expandedCount;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Records that the given configuration can be reached with the given number of moves, opening it
+   * if it has not been found before or if this is fewer moves than it was found with before.
+   *
+   * @param state  packed state of configuration
+   * @param parent id of configuration it was reached from
+   * @param move   index in DIRECTIONS of move from parent
+   * @param depth  number of moves it was reached with
+   */
+  private void reach(long[] state, int parent, int move, int depth) {
+    int bound = this.board.lowerBound(state);
+    if (bound == BitBoard.UNREACHABLE) return; // can never lead to a solution
+
+    int newID = this.states.size();
+    int id = this.states.add(state);
+    if (id == newID) {
+      this.ensureCapacity();
+    } else if (this.depths[id] <= depth) {
+      return;
+    }
+
+    this.depths[id] = depth;
+    this.parents[id] = parent;
+    this.moves[id] = (byte) move;
+    this.expanded[id] = false;
+    this.push(id, depth + bound);
+  }
+
+  /**
+   * Adds the given configuration to the bucket of the given estimate.
+   *
+   * @param id       id of configuration
+   * @param estimate estimated total number of moves of solutions through configuration
+   */
+  private void push(int id, int estimate) {
+    if (estimate >= this.buckets.length) {
+      int length = Math.max(estimate + 1, this.buckets.length * 2);
+      this.buckets = Arrays.copyOf(this.buckets, length);
+      this.bucketSizes = Arrays.copyOf(this.bucketSizes, length);
+    }
+
+    int[] bucket = this.buckets[estimate];
+    if (bucket == null) {
+      bucket = new int[64];
+    } else if (this.bucketSizes[estimate] == bucket.length) {
+      bucket = Arrays.copyOf(bucket, bucket.length * 2);
+    }
+
+    bucket[this.bucketSizes[estimate]++] = id;
+    this.buckets[estimate] = bucket;
+  }
+
+  /**
+   * Makes sure the per-configuration arrays have room for every configuration in this.states.
+   */
+  private void ensureCapacity() {
+    int needed = this.states.size();
+    if (needed > this.depths.length) {
+      int length = this.depths.length * 2;
+      this.depths = Arrays.copyOf(this.depths, length);
+      this.parents = Arrays.copyOf(this.parents, length);
+      this.moves = Arrays.copyOf(this.moves, length);
+      this.expanded = Arrays.copyOf(this.expanded, length);
+    }
+  }
+}
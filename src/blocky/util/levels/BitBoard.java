@@ -0,0 +1,659 @@
+package blocky.util.levels;
+
+import java.util.Arrays;
+
+import blocky.model.gamepieces.GamePiece;
+import blocky.util.Direction;
+
+/**
+ * A compact simulation of the board of a level, used to search through moves far more quickly than
+ * a BlockyModel can. Cells are numbered row by row across the whole rectangle containing the board
+ * (walls included, so that irregular levels need no special handling), and every kind of piece is
+ * stored as a mask with one bit per cell. Masks that never change are kept in this object, while
+ * masks that can change (the player, yellow blocks, popped PopBlocks and cracked CrackedBlocks)
+ * make up a state: a long[] of stateLength() longs that is also used as the key of the
+ * configuration.
+ * Boards of up to 64 cells fit into one long per mask; larger boards use several.
+ *
+ * <p>A move slides a piece until it reaches a cell that cannot be entered, which is found with a
+ * single scan of a precomputed ray against the cells that are currently blocked. Interactions with
+ * the blocked cell follow the rules of the GamePieces exactly, and may cause more slides (hitting a
+ * BlueBlock or another moving piece), so a move is resolved as a loop of slides.
+ */
+class BitBoard {
+  // outcomes of a move
+  static final int NO_MOVE = 0; // nothing happened
+  static final int MOVED = 1; // the board changed, or some piece was hit
+  static final int WINNING_MOVE = 2; // the player hit a WinningPiece
+  static final int FATAL_MOVE = 3; // the player hit a RedBlock
+  static final int INFINITE_MOVE = 4; // a piece would bounce between BlueBlocks forever (fatal)
+
+  // lower bound of states from which the level can never be beaten
+  static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  // offsets (in multiples of this.words) of the masks that make up a state
+  private static final int PLAYER = 0;
+  private static final int YELLOW = 1;
+  private static final int POPPED = 2;
+  private static final int CRACKED = 3;
+  private static final int STATE_MASKS = 4;
+
+  private static final Direction[] DIRECTIONS = Direction.values(); // indexed by ordinal
+
+  private static final int OFF_BOARD = -1; // code of cells in the rectangle not on the board
+
+  private final int width; // INVARIANT: always > 0, number of columns in rectangle
+  private final int cells; // INVARIANT: always > 0, number of cells in rectangle
+  private final int words; // INVARIANT: always > 0, number of longs per mask
+
+  // masks of cells that never change
+  private final long[] blocked; // cells off the board or occupied by any StationaryGamePiece
+  private final long[] offBoard; // cells in the rectangle that are not on the board
+  private final long[] stops; // Walls and SolidBlocks
+  private final long[] wins; // WinningPieces
+  private final long[] reds; // RedBlocks
+  private final long[] blues; // BlueBlocks
+  private final long[] pops; // PopBlocks, popped or not
+  private final long[] cracks; // CrackedBlocks, cracked or not
+
+  private final long[][] rays; // cells passed when sliding from each cell, per direction ordinal
+  private final int[] steps; // change in cell when moving in each direction, per direction ordinal
+  private final long[] initialState; // state of the board in the level
+  private final int[] winDistances; // lower bound of moves needed to win from each cell
+
+  /**
+   * Constructs a new BitBoard holding the initial layout of the given level.
+   *
+   * @param level level to simulate
+   * @throws IllegalArgumentException if given level is null
+   */
+  BitBoard(Level level) throws IllegalArgumentException {
+    this(widthOf(level), codesOf(level)); // will throw IAE if level is null
+  }
+
+  /**
+   * Constructs a new BitBoard holding the given layout, where each char is a game piece as written
+   * in level files. Lets a layout be simulated without creating any GamePieces or a Level.
+   *
+   * @param width  number of columns in layout
+   * @param layout chars of every cell in layout, row by row
+   * @throws IllegalArgumentException if layout is null, if width < 1 or does not divide the length
+   *                                  of layout, or if any char is not a game piece
+   */
+  BitBoard(int width, char[] layout) throws IllegalArgumentException {
+    this(width, codesOf(layout));
+  }
+
+  /**
+   * Constructs a new BitBoard holding the pieces with the given state codes (see
+   * GamePiece.stateCode()), where OFF_BOARD marks cells that are not on the board.
+   *
+   * @param width number of columns in rectangle
+   * @param codes state codes of every cell in rectangle, row by row
+   * @throws IllegalArgumentException if width < 1 or does not divide the number of codes, or if
+   *                                  any state code is not recognized
+   */
+  private BitBoard(int width, int[] codes) throws IllegalArgumentException {
+    if (width < 1 || codes.length == 0 || codes.length % width != 0) {
+      throw new IllegalArgumentException("Layout must be a non-empty rectangle.");
+    }
+
+    this.width = width;
+    this.cells = codes.length;
+    this.words = (this.cells + 63) >>> 6;
+    int height = this.cells / width;
+
+    this.blocked = new long[this.words];
+    this.offBoard = new long[this.words];
+    this.stops = new long[this.words];
+    this.wins = new long[this.words];
+    this.reds = new long[this.words];
+    this.blues = new long[this.words];
+    this.pops = new long[this.words];
+    this.cracks = new long[this.words];
+    this.initialState = new long[this.stateLength()];
+
+    for (int cell = 0; cell < this.cells; cell++) {
+      if (codes[cell] == OFF_BOARD) {
+        set(this.offBoard, 0, cell);
+      } else {
+        this.addPiece(cell, codes[cell]);
+      }
+    }
+
+    for (int w = 0; w < this.words; w++) {
+      this.blocked[w] = this.offBoard[w] | this.stops[w] | this.wins[w] | this.reds[w]
+              | this.blues[w];
+    }
+
+    this.rays = new long[DIRECTIONS.length][];
+    this.steps = new int[DIRECTIONS.length];
+    for (Direction dir : DIRECTIONS) {
+      this.rays[dir.ordinal()] = this.buildRays(dir, height);
+      this.steps[dir.ordinal()] = dir.rowChange() * width + dir.colChange();
+    }
+
+    this.winDistances = this.buildWinDistances(height);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PACKAGE PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the number of longs in every state of this board.
+   *
+   * @return length of states of this board
+   */
+  int stateLength() {
+    return STATE_MASKS * this.words;
+  }
+
+  /**
+   * Returns a copy of the state of this board at the start of the level.
+   *
+   * @return initial state of board
+   */
+  long[] initialState() {
+    return this.initialState.clone();
+  }
+
+  /**
+   * Returns a copy of the state of this board at the start of the level, with the player moved to
+   * the given cell. Used to try many starting positions for the player on the same board.
+   *
+   * @param cell cell to start player in, numbered row by row from the top left of the rectangle
+   * @return initial state of board with player in cell
+   * @throws IllegalArgumentException if cell is not an empty cell on the board
+   */
+  long[] initialStateWithPlayerAt(int cell) throws IllegalArgumentException {
+    boolean empty = cell >= 0 && cell < this.cells && !test(this.blocked, 0, cell)
+            && !test(this.pops, 0, cell) && !test(this.cracks, 0, cell)
+            && !test(this.initialState, YELLOW * this.words, cell);
+    if (!empty) throw new IllegalArgumentException("Cell " + cell + " is not empty.");
+
+    long[] state = this.initialState.clone();
+    Arrays.fill(state, PLAYER * this.words, (PLAYER + 1) * this.words, 0L);
+    set(state, PLAYER * this.words, cell);
+    return state;
+  }
+
+  /**
+   * Returns a lower bound of the number of moves needed to beat the level from the given state. The
+   * bound never overestimates, and it differs by at most one between states that are one move
+   * apart, so it can be used to guide searches that must find optimal solutions.
+   *
+   * @param state state of board
+   * @return lower bound of moves needed to win, or UNREACHABLE if the level cannot be beaten
+   */
+  int lowerBound(long[] state) {
+    int cell = this.firstSetCell(state, PLAYER);
+    return cell < 0 ? UNREACHABLE : this.winDistances[cell];
+  }
+
+  /**
+   * Moves the player in the given direction starting from the given state, storing the state after
+   * the move in result and returning the outcome of the move. The given state is not changed. Does
+   * not allocate anything unless a piece bounces off of a BlueBlock.
+   *
+   * @param state  state to move from
+   * @param dir    direction to move player in
+   * @param result array of at least stateLength() longs to store state after move in
+   * @return outcome of the move (one of NO_MOVE, MOVED, WINNING_MOVE, FATAL_MOVE, INFINITE_MOVE)
+   * @throws IllegalStateException if the move would send a piece off the board
+   */
+  int move(long[] state, Direction dir, long[] result) throws IllegalStateException {
+    System.arraycopy(state, 0, result, 0, this.stateLength());
+
+    int cell = this.firstSetCell(result, PLAYER);
+    if (cell < 0) return NO_MOVE;
+
+    int moverMask = PLAYER;
+    int dirIndex = dir.ordinal();
+    boolean changed = false;
+
+    // moving blocks are only caught between BlueBlocks if the same moving block bounces in the same
+    // direction from the same cell with every other moving block where it was before, and nothing
+    // else has changed in between; these record every bounce since the last such change
+    int[] bounces = null;
+    long[] bouncePositions = null;
+    int bounceCount = 0;
+
+    while (true) {
+      int hit = this.firstBlockedCell(result, cell, dirIndex);
+      if (hit < 0 || test(this.offBoard, 0, hit)) {
+        throw new IllegalStateException("Tried to move player off board.");
+      }
+
+      // sliding up to the blocked cell, popping every PopBlock passed over or stopped on
+      int dest = hit - this.steps[dirIndex];
+      if (dest != cell) {
+        if (this.popPath(result, cell, dest, dirIndex)) bounceCount = 0;
+        clear(result, moverMask * this.words, cell);
+        set(result, moverMask * this.words, dest);
+        cell = dest;
+        changed = true;
+      }
+
+      // hitting the blocked cell
+      if (test(result, PLAYER * this.words, hit) || test(result, YELLOW * this.words, hit)) {
+        // the piece that was hit moves on in the same direction
+        moverMask = test(result, PLAYER * this.words, hit) ? PLAYER : YELLOW;
+        cell = hit;
+        changed = true;
+      } else if (test(this.blues, 0, hit)) {
+        // the moving piece reverses direction
+        dirIndex = DIRECTIONS[dirIndex].opposite().ordinal();
+        if (bounces == null) {
+          bounces = new int[16];
+          bouncePositions = new long[16 * 2 * this.words];
+        }
+
+        if (this.hasBounced(bounces, bouncePositions, bounceCount, result, cell, dirIndex)) {
+          return INFINITE_MOVE;
+        }
+
+        if (bounceCount == bounces.length) {
+          bounces = Arrays.copyOf(bounces, bounceCount * 2);
+          bouncePositions = Arrays.copyOf(bouncePositions, bouncePositions.length * 2);
+        }
+
+        bounces[bounceCount] = cell * STATE_MASKS + dirIndex;
+        System.arraycopy(result, 0, bouncePositions, bounceCount * 2 * this.words, 2 * this.words);
+        bounceCount++;
+      } else if (test(this.wins, 0, hit)) {
+        if (moverMask == PLAYER) return WINNING_MOVE;
+        clear(result, YELLOW * this.words, cell); // yellow blocks are deleted by WinningPieces
+        return MOVED;
+      } else if (test(this.reds, 0, hit)) {
+        if (moverMask == PLAYER) return FATAL_MOVE;
+        clear(result, YELLOW * this.words, cell);
+        return MOVED;
+      } else if (test(this.cracks, 0, hit) && !test(result, CRACKED * this.words, hit)) {
+        set(result, CRACKED * this.words, hit);
+        return MOVED;
+      } else {
+        // Walls, SolidBlocks, and popped PopBlocks simply stop the moving piece
+        return changed ? MOVED : NO_MOVE;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of columns in the rectangle containing the board of the given level.
+   *
+   * @param level level to measure
+   * @return length of longest row of level
+   * @throws IllegalArgumentException if given level is null
+   */
+  static int widthOf(Level level) throws IllegalArgumentException {
+    if (level == null) throw new IllegalArgumentException("Tried to simulate null level.");
+    return level.getWidth();
+  }
+
+  /**
+   * Returns the state codes of every cell in the rectangle containing the board of the given
+   * level, row by row, with OFF_BOARD for cells past the end of shorter rows.
+   *
+   * @param level level to read
+   * @return state codes of every cell
+   */
+  static int[] codesOf(Level level) {
+    GamePiece[] cells = level.getCells();
+    int[] codes = new int[cells.length];
+    for (int cell = 0; cell < cells.length; cell++) {
+      codes[cell] = cells[cell] == null ? OFF_BOARD : cells[cell].stateCode();
+    }
+
+    return codes;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Adds the piece with the given state code (see GamePiece.stateCode()) to the masks of this board
+   * and its initial state.
+   *
+   * @param cell cell that piece is in
+   * @param code state code of piece
+   * @throws IllegalArgumentException if state code is not recognized
+   */
+  private void addPiece(int cell, int code) throws IllegalArgumentException {
+    if (code <= 2) { // Empty (0), with a PlayerBlock (1) or YellowBlock (2) inside
+      this.addPieceInside(cell, code);
+    } else if (code <= 6) { // PopBlock (3), popped (4), with a piece inside (5, 6)
+      set(this.pops, 0, cell);
+      if (code >= 4) set(this.initialState, POPPED * this.words, cell);
+      if (code >= 5) this.addPieceInside(cell, code - 4);
+    } else if (code <= 10) { // CrackedBlock (7), cracked (8), with a piece inside (9, 10)
+      set(this.cracks, 0, cell);
+      if (code >= 8) set(this.initialState, CRACKED * this.words, cell);
+      if (code >= 9) this.addPieceInside(cell, code - 8);
+    } else if (code == 11 || code == 15) { // SolidBlock, Wall
+      set(this.stops, 0, cell);
+    } else if (code == 12) {
+      set(this.reds, 0, cell);
+    } else if (code == 13) {
+      set(this.blues, 0, cell);
+    } else if (code == 14) {
+      set(this.wins, 0, cell);
+    } else {
+      throw new IllegalArgumentException("State code " + code + " not recognized.");
+    }
+  }
+
+  /**
+   * Adds the moving piece with the given state code (1 for PlayerBlock, 2 for YellowBlock) to the
+   * initial state of this board, if there is one.
+   *
+   * @param cell cell that piece is in
+   * @param code state code of piece, or 0 for no piece
+   */
+  private void addPieceInside(int cell, int code) {
+    if (code == 1) set(this.initialState, PLAYER * this.words, cell);
+    if (code == 2) set(this.initialState, YELLOW * this.words, cell);
+  }
+
+  /**
+   * Builds the rays for every cell in the given direction. The ray of a cell holds every cell from
+   * the next one in the given direction to the edge of the rectangle.
+   *
+   * @param dir    direction of rays
+   * @param height number of rows in rectangle
+   * @return rays of every cell, with the ray of each cell starting at cell * this.words
+   */
+  private long[] buildRays(Direction dir, int height) {
+    long[] rays = new long[this.cells * this.words];
+
+    for (int cell = 0; cell < this.cells; cell++) {
+      int row = cell / this.width + dir.rowChange();
+      int col = cell % this.width + dir.colChange();
+      while (row >= 0 && row < height && col >= 0 && col < this.width) {
+        set(rays, cell * this.words, row * this.width + col);
+        row += dir.rowChange();
+        col += dir.colChange();
+      }
+    }
+
+    return rays;
+  }
+
+  /**
+   * Computes the lower bound of moves needed to win from every cell on a relaxed board, where only
+   * pieces that can never change (Walls, SolidBlocks, RedBlocks, BlueBlocks, and WinningPieces) get
+   * in the way. Every piece that moves during a move stays in the run of cells between two such
+   * pieces in the row or column that it moved in, so the player needs at least one move to get from
+   * one run to another, and can only win from a run that ends in a WinningPiece.
+   *
+   * @param height number of rows in rectangle
+   * @return lower bound of moves needed to win from each cell, or UNREACHABLE
+   */
+  private int[] buildWinDistances(int height) {
+    int[] distances = new int[this.cells];
+    Arrays.fill(distances, UNREACHABLE);
+    int[] queue = new int[this.cells];
+    int head = 0;
+    int tail = 0;
+
+    // cells from which one move might win
+    for (int cell = 0; cell < this.cells; cell++) {
+      if (test(this.blocked, 0, cell)) continue;
+
+      for (Direction dir : DIRECTIONS) {
+        int end = this.runEnd(cell, dir, height);
+        if (end >= 0 && test(this.wins, 0, end)) {
+          distances[cell] = 1;
+          queue[tail++] = cell;
+          break;
+        }
+      }
+    }
+
+    // every other cell in a run with a cell of distance d has distance at most d + 1
+    while (head < tail) {
+      int cell = queue[head++];
+
+      for (Direction dir : DIRECTIONS) {
+        int row = cell / this.width + dir.rowChange();
+        int col = cell % this.width + dir.colChange();
+
+        while (row >= 0 && row < height && col >= 0 && col < this.width) {
+          int other = row * this.width + col;
+          if (test(this.blocked, 0, other)) break;
+
+          if (distances[other] == UNREACHABLE) {
+            distances[other] = distances[cell] + 1;
+            queue[tail++] = other;
+          }
+
+          row += dir.rowChange();
+          col += dir.colChange();
+        }
+      }
+    }
+
+    return distances;
+  }
+
+  /**
+   * Finds the first cell after the given one in the given direction that holds a piece that can
+   * never change, or that is not on the board.
+   *
+   * @param cell   cell to start from
+   * @param dir    direction to look in
+   * @param height number of rows in rectangle
+   * @return first such cell, or -1 if the edge of the rectangle is reached first
+   */
+  private int runEnd(int cell, Direction dir, int height) {
+    int row = cell / this.width + dir.rowChange();
+    int col = cell % this.width + dir.colChange();
+
+    while (row >= 0 && row < height && col >= 0 && col < this.width) {
+      int other = row * this.width + col;
+      if (test(this.blocked, 0, other)) return other;
+      row += dir.rowChange();
+      col += dir.colChange();
+    }
+
+    return -1;
+  }
+
+  /**
+   * Finds the first cell in the ray of the given cell that cannot be entered in the given state.
+   *
+   * @param state    state of board
+   * @param cell     cell to start from
+   * @param dirIndex ordinal of direction to look in
+   * @return first blocked cell, or -1 if there is none before the edge of the rectangle
+   */
+  private int firstBlockedCell(long[] state, int cell, int dirIndex) {
+    long[] ray = this.rays[dirIndex];
+    int offset = cell * this.words;
+    if (this.steps[dirIndex] > 0) {
+      for (int w = 0; w < this.words; w++) {
+        long bits = ray[offset + w] & this.blockedWord(state, w);
+        if (bits != 0) return (w << 6) + Long.numberOfTrailingZeros(bits);
+      }
+    } else {
+      for (int w = this.words - 1; w >= 0; w--) {
+        long bits = ray[offset + w] & this.blockedWord(state, w);
+        if (bits != 0) return (w << 6) + 63 - Long.numberOfLeadingZeros(bits);
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns the given word of the mask of cells that cannot be entered in the given state.
+   *
+   * @param state state of board
+   * @param w     index of word
+   * @return word of mask of blocked cells
+   */
+  private long blockedWord(long[] state, int w) {
+    return this.blocked[w]
+            | state[PLAYER * this.words + w]
+            | state[YELLOW * this.words + w]
+            | (this.pops[w] & state[POPPED * this.words + w])
+            | (this.cracks[w] & ~state[CRACKED * this.words + w]);
+  }
+
+  /**
+   * Pops every PopBlock passed over or stopped on when sliding from one cell to another.
+   *
+   * @param state    state to update
+   * @param from     cell slid from
+   * @param to       cell slid to
+   * @param dirIndex ordinal of direction slid in
+   * @return whether or not any PopBlock popped
+   */
+  private boolean popPath(long[] state, int from, int to, int dirIndex) {
+    long[] ray = this.rays[dirIndex];
+    int fromOffset = from * this.words;
+    int toOffset = to * this.words;
+    boolean popped = false;
+
+    for (int w = 0; w < this.words; w++) {
+      long path = ray[fromOffset + w] & ~ray[toOffset + w];
+      long newlyPopped = path & this.pops[w] & ~state[POPPED * this.words + w];
+      if (newlyPopped != 0) {
+        state[POPPED * this.words + w] |= newlyPopped;
+        popped = true;
+      }
+    }
+
+    return popped;
+  }
+
+  /**
+   * Determines whether a moving piece has already bounced in the same direction from the same cell
+   * with all moving pieces in the same cells as they are now.
+   *
+   * @param bounces   cell and direction of every bounce so far
+   * @param positions player and yellow masks at every bounce so far
+   * @param count     number of bounces so far
+   * @param state     current state
+   * @param cell      cell of current bounce
+   * @param dirIndex  ordinal of direction after current bounce
+   * @return whether or not this bounce has already happened
+   */
+  private boolean hasBounced(int[] bounces, long[] positions, int count, long[] state, int cell,
+                             int dirIndex) {
+    int bounce = cell * STATE_MASKS + dirIndex;
+    int length = 2 * this.words;
+
+    for (int i = 0; i < count; i++) {
+      if (bounces[i] != bounce) continue;
+
+      boolean same = true;
+      for (int w = 0; w < length && same; w++) same = positions[i * length + w] == state[w];
+      if (same) return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Finds the first cell set in the mask at the given offset (in multiples of this.words).
+   *
+   * @param state state to search
+   * @param mask  offset of mask
+   * @return first set cell, or -1 if none are set
+   */
+  private int firstSetCell(long[] state, int mask) {
+    for (int w = 0; w < this.words; w++) {
+      long bits = state[mask * this.words + w];
+      if (bits != 0) return (w << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns the state codes of the game pieces written as the given chars in a level file.
+   *
+   * @param layout chars of every cell
+   * @return state codes of every cell
+   * @throws IllegalArgumentException if layout is null, or if any char is not a game piece
+   */
+  private static int[] codesOf(char[] layout) throws IllegalArgumentException {
+    if (layout == null) throw new IllegalArgumentException("Layout must be non-null.");
+
+    int[] codes = new int[layout.length];
+    for (int cell = 0; cell < layout.length; cell++) {
+      switch (layout[cell]) {
+        case '-':
+          codes[cell] = 0;
+          break;
+        case 'P':
+          codes[cell] = 1;
+          break;
+        case 'Y':
+          codes[cell] = 2;
+          break;
+        case 'O':
+          codes[cell] = 3;
+          break;
+        case 'C':
+          codes[cell] = 7;
+          break;
+        case 'S':
+          codes[cell] = 11;
+          break;
+        case 'R':
+          codes[cell] = 12;
+          break;
+        case 'B':
+          codes[cell] = 13;
+          break;
+        case 'W':
+          codes[cell] = 14;
+          break;
+        case 'X':
+          codes[cell] = 15;
+          break;
+        default:
+          throw new IllegalArgumentException("Char '" + layout[cell] + "' is not a game piece.");
+      }
+    }
+
+    return codes;
+  }
+
+  /**
+   * Determines whether the given cell is set in the mask starting at the given offset.
+   *
+   * @param mask   array holding mask
+   * @param offset index of first word of mask
+   * @param cell   cell to test
+   * @return whether or not cell is set
+   */
+  private static boolean test(long[] mask, int offset, int cell) {
+    return (mask[offset + (cell >>> 6)] & (1L << cell)) != 0;
+  }
+
+  /**
+   * Sets the given cell in the mask starting at the given offset.
+   *
+   * @param mask   array holding mask
+   * @param offset index of first word of mask
+   * @param cell   cell to set
+   */
+  private static void set(long[] mask, int offset, int cell) {
+    mask[offset + (cell >>> 6)] |= (1L << cell);
+  }
+
+  /**
+   * Clears the given cell in the mask starting at the given offset.
+   *
+   * @param mask   array holding mask
+   * @param offset index of first word of mask
+   * @param cell   cell to clear
+   */
+  private static void clear(long[] mask, int offset, int cell) {
+    mask[offset + (cell >>> 6)] &= ~(1L << cell);
+  }
+}
@@ -0,0 +1,49 @@
+package blocky.util.levels;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A set of levels that only compares their boards, so that two levels are the same if they have
+ * the same pieces in the same cells, whatever their IDs and the names of their pieces. Each board
+ * is packed into longs, CELL_BITS per cell, and kept in a StateTable for boards of its dimensions.
+ */
+class CanonicalLevelSet {
+  private static final int CELL_BITS = 5; // state codes are 0-15, or OFF_BOARD (-1)
+  private static final int CELLS_PER_WORD = 64 / CELL_BITS;
+
+  // INVARIANT: never null, table of boards with each width and height (width << 32 | height)
+  private final Map<Long, StateTable> tables;
+
+  /**
+   * Constructs a new, empty CanonicalLevelSet.
+   */
+  CanonicalLevelSet() {
+    this.tables = new HashMap<>();
+  }
+
+  /**
+   * Adds the board of the given level to this set if it is not already in it.
+   *
+   * @param level level to add
+   * @return whether or not the level was added (i.e. no level with the same board was in this set)
+   * @throws IllegalArgumentException if given level is null
+   */
+  boolean add(Level level) throws IllegalArgumentException {
+    int width = BitBoard.widthOf(level); // might throw IAE
+    int[] codes = BitBoard.codesOf(level);
+
+    long[] key = new long[(codes.length + CELLS_PER_WORD - 1) / CELLS_PER_WORD];
+    for (int cell = 0; cell < codes.length; cell++) {
+      long code = codes[cell] + 1; // shifted so that OFF_BOARD is 0
+      key[cell / CELLS_PER_WORD] |= code << (cell % CELLS_PER_WORD * CELL_BITS);
+    }
+
+    // every level has a player, so every board has at least one cell
+    long dimensions = (long) width << 32 | codes.length / width;
+    StateTable table = this.tables.computeIfAbsent(dimensions, d -> new StateTable(key.length));
+
+    int size = table.size();
+    return table.add(key) == size;
+  }
+}
@@ -0,0 +1,160 @@
+package blocky.util.levels;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Statistics of the attempts made by a LevelGenerator, which can be read while levels are being
+ * generated. Each attempt ends with the fewest moves needed to beat the best level it found, or as
+ * unsolvable, or as too large to solve. The lengths of rejected attempts are used to estimate how
+ * many attempts it would take to generate a level, so that generation can give up early on levels
+ * that are too rare to find. Safe to use from any thread.
+ */
+public class GenerationStats {
+  // lengths recorded for attempts that did not find a solvable level
+  static final int UNSOLVABLE = -1;
+  static final int TOO_LARGE = -2;
+
+  private static final int MAX_LENGTH = 63; // longer lengths are counted as this length
+  private static final int MIN_SAMPLES = 100; // attempts needed before estimating
+
+  private final int minMoves; // INVARIANT: always > 0, fewest moves accepted levels need
+  private final AtomicLong attempts; // INVARIANT: never null
+  private final AtomicLong accepted; // INVARIANT: never null
+  private final AtomicLong unsolvable; // INVARIANT: never null
+  private final AtomicLong tooLarge; // INVARIANT: never null
+  private final AtomicLongArray lengths; // INVARIANT: never null, rejected attempts by length
+
+  /**
+   * Constructs a new GenerationStats, with no attempts, for levels that require at least the given
+   * number of moves.
+   *
+   * @param minMoves fewest moves accepted levels need
+   * @throws IllegalArgumentException if minMoves is < 1
+   */
+  GenerationStats(int minMoves) throws IllegalArgumentException {
+    if (minMoves < 1) throw new IllegalArgumentException("Minimum moves must be at least 1.");
+
+    this.minMoves = minMoves;
+    this.attempts = new AtomicLong();
+    this.accepted = new AtomicLong();
+    this.unsolvable = new AtomicLong();
+    this.tooLarge = new AtomicLong();
+    this.lengths = new AtomicLongArray(MAX_LENGTH + 1);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PUBLIC METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the number of attempts made so far.
+   *
+   * @return number of attempts
+   */
+  public long attempts() {
+    return this.attempts.get();
+  }
+
+  /**
+   * Returns the number of attempts so far that found a level requiring enough moves.
+   *
+   * @return number of accepted attempts
+   */
+  public long accepted() {
+    return this.accepted.get();
+  }
+
+  /**
+   * Returns the fraction of attempts so far that found a level requiring enough moves.
+   *
+   * @return acceptance rate, or 0 if no attempts have been made
+   */
+  public double acceptanceRate() {
+    long attempts = this.attempts();
+    return attempts == 0 ? 0 : (double) this.accepted() / attempts;
+  }
+
+  /**
+   * Returns the most moves needed by a solvable level that was rejected for needing too few.
+   *
+   * @return longest length of rejected levels, or 0 if no solvable level has been rejected
+   */
+  public int longestRejected() {
+    for (int length = MAX_LENGTH; length > 0; length--) {
+      if (this.lengths.get(length) > 0) return length;
+    }
+
+    return 0;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d attempts, %d accepted (%.2f%%), %d unsolvable, %d too large to "
+                    + "solve, longest rejected needed %d moves", this.attempts(), this.accepted(),
+            this.acceptanceRate() * 100, this.unsolvable.get(), this.tooLarge.get(),
+            this.longestRejected());
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PACKAGE PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Records an attempt that ended with the given result.
+   *
+   * @param length fewest moves needed to beat the best level found, or UNSOLVABLE or TOO_LARGE
+   */
+  void record(int length) {
+    this.attempts.incrementAndGet();
+
+    if (length == UNSOLVABLE) {
+      this.unsolvable.incrementAndGet();
+    } else if (length == TOO_LARGE) {
+      this.tooLarge.incrementAndGet();
+    } else if (length >= this.minMoves) {
+      this.accepted.incrementAndGet();
+    } else {
+      this.lengths.incrementAndGet(Math.min(length, MAX_LENGTH));
+    }
+  }
+
+  /**
+   * Estimates the number of attempts needed on average to generate one level. Once some levels
+   * have been accepted, this is simply the observed rate. Until then, the number of rejected
+   * attempts needing at least each number of moves is assumed to fall off geometrically past the
+   * median length, with the ratio between consecutive lengths fitted to the rejected attempts
+   * past the median, and extrapolated up to the minimum number of moves. The estimate is never
+   * less than the attempts made so far, since none of them found a level.
+   *
+   * @return estimated attempts per level, or 1 if too few attempts have been made to estimate
+   */
+  double expectedAttempts() {
+    long attempts = this.attempts();
+    long accepted = this.accepted();
+    if (accepted > 0) return (double) attempts / accepted;
+    if (attempts < MIN_SAMPLES) return 1;
+
+    // atLeast[l] = number of rejected solvable attempts that needed at least l moves
+    long[] atLeast = new long[MAX_LENGTH + 2];
+    for (int length = MAX_LENGTH; length >= 0; length--) {
+      atLeast[length] = atLeast[length + 1] + this.lengths.get(length);
+    }
+
+    int median = 0;
+    while (median < MAX_LENGTH && atLeast[median + 1] * 2 >= atLeast[0]) median++;
+
+    // fitting the ratio of atLeast[l + 1] to atLeast[l] over every length past the median
+    double next = 0;
+    double current = 0;
+    for (int length = median; length <= MAX_LENGTH; length++) {
+      next += atLeast[length + 1];
+      current += atLeast[length];
+    }
+
+    double ratio = (next + 1) / (current + 2); // smoothed, so that few attempts give about 1/2
+    double logChance = Math.log((atLeast[median] + 1.0) / (attempts + 2.0))
+            + (this.minMoves - median) * Math.log(ratio);
+    return Math.max(attempts, Math.exp(-logChance));
+  }
+}
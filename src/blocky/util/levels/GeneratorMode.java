@@ -0,0 +1,45 @@
+package blocky.util.levels;
+
+/**
+ * Represents the strategy that a LevelGenerator uses to find levels that require enough moves.
+ */
+public enum GeneratorMode {
+  /**
+   * Generates random levels, player included, and solves each one until one requires enough
+   * moves.
+   */
+  SAMPLING,
+
+  /**
+   * Generates random boards without a player and finds the fewest moves needed to win from every
+   * starting position of the player at once, working backwards from the winning moves, then places
+   * the player at a random position that requires enough moves.
+   */
+  RETROGRADE,
+
+  /**
+   * Generates a random solvable level and changes one cell at a time, keeping each change that
+   * does not make the level easier, until the level requires enough moves.
+   */
+  CLIMBING;
+
+  /**
+   * Parses given String as GeneratorMode, if possible.
+   *
+   * @param str String from which to parse GeneratorMode
+   * @return GeneratorMode parsed from String
+   * @throws IllegalArgumentException if given String could not be parsed as GeneratorMode
+   */
+  public static GeneratorMode parseString(String str) throws IllegalArgumentException {
+    switch (str) {
+      case "sample":
+        return SAMPLING;
+      case "retro":
+        return RETROGRADE;
+      case "climb":
+        return CLIMBING;
+      default:
+        throw new IllegalArgumentException("Could not parse \"" + str + "\" as GeneratorMode");
+    }
+  }
+}
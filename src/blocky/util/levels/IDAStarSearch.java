@@ -0,0 +1,133 @@
+package blocky.util.levels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import blocky.util.Direction;
+
+/**
+ * An iterative deepening A* search over the configurations of a BitBoard, guided by
+ * BitBoard.lowerBound(). Each pass is a depth first search that gives up on any configuration whose
+ * estimated total number of moves is over a threshold, and the threshold is raised to the smallest
+ * such estimate until a solution is found. Configurations reached again with no fewer moves within
+ * a pass are skipped using a TranspositionTable of fixed size, so the memory used by this search
+ * does not depend on the number of configurations of the level.
+ */
+class IDAStarSearch {
+  private static final Direction[] DIRECTIONS = Direction.allDirections();
+  private static final int TABLE_BITS = 18; // 2^18 configurations remembered per pass
+  private static final int FOUND = -1;
+
+  private final BitBoard board; // INVARIANT: never null
+  private final TranspositionTable table; // INVARIANT: never null
+  private final List<Direction> path; // INVARIANT: never null, moves to configuration searched
+  private long[][] buffers; // INVARIANT: never null, buffers[d] holds states at depth d
+  private int expandedCount; // INVARIANT: never negative
+
+  /**
+   * Constructs a new IDAStarSearch over the given board.
+   *
+   * @param board board to search
+   * @throws IllegalArgumentException if given board is null
+   */
+  IDAStarSearch(BitBoard board) throws IllegalArgumentException {
+    if (board == null) throw new IllegalArgumentException("Board must be non-null.");
+
+    this.board = board;
+    this.table = new TranspositionTable(board.stateLength(), TABLE_BITS);
+    this.path = new ArrayList<>();
+    this.buffers = new long[16][];
+    this.expandedCount = 0;
+  }
+
+  /**
+   * Finds and returns an optimal solution to the level on the board of this search.
+   *
+   * @return list of moves to optimally solve level
+   * @throws IllegalStateException if level does not have a solution, or if a piece would be moved
+   *                               off the board
+   */
+  List<Direction> solve() throws IllegalStateException {
+    long[] first = this.board.initialState();
+    int threshold = this.board.lowerBound(first);
+
+    while (threshold != BitBoard.UNREACHABLE) {
+      this.table.nextPass();
+      this.path.clear();
+
+      int result = this.search(first, 0, threshold);
+      if (result == FOUND) return new ArrayList<>(this.path);
+      threshold = result;
+    }
+
+    throw new IllegalStateException("No solution exists for this level.");
+  }
+
+  /**
+   * Returns the number of configurations expanded by this search so far, over all passes.
+   *
+   * @return number of configurations expanded
+   */
+  int expanded() {
+    return this.expandedCount;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Searches depth first from the given configuration for a solution within the given threshold,
+   * adding its moves to this.path if one is found.
+   *
+   * @param state     packed state of configuration
+   * @param depth     number of moves made to reach configuration
+   * @param threshold largest estimated total number of moves to search
+   * @return FOUND if a solution was found, otherwise the smallest estimate over the threshold, or
+   *         BitBoard.UNREACHABLE if there was none
+   * @throws IllegalStateException if a piece would be moved off the board
+   */
+  private int search(long[] state, int depth, int threshold) throws IllegalStateException {
+    int bound = this.board.lowerBound(state);
+    if (bound == BitBoard.UNREACHABLE) return BitBoard.UNREACHABLE;
+    if (depth + bound > threshold) return depth + bound;
+
+    // if already searched from with as few moves, the estimates over the threshold were counted
+    if (!this.table.record(state, depth)) return BitBoard.UNREACHABLE;
+    this.expandedCount++;
+
+    long[] next = this.buffer(depth + 1);
+    int smallest = BitBoard.UNREACHABLE;
+
+    for (Direction dir : DIRECTIONS) {
+      int outcome = this.board.move(state, dir, next);
+
+      if (outcome == BitBoard.WINNING_MOVE) {
+        // bound is at least 1, so this solution is within the threshold
+        this.path.add(dir);
+        return FOUND;
+      } else if (outcome == BitBoard.MOVED) {
+        this.path.add(dir);
+        int result = this.search(next, depth + 1, threshold);
+        if (result == FOUND) return FOUND;
+        this.path.remove(this.path.size() - 1);
+        smallest = Math.min(smallest, result);
+      }
+    }
+
+    return smallest;
+  }
+
+  /**
+   * Returns the array used to hold states at the given depth, creating it if needed.
+   *
+   * @param depth depth of states
+   * @return array to hold states at depth
+   */
+  private long[] buffer(int depth) {
+    if (depth >= this.buffers.length) this.buffers = Arrays.copyOf(this.buffers, depth * 2);
+    if (this.buffers[depth] == null) this.buffers[depth] = new long[this.board.stateLength()];
+    return this.buffers[depth];
+  }
+}
@@ -13,6 +13,8 @@ import blocky.util.Position;
 public class Level {
   private final int id; // INVARIANT: always > 0
   private final List<List<GamePiece>> initLayout; // INVARIANT: never null
+  private final GamePiece[] initCells; // INVARIANT: never null, initLayout row by row
+  private final int width; // INVARIANT: never negative, length of longest row of initLayout
   private final Position initPlayerPosition; // INVARIANT: never null, within bounds of board
   private List<Direction> solution; // INVARIANT: not null once set
 
@@ -45,6 +47,19 @@ public class Level {
     this.id = id;
     this.initLayout = lo;
     this.initPlayerPosition = pos;
+
+    int width = 0;
+    for (List<GamePiece> row : lo) width = Math.max(width, row.size());
+    this.width = width;
+
+    // cells past the end of shorter rows are off the board, and are left null
+    this.initCells = new GamePiece[width * lo.size()];
+    for (int row = 0; row < lo.size(); row++) {
+      List<GamePiece> pieces = lo.get(row);
+      for (int col = 0; col < pieces.size(); col++) {
+        this.initCells[row * width + col] = pieces.get(col);
+      }
+    }
   }
 
   @Override
@@ -210,6 +225,36 @@ public class Level {
     return this.initPlayerPosition.copy();
   }
 
+  /**
+   * Returns the number of columns in this level, i.e. the length of its longest row.
+   *
+   * @return number of columns in level
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Returns the number of rows in this level.
+   *
+   * @return number of rows in level
+   */
+  public int getHeight() {
+    return this.initLayout.size();
+  }
+
+  /**
+   * Returns the initial layout of this level as a single array of cells, row by row, as wide as the
+   * longest row, with null for cells past the end of shorter rows. Unlike getLayout(), the pieces
+   * are not copied: every caller shares the same pieces, which must be copied before being changed,
+   * so that getting the cells only costs copying the array.
+   *
+   * @return initial cells of this level, row by row
+   */
+  public GamePiece[] getCells() {
+    return this.initCells.clone();
+  }
+
   /**
    * Returns copy of initial layout of this level; runs in O(n^2) time.
    *
@@ -231,6 +276,42 @@ public class Level {
     return layout;
   }
 
+  // -----------------------------------------------------------------------------------------------
+  // PACKAGE PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Sets the optimal solution of this level, for when it is already known (e.g. because the level
+   * was solved while being generated), so that it is not searched for again.
+   *
+   * @param solution optimal solution for this level
+   * @throws IllegalArgumentException if given solution is null
+   */
+  void setSolution(List<Direction> solution) throws IllegalArgumentException {
+    if (solution == null) throw new IllegalArgumentException("Solution must be non-null.");
+    this.solution = new ArrayList<>(solution);
+  }
+
+  /**
+   * Returns the initial layout of this level as a single array of the chars that stand for its
+   * pieces in level files, row by row, like getCells().
+   *
+   * @return initial layout of this level as level file chars, row by row
+   * @throws IllegalStateException if this level is not rectangular
+   */
+  char[] getChars() throws IllegalStateException {
+    char[] chars = new char[this.initCells.length];
+    for (int cell = 0; cell < chars.length; cell++) {
+      if (this.initCells[cell] == null) {
+        throw new IllegalStateException("Level " + this.id + " is not rectangular.");
+      }
+
+      chars[cell] = gamePieceToChar(this.initCells[cell].renderAs());
+    }
+
+    return chars;
+  }
+
   // -----------------------------------------------------------------------------------------------
   // PRIVATE METHODS
   // -----------------------------------------------------------------------------------------------
@@ -0,0 +1,204 @@
+package blocky.util.levels;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents a batch of randomly generated levels that are being generated in the background by a
+ * work-stealing pool of threads. Each thread repeatedly claims the next level of the batch that no
+ * thread has started on and generates it, until every level has been claimed or the batch is
+ * cancelled. Levels can be taken in the order they finish, or waited for by their index in the
+ * batch; the level at each index only depends on the seed of the batch. A batch can start at any
+ * index of the sequence of levels of its seed, so that one long run can be split over many batches.
+ */
+public class LevelBatch {
+  private static final long POLL_MILLIS = 50; // how often take() checks for cancellation
+
+  private final long seed; // seed that the seed of every level is derived from
+  private final int firstIndex; // INVARIANT: never negative, index in sequence of first level
+  private final List<CompletableFuture<Level>> levels; // INVARIANT: never null, one per index
+  private final BlockingQueue<Level> finished; // INVARIANT: never null, levels not yet taken
+  private final AtomicInteger nextIndex; // INVARIANT: never null, next index to be claimed
+  private final AtomicInteger ended; // INVARIANT: never null, levels taken or failed
+  private final AtomicBoolean cancelled; // INVARIANT: never null
+  private final ExecutorService pool; // INVARIANT: never null
+
+  /**
+   * Constructs a new LevelBatch and starts generating its levels with the given generator.
+   *
+   * @param generator  generator to generate levels with
+   * @param firstIndex index of first level of batch in the sequence of levels of the seed
+   * @param quantity   number of levels to generate
+   * @param seed       seed of batch
+   * @param workers    number of threads to generate levels on
+   * @throws IllegalArgumentException if generator is null, if firstIndex is negative, or if
+   *                                  quantity or workers is < 1
+   */
+  LevelBatch(LevelGenerator generator, int firstIndex, int quantity, long seed, int workers)
+          throws IllegalArgumentException {
+    if (generator == null) throw new IllegalArgumentException("Generator must be non-null.");
+    if (firstIndex < 0) throw new IllegalArgumentException("First index must not be negative.");
+    if (quantity < 1 || workers < 1) {
+      throw new IllegalArgumentException("Quantity and workers must be at least 1.");
+    }
+
+    this.seed = seed;
+    this.firstIndex = firstIndex;
+    this.levels = new ArrayList<>();
+    for (int i = 0; i < quantity; i++) this.levels.add(new CompletableFuture<>());
+    this.finished = new LinkedBlockingQueue<>();
+    this.nextIndex = new AtomicInteger(0);
+    this.ended = new AtomicInteger(0);
+    this.cancelled = new AtomicBoolean(false);
+
+    this.pool = Executors.newWorkStealingPool(workers);
+    for (int i = 0; i < Math.min(workers, quantity); i++) {
+      this.pool.execute(() -> this.work(generator));
+    }
+
+    this.pool.shutdown(); // threads end once every level has been claimed
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PUBLIC METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the number of levels in this batch.
+   *
+   * @return number of levels in batch
+   */
+  public int size() {
+    return this.levels.size();
+  }
+
+  /**
+   * Waits for the next level of this batch to finish, in whatever order they finish, and returns
+   * it.
+   *
+   * @return next level to finish, or null if every level has been taken or the batch is cancelled
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Level take() throws InterruptedException {
+    while (true) {
+      Level level = this.finished.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      if (level != null) {
+        this.ended.incrementAndGet();
+        return level;
+      } else if (this.cancelled.get() || this.ended.get() >= this.size()) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Waits for the level at the given index of this batch to finish, and returns it. Levels
+   * returned by this method may also be returned by take().
+   *
+   * @param index index of level in batch
+   * @return level at index
+   * @throws IllegalArgumentException if index is out of bounds
+   * @throws IllegalStateException    if the level could not be generated
+   * @throws CancellationException    if the batch was cancelled before the level finished
+   * @throws InterruptedException     if interrupted while waiting
+   */
+  public Level get(int index)
+          throws IllegalArgumentException, IllegalStateException, InterruptedException {
+    if (index < 0 || index >= this.size()) {
+      throw new IllegalArgumentException("No level at index " + index + " of batch.");
+    }
+
+    try {
+      return this.levels.get(index).get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Could not generate level: " + e.getCause().getMessage());
+    }
+  }
+
+  /**
+   * Returns the seed used to generate the level at the given index of this batch, so that it can
+   * be generated again on its own with LevelGenerator.generateLevel(new Random(seed)).
+   *
+   * @param index index of level in batch
+   * @return seed of level at index
+   * @throws IllegalArgumentException if index is out of bounds
+   */
+  public long levelSeed(int index) throws IllegalArgumentException {
+    if (index < 0 || index >= this.size()) {
+      throw new IllegalArgumentException("No level at index " + index + " of batch.");
+    }
+
+    return levelSeed(this.seed, this.firstIndex + index);
+  }
+
+  /**
+   * Stops generating levels. Levels that have already finished can still be taken.
+   */
+  public void cancel() {
+    this.cancelled.set(true);
+    this.pool.shutdownNow();
+    for (CompletableFuture<Level> level : this.levels) level.cancel(false);
+  }
+
+  /**
+   * Returns whether or not this batch has been cancelled.
+   *
+   * @return whether or not batch was cancelled
+   */
+  public boolean isCancelled() {
+    return this.cancelled.get();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Claims and generates levels of this batch until every level has been claimed or this batch is
+   * cancelled.
+   *
+   * @param generator generator to generate levels with
+   */
+  private void work(LevelGenerator generator) {
+    for (int index = this.nextIndex.getAndIncrement(); index < this.size();
+         index = this.nextIndex.getAndIncrement()) {
+      CompletableFuture<Level> future = this.levels.get(index);
+
+      try {
+        Random rand = new Random(levelSeed(this.seed, this.firstIndex + index));
+        Level level = generator.generateLevel(rand, this.cancelled::get);
+        if (level == null) return; // cancelled
+
+        if (future.complete(level)) this.finished.add(level);
+      } catch (RuntimeException e) {
+        if (future.completeExceptionally(e)) this.ended.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Derives the seed of the level at the given index of a batch with the given seed, mixing the
+   * bits so that levels at nearby indices are unrelated.
+   *
+   * @param seed  seed of batch
+   * @param index index of level in batch
+   * @return seed of level
+   */
+  private static long levelSeed(long seed, int index) {
+    long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,223 @@
+package blocky.util.levels;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups generated levels into buckets by the number of moves they require, each with its own
+ * target quantity, so that a single run of generation can fill levels of several difficulties.
+ * Each level offered is routed to the bucket that its number of moves falls in, and is kept only
+ * if that bucket is not full yet and no level with the same board has been kept.
+ */
+public class LevelBuckets {
+  private static final String DIVIDER = "# -------------------------";
+
+  private final int[] minMoves; // INVARIANT: never null, fewest moves of each bucket, ascending
+  private final int[] maxMoves; // INVARIANT: never null, most moves of each bucket, no overlaps
+  private final int[] quantities; // INVARIANT: never null, target quantity of each bucket
+  private final List<List<Level>> levels; // INVARIANT: never null, levels kept in each bucket
+  private final CanonicalLevelSet boards; // INVARIANT: never null, boards of levels kept
+
+  /**
+   * Constructs a new LevelBuckets with the given ranges of moves and target quantities, which
+   * must be sorted by moves.
+   *
+   * @param minMoves   fewest moves of each bucket
+   * @param maxMoves   most moves of each bucket, Integer.MAX_VALUE if unbounded
+   * @param quantities target quantity of each bucket
+   */
+  private LevelBuckets(int[] minMoves, int[] maxMoves, int[] quantities) {
+    this.minMoves = minMoves;
+    this.maxMoves = maxMoves;
+    this.quantities = quantities;
+    this.levels = new ArrayList<>();
+    for (int i = 0; i < minMoves.length; i++) this.levels.add(new ArrayList<>());
+    this.boards = new CanonicalLevelSet();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PUBLIC METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Parses given String as LevelBuckets, if possible. Buckets are separated by commas, and each
+   * is written as a range of moves and a quantity separated by a colon, where the range is either
+   * a single number of moves (e.g. 5), a closed range (e.g. 5-7), or a range with no upper bound
+   * (e.g. 8+), as in "3-4:50,5-7:50,8+:20".
+   *
+   * @param str String from which to parse LevelBuckets
+   * @return LevelBuckets parsed from String
+   * @throws IllegalArgumentException if given String could not be parsed as LevelBuckets, or if
+   *                                  any ranges overlap
+   */
+  public static LevelBuckets parseString(String str) throws IllegalArgumentException {
+    if (str == null) throw new IllegalArgumentException("Buckets must be non-null.");
+
+    String[] buckets = str.split(",");
+    int[] minMoves = new int[buckets.length];
+    int[] maxMoves = new int[buckets.length];
+    int[] quantities = new int[buckets.length];
+
+    for (int i = 0; i < buckets.length; i++) {
+      String[] parts = buckets[i].trim().split(":");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Could not parse \"" + buckets[i] + "\" as bucket.");
+      }
+
+      try {
+        String range = parts[0];
+        if (range.endsWith("+")) {
+          minMoves[i] = Integer.parseInt(range.substring(0, range.length() - 1));
+          maxMoves[i] = Integer.MAX_VALUE;
+        } else if (range.contains("-")) {
+          minMoves[i] = Integer.parseInt(range.substring(0, range.indexOf('-')));
+          maxMoves[i] = Integer.parseInt(range.substring(range.indexOf('-') + 1));
+        } else {
+          minMoves[i] = Integer.parseInt(range);
+          maxMoves[i] = minMoves[i];
+        }
+
+        quantities[i] = Integer.parseInt(parts[1]);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Could not parse \"" + buckets[i] + "\" as bucket.");
+      }
+
+      if (minMoves[i] < 1 || maxMoves[i] < minMoves[i] || quantities[i] < 1) {
+        throw new IllegalArgumentException("Bucket \"" + buckets[i] + "\" must have at least 1 "
+                + "move, a range that is not empty, and a quantity of at least 1.");
+      }
+    }
+
+    // sorting buckets by moves, so that overlaps are always between neighbours
+    for (int i = 1; i < buckets.length; i++) {
+      for (int j = i; j > 0 && minMoves[j] < minMoves[j - 1]; j--) {
+        swap(minMoves, j);
+        swap(maxMoves, j);
+        swap(quantities, j);
+      }
+    }
+
+    for (int i = 1; i < buckets.length; i++) {
+      if (minMoves[i] <= maxMoves[i - 1]) {
+        throw new IllegalArgumentException("Buckets must not overlap.");
+      }
+    }
+
+    return new LevelBuckets(minMoves, maxMoves, quantities);
+  }
+
+  /**
+   * Returns the fewest moves required by a level that would be kept, i.e. the fewest moves of the
+   * buckets that are not full yet.
+   *
+   * @return fewest moves of buckets that are not full
+   * @throws IllegalStateException if every bucket is full
+   */
+  public int minMoves() throws IllegalStateException {
+    for (int i = 0; i < this.minMoves.length; i++) {
+      if (this.levels.get(i).size() < this.quantities[i]) return this.minMoves[i];
+    }
+
+    throw new IllegalStateException("Every bucket is full.");
+  }
+
+  /**
+   * Offers the given level, keeping it in the bucket its number of moves falls in, unless no
+   * bucket has that number of moves, the bucket is full, or a level with the same board has been
+   * kept.
+   *
+   * @param level level to offer
+   * @return whether or not the level was kept
+   * @throws IllegalArgumentException if given level is null
+   * @throws IllegalStateException    if given level is unsolvable
+   */
+  public boolean offer(Level level) throws IllegalArgumentException, IllegalStateException {
+    if (level == null) throw new IllegalArgumentException("Level must be non-null.");
+
+    int moves = level.getMoves(); // might throw ISE
+    for (int i = 0; i < this.minMoves.length; i++) {
+      if (moves >= this.minMoves[i] && moves <= this.maxMoves[i]) {
+        List<Level> bucket = this.levels.get(i);
+        if (bucket.size() >= this.quantities[i] || !this.boards.add(level)) return false;
+
+        bucket.add(level);
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns the number of levels still needed to fill every bucket.
+   *
+   * @return number of levels still needed
+   */
+  public int remaining() {
+    int remaining = 0;
+    for (int i = 0; i < this.minMoves.length; i++) {
+      remaining += Math.max(this.quantities[i] - this.levels.get(i).size(), 0);
+    }
+
+    return remaining;
+  }
+
+  /**
+   * Returns whether or not every bucket has reached its target quantity.
+   *
+   * @return whether or not every bucket is full
+   */
+  public boolean isFull() {
+    return this.remaining() == 0;
+  }
+
+  /**
+   * Returns the levels kept in every bucket in the format of a level file, with each bucket in
+   * order of moves under a section header naming its range of moves, and the levels of each bucket
+   * in the order they were kept.
+   *
+   * @return levels of every bucket as a level file
+   */
+  @Override
+  public String toString() {
+    StringBuilder stringBuilder = new StringBuilder();
+
+    for (int i = 0; i < this.minMoves.length; i++) {
+      stringBuilder.append(DIVIDER).append("\n# ").append(this.rangeToString(i))
+              .append(" MOVES (").append(this.levels.get(i).size()).append(" of ")
+              .append(this.quantities[i]).append(")\n").append(DIVIDER).append("\n\n");
+      for (Level level : this.levels.get(i)) stringBuilder.append(level).append("\n\n");
+    }
+
+    return stringBuilder.toString();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the range of moves of the bucket at the given index, written as it would be parsed.
+   *
+   * @param index index of bucket
+   * @return range of moves of bucket
+   */
+  private String rangeToString(int index) {
+    int min = this.minMoves[index];
+    int max = this.maxMoves[index];
+    if (max == Integer.MAX_VALUE) return min + "+";
+    return min == max ? Integer.toString(min) : min + "-" + max;
+  }
+
+  /**
+   * Swaps the element at the given index of the given array with the one before it.
+   *
+   * @param array array to swap elements of
+   * @param index index of element to swap with the one before it
+   */
+  private static void swap(int[] array, int index) {
+    int temp = array[index];
+    array[index] = array[index - 1];
+    array[index - 1] = temp;
+  }
+}
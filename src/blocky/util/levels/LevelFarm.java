@@ -0,0 +1,439 @@
+package blocky.util.levels;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A queue of level generation jobs kept in a directory, so that levels can be generated by many
+ * separate processes that share nothing but a filesystem. The levels of a seed are split into
+ * shards of consecutive indices of its sequence (see LevelGenerator.generateBatch()), and each
+ * shard is a job: an empty file whose name is the shard number, which moves from QUEUE to CLAIMED
+ * to DONE. Workers claim a job by renaming it, which only one worker can do, and append the levels
+ * of each finished shard to a file of their own in RESULTS before marking the shard done. Merging
+ * reads the shards back in order and leaves out duplicates, giving the levels that generating the
+ * same seed in one process would, apart from the levels that it generates to make up for the
+ * duplicates it leaves out. As the levels of a shard only depend on the seed, a shard that is
+ * generated twice (e.g. after requeuing the jobs of a worker that died) gives the same levels.
+ */
+public class LevelFarm {
+  private static final String FARM_FILE = "farm.properties";
+  private static final String QUEUE = "queue";
+  private static final String CLAIMED = "claimed";
+  private static final String DONE = "done";
+  private static final String RESULTS = "results";
+  private static final Pattern SHARD_HEADER = Pattern.compile("# shard (\\d+)");
+
+  private final Path dir; // INVARIANT: never null, directory of farm
+  private final int size;
+  private final int minMoves;
+  private final GeneratorMode mode; // INVARIANT: never null
+  private final long seed;
+  private final int quantity; // INVARIANT: always > 0, number of levels in sequence to generate
+  private final int shardSize; // INVARIANT: always > 0, number of levels in every shard but last
+
+  /**
+   * Constructs a new LevelFarm in the given directory with the given settings.
+   *
+   * @param dir       directory of farm
+   * @param size      size of levels
+   * @param minMoves  minimum number of moves of levels
+   * @param mode      strategy to generate levels with
+   * @param seed      seed of sequence of levels
+   * @param quantity  number of levels in sequence to generate
+   * @param shardSize number of levels in every shard but the last
+   */
+  private LevelFarm(Path dir, int size, int minMoves, GeneratorMode mode, long seed,
+                    int quantity, int shardSize) {
+    this.dir = dir;
+    this.size = size;
+    this.minMoves = minMoves;
+    this.mode = mode;
+    this.seed = seed;
+    this.quantity = quantity;
+    this.shardSize = shardSize;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PUBLIC METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Creates a farm in the given directory that generates the first levels of the sequence of the
+   * given seed with the given settings, and queues a job for every shard of them.
+   *
+   * @param dir       directory to create farm in, which must not contain a farm already
+   * @param size      size of levels
+   * @param minMoves  minimum number of moves of levels
+   * @param mode      strategy to generate levels with
+   * @param seed      seed of sequence of levels
+   * @param quantity  number of levels in sequence to generate
+   * @param shardSize number of levels in every shard but the last
+   * @return created farm
+   * @throws IllegalArgumentException if dir or mode is null, if size, minMoves, quantity, or
+   *                                  shardSize is < 1, or if dir already contains a farm
+   * @throws IOException              if the farm could not be created
+   */
+  public static LevelFarm create(Path dir, int size, int minMoves, GeneratorMode mode, long seed,
+                                 int quantity, int shardSize)
+          throws IllegalArgumentException, IOException {
+    if (dir == null || mode == null) {
+      throw new IllegalArgumentException("Directory and generator mode must be non-null.");
+    } else if (size < 1 || minMoves < 1 || quantity < 1 || shardSize < 1) {
+      throw new IllegalArgumentException("Size, moves, quantity, and shard size must be at "
+              + "least 1.");
+    } else if (Files.exists(dir.resolve(FARM_FILE))) {
+      throw new IllegalArgumentException("Directory " + dir + " already contains a farm.");
+    }
+
+    for (String sub : new String[]{QUEUE, CLAIMED, DONE, RESULTS}) {
+      Files.createDirectories(dir.resolve(sub));
+    }
+
+    LevelFarm farm = new LevelFarm(dir, size, minMoves, mode, seed, quantity, shardSize);
+    for (int shard = 0; shard < farm.shards(); shard++) {
+      Files.createFile(dir.resolve(QUEUE).resolve(shardName(shard)));
+    }
+
+    // writing the settings last, so that workers never see a farm with only some of its jobs
+    Properties settings = new Properties();
+    settings.setProperty("size", Integer.toString(size));
+    settings.setProperty("minMoves", Integer.toString(minMoves));
+    settings.setProperty("mode", mode.name());
+    settings.setProperty("seed", Long.toString(seed));
+    settings.setProperty("quantity", Integer.toString(quantity));
+    settings.setProperty("shardSize", Integer.toString(shardSize));
+
+    Path temporary = dir.resolve(FARM_FILE + ".tmp");
+    try (OutputStream out = Files.newOutputStream(temporary)) {
+      settings.store(out, "level farm");
+    }
+
+    Files.move(temporary, dir.resolve(FARM_FILE), StandardCopyOption.ATOMIC_MOVE);
+    return farm;
+  }
+
+  /**
+   * Opens the farm in the given directory.
+   *
+   * @param dir directory of farm
+   * @return farm in given directory
+   * @throws IllegalArgumentException if dir is null or does not contain a farm
+   * @throws IllegalStateException    if the settings of the farm are malformatted
+   * @throws IOException              if the settings of the farm could not be read
+   */
+  public static LevelFarm open(Path dir)
+          throws IllegalArgumentException, IllegalStateException, IOException {
+    if (dir == null) throw new IllegalArgumentException("Directory must be non-null.");
+
+    Path farmFile = dir.resolve(FARM_FILE);
+    if (!Files.exists(farmFile)) {
+      throw new IllegalArgumentException("Directory " + dir + " does not contain a farm.");
+    }
+
+    Properties settings = new Properties();
+    try (Reader in = Files.newBufferedReader(farmFile, StandardCharsets.US_ASCII)) {
+      settings.load(in);
+    }
+
+    try {
+      return new LevelFarm(dir, Integer.parseInt(settings.getProperty("size")),
+              Integer.parseInt(settings.getProperty("minMoves")),
+              GeneratorMode.valueOf(settings.getProperty("mode")),
+              Long.parseLong(settings.getProperty("seed")),
+              Integer.parseInt(settings.getProperty("quantity")),
+              Integer.parseInt(settings.getProperty("shardSize")));
+    } catch (IllegalArgumentException | NullPointerException e) { // NFE is an IAE
+      throw new IllegalStateException("Settings of farm in " + dir + " are malformatted.");
+    }
+  }
+
+  /**
+   * Returns the seed of the sequence of levels of this farm.
+   *
+   * @return seed of farm
+   */
+  public long getSeed() {
+    return this.seed;
+  }
+
+  /**
+   * Returns a generator of the levels of this farm, without a budget.
+   *
+   * @return generator of levels of farm
+   */
+  public LevelGenerator generator() {
+    return new LevelGenerator(this.size, this.minMoves, this.mode);
+  }
+
+  /**
+   * Returns the number of shards that the levels of this farm are split into.
+   *
+   * @return number of shards
+   */
+  public int shards() {
+    return (this.quantity + this.shardSize - 1) / this.shardSize;
+  }
+
+  /**
+   * Returns the number of shards of this farm that are done.
+   *
+   * @return number of shards done
+   * @throws IOException if the jobs of the farm could not be listed
+   */
+  public int shardsDone() throws IOException {
+    return this.list(DONE).size();
+  }
+
+  /**
+   * Claims and generates shards of this farm with the given generator until no jobs are left in
+   * the queue, appending the levels of each shard to the results file of the given worker. If a
+   * level of a shard cannot be generated, its job is put back in the queue first.
+   *
+   * @param generator generator of the levels of this farm, possibly with a budget
+   * @param worker    name of worker, unique among workers of this farm
+   * @param threads   number of threads to generate levels on
+   * @return number of shards generated
+   * @throws IllegalArgumentException if generator or worker is null, if generator does not
+   *                                  generate the levels of this farm, if worker contains
+   *                                  characters other than letters, digits, '.', '_', and '-', or
+   *                                  if threads is < 1
+   * @throws IllegalStateException    if a level could not be generated
+   * @throws InterruptedException     if interrupted while waiting for a level
+   * @throws IOException              if a job or the results could not be read or written
+   */
+  public int work(LevelGenerator generator, String worker, int threads)
+          throws IllegalArgumentException, IllegalStateException, InterruptedException,
+          IOException {
+    if (generator == null || worker == null) {
+      throw new IllegalArgumentException("Generator and worker must be non-null.");
+    } else if (!generator.toString().equals(this.generator().toString())) {
+      throw new IllegalArgumentException("Farm generates " + this.generator() + ", not "
+              + generator + ".");
+    } else if (!worker.matches("[A-Za-z0-9._-]+")) {
+      throw new IllegalArgumentException("Invalid worker name: " + worker);
+    }
+
+    Path results = this.dir.resolve(RESULTS).resolve(worker + ".txt");
+    int generated = 0;
+
+    for (int shard = this.claim(worker); shard >= 0; shard = this.claim(worker)) {
+      Path claimed = this.dir.resolve(CLAIMED).resolve(shardName(shard) + "." + worker);
+      int first = shard * this.shardSize;
+      int count = Math.min(this.shardSize, this.quantity - first);
+
+      StringBuilder levels = new StringBuilder("\n# shard " + shard + "\n\n");
+      LevelBatch batch = generator.generateBatch(first, count, this.seed, threads);
+      try {
+        for (int i = 0; i < count; i++) levels.append(batch.get(i)).append("\n\n");
+      } catch (IllegalStateException | InterruptedException e) {
+        Files.move(claimed, this.dir.resolve(QUEUE).resolve(shardName(shard)),
+                StandardCopyOption.ATOMIC_MOVE);
+        throw e;
+      } finally {
+        batch.cancel(); // only stops work if the shard was left early
+      }
+
+      // appending the whole shard at once, and only marking it done once it is on disk
+      try (FileChannel out = FileChannel.open(results, StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+        ByteBuffer bytes = StandardCharsets.US_ASCII.encode(levels.toString());
+        while (bytes.hasRemaining()) out.write(bytes);
+        out.force(false);
+      }
+
+      Files.move(claimed, this.dir.resolve(DONE).resolve(shardName(shard)),
+              StandardCopyOption.ATOMIC_MOVE);
+      generated++;
+    }
+
+    return generated;
+  }
+
+  /**
+   * Puts every claimed job of this farm that is not done back in the queue, so that shards claimed
+   * by workers that stopped before finishing them are generated again. Must only be used while no
+   * workers are running, or shards may be generated twice (which merging tolerates).
+   *
+   * @return number of jobs put back in the queue
+   * @throws IOException if the jobs could not be moved
+   */
+  public int requeue() throws IOException {
+    int requeued = 0;
+    for (Path claimed : this.list(CLAIMED)) {
+      String name = claimed.getFileName().toString();
+      String shardName = name.substring(0, name.indexOf('.'));
+
+      try {
+        Files.move(claimed, this.dir.resolve(QUEUE).resolve(shardName),
+                StandardCopyOption.ATOMIC_MOVE);
+        requeued++;
+      } catch (NoSuchFileException | FileAlreadyExistsException e) {
+        // intentionally left blank, job was finished or requeued meanwhile
+      }
+    }
+
+    return requeued;
+  }
+
+  /**
+   * Writes the levels of every shard of this farm that is done to the given writer, in order of
+   * the sequence of levels of the seed. Each shard is read from the first results file that has
+   * it in full, and levels with the same board as a level already written are left out.
+   *
+   * @param writer writer to write levels to, for the generator of this farm
+   * @return number of shards written
+   * @throws IllegalArgumentException if writer is null
+   * @throws IllegalStateException    if a shard that is done is not in any results file
+   * @throws IOException              if the results could not be read or the levels written
+   */
+  public int merge(LevelFileWriter writer)
+          throws IllegalArgumentException, IllegalStateException, IOException {
+    if (writer == null) throw new IllegalArgumentException("Writer must be non-null.");
+
+    List<Integer> done = new ArrayList<>();
+    for (Path job : this.list(DONE)) done.add(shardNumber(job.getFileName().toString()));
+    Collections.sort(done);
+
+    // reading every shard of every results file, keeping the first full copy of each shard
+    Map<Integer, List<Level>> shards = new HashMap<>();
+    for (Path results : this.list(RESULTS)) {
+      try (BufferedReader in = Files.newBufferedReader(results, StandardCharsets.US_ASCII)) {
+        int shard = -1;
+        StringBuilder section = new StringBuilder();
+        for (String line = in.readLine(); ; line = in.readLine()) {
+          Matcher header = line == null ? null : SHARD_HEADER.matcher(line);
+          if (line == null || header.matches()) {
+            if (shard >= 0 && !shards.containsKey(shard)) {
+              List<Level> levels = this.parseShard(shard, section.toString());
+              if (levels != null) shards.put(shard, levels);
+            }
+
+            if (line == null) break;
+            shard = Integer.parseInt(header.group(1));
+            section.setLength(0);
+          } else {
+            section.append(line).append('\n');
+          }
+        }
+      }
+    }
+
+    for (int shard : done) {
+      List<Level> levels = shards.get(shard);
+      if (levels == null) {
+        throw new IllegalStateException("Shard " + shard + " is done, but is not in any results.");
+      }
+
+      for (Level level : levels) writer.write(level);
+    }
+
+    return done.size();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Claims the first job in the queue of this farm for the given worker, by renaming it. If another
+   * worker claims a job first, the next one is tried.
+   *
+   * @param worker name of worker
+   * @return number of shard claimed, or -1 if the queue is empty
+   * @throws IOException if the jobs could not be listed or moved
+   */
+  private int claim(String worker) throws IOException {
+    for (Path job : this.list(QUEUE)) {
+      String name = job.getFileName().toString();
+      Path claimed = this.dir.resolve(CLAIMED).resolve(name + "." + worker);
+
+      try {
+        Files.move(job, claimed, StandardCopyOption.ATOMIC_MOVE);
+        return shardNumber(name);
+      } catch (NoSuchFileException e) {
+        // intentionally left blank, another worker claimed this job first
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns every file in the given subdirectory of this farm, sorted by name.
+   *
+   * @param sub name of subdirectory
+   * @return files in subdirectory
+   * @throws IOException if the subdirectory could not be listed
+   */
+  private List<Path> list(String sub) throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.dir.resolve(sub))) {
+      for (Path file : stream) files.add(file);
+    }
+
+    Collections.sort(files);
+    return files;
+  }
+
+  /**
+   * Parses the levels of the given shard from the given section of a results file.
+   *
+   * @param shard   number of shard
+   * @param section levels of shard as written in a results file
+   * @return levels of shard, or null if the section does not hold the whole shard (e.g. the
+   *         worker writing it was stopped while appending it)
+   */
+  private List<Level> parseShard(int shard, String section) {
+    int expected = Math.min(this.shardSize, this.quantity - shard * this.shardSize);
+    try (InputStream in = new ByteArrayInputStream(section.getBytes(StandardCharsets.US_ASCII))) {
+      List<Level> levels = LevelFileReader.parseLevels(in);
+      return levels.size() == expected ? levels : null;
+    } catch (IllegalStateException | IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the name of the job of the given shard, padded so that names sort in order.
+   *
+   * @param shard number of shard
+   * @return name of job
+   */
+  private static String shardName(int shard) {
+    return String.format("shard-%08d", shard);
+  }
+
+  /**
+   * Returns the number of the shard of the job with the given name, which may have the name of the
+   * worker that claimed it appended.
+   *
+   * @param name name of job
+   * @return number of shard
+   */
+  private static int shardNumber(String name) {
+    int end = name.indexOf('.');
+    return Integer.parseInt(name.substring("shard-".length(), end < 0 ? name.length() : end));
+  }
+}
@@ -1,13 +1,16 @@
 package blocky.util.levels;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
 import java.util.regex.Pattern;
 
 import blocky.Blocky;
+import blocky.model.commands.EffectQueue;
 import blocky.model.gamepieces.BlueBlock;
 import blocky.model.gamepieces.CrackedBlock;
 import blocky.model.gamepieces.Empty;
@@ -60,6 +63,78 @@ public class LevelFileReader {
     return parseLevel(scan).setID(1).build();
   }
 
+  // -----------------------------------------------------------------------------------------------
+  // PACKAGE PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Creates the level with the given layout, where each char is a game piece as written in level
+   * files. Gives the same level as parsing the layout written out row by row.
+   *
+   * @param width     number of columns in layout
+   * @param layout    chars of every cell in layout, row by row
+   * @param playerPos position of player
+   * @return level with given layout
+   * @throws IllegalArgumentException if any argument is null, or if width < 1 or does not divide
+   *                                  the length of layout
+   * @throws IllegalStateException    if any char is not a game piece
+   */
+  static Level parseLayout(int width, char[] layout, Position playerPos)
+          throws IllegalArgumentException, IllegalStateException {
+    if (layout == null || playerPos == null) {
+      throw new IllegalArgumentException("Layout and player position must be non-null.");
+    } else if (width < 1 || layout.length % width != 0) {
+      throw new IllegalArgumentException("Layout must be a rectangle.");
+    }
+
+    Level.Builder levelBuilder = new Level.Builder().setPlayerPosition(playerPos.copy());
+    Map<Character, Integer> nameMap = new HashMap<>();
+
+    Position curPos = new Position(0, 0);
+    for (curPos.row = 0; curPos.row < layout.length / width; curPos.row++) {
+      levelBuilder.addRow();
+      for (curPos.col = 0; curPos.col < width; curPos.col++) {
+        char c = layout[curPos.row * width + curPos.col];
+        levelBuilder.addPieceToRow(parseGamePiece(c, curPos, nameMap));
+      }
+    }
+
+    return levelBuilder.setID(1).build();
+  }
+
+  /**
+   * Parses every level in the given stream of level data, numbering them from 1 in order. Unlike
+   * parsing a level file, levels are not solved to check that they can be beaten, so this is fast
+   * enough to read back large files of generated levels.
+   *
+   * @param in stream to read levels from
+   * @return levels in stream, in order
+   * @throws IllegalArgumentException if given stream is null
+   * @throws IllegalStateException    if there is an error in the format of the levels
+   */
+  static List<Level> parseLevels(InputStream in)
+          throws IllegalArgumentException, IllegalStateException {
+    if (in == null) throw new IllegalArgumentException("Stream must be non-null.");
+    Scanner scan = new Scanner(in);
+    scan.useDelimiter(Pattern.compile("(\\p{Space}+|#.*)+"));
+
+    List<Level> levels = new ArrayList<>();
+    while (scan.hasNext()) {
+      String next = scan.next();
+      if (next.equals("-level")) {
+        try {
+          levels.add(parseLevel(scan).setID(levels.size() + 1).build());
+        } catch (RuntimeException e) {
+          throw new IllegalStateException("Could not parse level " + (levels.size() + 1) + ".");
+        }
+      } else {
+        throw new IllegalStateException("Unexpected token \"" + next + "\" found in file.");
+      }
+    }
+
+    return levels;
+  }
+
   // -----------------------------------------------------------------------------------------------
   // PRIVATE METHODS
   // -----------------------------------------------------------------------------------------------
@@ -149,18 +224,17 @@ public class LevelFileReader {
     // todo - Include: N = OrangeBlock, U = PurpleBlock, G = GreenBlock, g = StickyBlock
     // todo - The above blocks are intended to be added to the game. See README.txt for details.
 
-    // fixme Walls, Empties, and WinningPieces might not need names
-    if (!nameMap.containsKey(c)) nameMap.put(c, 0);
-    nameMap.replace(c, nameMap.get(c) + 1);
-    String name = "" + c + nameMap.get(c);
-
-    String emptyName = "";
-    if (c == 'P' || c == 'Y') {
-      if (!nameMap.containsKey('-')) nameMap.put('-', 0);
-      nameMap.replace('-', nameMap.get('-') + 1);
-      emptyName = "-" + nameMap.get('-');
+    // Walls, Empties, and WinningPieces never change, so they are never looked up by name and
+    // share one name each; every other piece is numbered so that its name is unique
+    String name = "" + c;
+    if (c != 'X' && c != '-' && c != 'W') {
+      if (!nameMap.containsKey(c)) nameMap.put(c, 0);
+      nameMap.replace(c, nameMap.get(c) + 1);
+      name += nameMap.get(c);
     }
 
+    String emptyName = "-";
+
     switch (c) {
       case 'X':
         return new Wall(name, pos.copy());
@@ -172,7 +246,7 @@ public class LevelFileReader {
         return new SolidBlock(name, pos.copy());
       case 'P':
         Empty player = new Empty(emptyName, pos.copy());
-        player.beEnteredBy(new PlayerBlock(name, pos.copy()));
+        player.beEnteredBy(new PlayerBlock(name, pos.copy()), new EffectQueue());
         return player;
       case 'C':
         return new CrackedBlock(name, pos.copy());
@@ -182,7 +256,7 @@ public class LevelFileReader {
         return new RedBlock(name, pos.copy());
       case 'Y':
         Empty yellow = new Empty(emptyName, pos.copy());
-        yellow.beEnteredBy(new YellowBlock(name, pos.copy()));
+        yellow.beEnteredBy(new YellowBlock(name, pos.copy()), new EffectQueue());
         return yellow;
       case 'B':
         return new BlueBlock(name, pos.copy());
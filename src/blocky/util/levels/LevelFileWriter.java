@@ -0,0 +1,343 @@
+package blocky.util.levels;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Writes generated levels in the format of level files through a buffer, in the order of the
+ * sequence of levels of a seed (see LevelGenerator.generateBatch()), leaving out every level whose
+ * board has already been written. Duplicates are only found once they have been generated and
+ * solved: rejecting a repeated board while generating would make the level at each index of the
+ * sequence depend on the levels already written, so the levels of a seed could no longer be
+ * generated again identically when resuming or by a LevelFarm. When writing to a file, progress is
+ * checkpointed next to it every CHECKPOINT_LEVELS levels: the seed and the next index of its
+ * sequence, the numbers of levels written and left out, and the length of the file at the time.
+ * Opening a file that has a checkpoint resumes writing it, so a run that was stopped or killed can
+ * be continued where its last checkpoint left off; levels written after that checkpoint are cut
+ * from the file and written again, which gives the same levels as the sequence only depends on the
+ * seed.
+ */
+public class LevelFileWriter implements Closeable {
+  private static final int CHECKPOINT_LEVELS = 100; // levels written between checkpoints
+  private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+  private final Writer out; // INVARIANT: never null
+  private final FileChannel file; // file written to, or null if writing to a stream
+  private final Path checkpoint; // file to checkpoint to, or null if writing to a stream
+  private final String generator; // INVARIANT: never null, description of generator of levels
+  private final long seed;
+  private final CanonicalLevelSet boards; // INVARIANT: never null, boards of levels written
+  private int nextIndex; // INVARIANT: never negative, index of next level in sequence of seed
+  private int written; // INVARIANT: never negative, levels written, including before resuming
+  private int duplicates; // INVARIANT: never negative, levels left out, including before resuming
+
+  /**
+   * Constructs a new LevelFileWriter that writes to the given writer, and to the given file and
+   * checkpoint if they are not null, starting with the given progress.
+   *
+   * @param out        writer to write levels to
+   * @param file       file written to, or null
+   * @param checkpoint file to checkpoint to, or null
+   * @param generator  description of generator of levels
+   * @param seed       seed of sequence of levels
+   * @param nextIndex  index of next level in sequence
+   * @param written    number of levels already written
+   * @param duplicates number of levels already left out
+   */
+  private LevelFileWriter(Writer out, FileChannel file, Path checkpoint, String generator,
+                          long seed, int nextIndex, int written, int duplicates) {
+    this.out = out;
+    this.file = file;
+    this.checkpoint = checkpoint;
+    this.generator = generator;
+    this.seed = seed;
+    this.boards = new CanonicalLevelSet();
+    this.nextIndex = nextIndex;
+    this.written = written;
+    this.duplicates = duplicates;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PUBLIC METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Creates a LevelFileWriter that writes the levels of the given seed to the given stream, after
+   * a comment with the seed. Nothing is checkpointed, and closing it only flushes the stream.
+   *
+   * @param out       stream to write levels to
+   * @param generator generator of levels
+   * @param seed      seed of sequence of levels
+   * @return writer to given stream
+   * @throws IllegalArgumentException if out or generator is null
+   * @throws IOException              if the comment could not be written
+   */
+  public static LevelFileWriter toStream(OutputStream out, LevelGenerator generator, long seed)
+          throws IllegalArgumentException, IOException {
+    if (out == null || generator == null) {
+      throw new IllegalArgumentException("Stream and generator must be non-null.");
+    }
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII));
+    LevelFileWriter levelWriter = new LevelFileWriter(writer, null, null, generator.toString(),
+            seed, 0, 0, 0);
+    levelWriter.writeHeader();
+    return levelWriter;
+  }
+
+  /**
+   * Creates a LevelFileWriter that writes the levels of the given seed to the file with the given
+   * name, after a comment with the seed, or resumes writing that file if it has a checkpoint. When
+   * resuming, the seed of the checkpoint is used instead of the given one, and the levels already
+   * in the file are read back in so that they are not written again.
+   *
+   * @param fileName  name of file to write levels to
+   * @param generator generator of levels, which must be the same as when the checkpoint was made
+   * @param seed      seed of sequence of levels, if not resuming
+   * @return writer to file with given name
+   * @throws IllegalArgumentException if fileName or generator is null, or if the file already
+   *                                  exists without a checkpoint
+   * @throws IllegalStateException    if the checkpoint was made for a different generator, or does
+   *                                  not match the file
+   * @throws IOException              if the file or its checkpoint could not be read or written
+   */
+  public static LevelFileWriter toFile(String fileName, LevelGenerator generator, long seed)
+          throws IllegalArgumentException, IllegalStateException, IOException {
+    if (fileName == null || generator == null) {
+      throw new IllegalArgumentException("File name and generator must be non-null.");
+    }
+
+    Path path = Paths.get(fileName);
+    Path checkpoint = Paths.get(fileName + CHECKPOINT_SUFFIX);
+    if (Files.exists(checkpoint)) return resume(path, checkpoint, generator.toString());
+    if (Files.exists(path) && Files.size(path) > 0) {
+      throw new IllegalArgumentException("File " + fileName + " already exists and has no "
+              + "checkpoint to resume from.");
+    }
+
+    FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    LevelFileWriter levelWriter = new LevelFileWriter(writerTo(file), file, checkpoint,
+            generator.toString(), seed, 0, 0, 0);
+    levelWriter.writeHeader();
+    levelWriter.checkpoint();
+    return levelWriter;
+  }
+
+  /**
+   * Returns the seed of the sequence of levels being written.
+   *
+   * @return seed of sequence
+   */
+  public long getSeed() {
+    return this.seed;
+  }
+
+  /**
+   * Returns the index in the sequence of levels of the seed of the next level to be written.
+   *
+   * @return index of next level
+   */
+  public int nextIndex() {
+    return this.nextIndex;
+  }
+
+  /**
+   * Returns the number of levels written so far, including those written before resuming.
+   *
+   * @return number of levels written
+   */
+  public int levelsWritten() {
+    return this.written;
+  }
+
+  /**
+   * Returns the number of levels left out so far for having the same board as a level already
+   * written, including those left out before resuming.
+   *
+   * @return number of duplicate levels
+   */
+  public int duplicates() {
+    return this.duplicates;
+  }
+
+  /**
+   * Writes the given level, the next one of the sequence of levels of the seed, unless a level
+   * with the same board has already been written. Checkpoints every CHECKPOINT_LEVELS levels.
+   *
+   * @param level level to write
+   * @return whether or not the level was written (i.e. it was not a duplicate)
+   * @throws IllegalArgumentException if given level is null
+   * @throws IOException              if the level or the checkpoint could not be written
+   */
+  public boolean write(Level level) throws IllegalArgumentException, IOException {
+    if (level == null) throw new IllegalArgumentException("Level must be non-null.");
+
+    this.nextIndex++;
+    if (!this.boards.add(level)) {
+      this.duplicates++;
+      return false;
+    }
+
+    this.out.write(level + "\n\n");
+    this.written++;
+    if (this.written % CHECKPOINT_LEVELS == 0) this.checkpoint();
+    return true;
+  }
+
+  /**
+   * Flushes every level written, checkpoints, and closes the file written to. When writing to a
+   * stream, the stream is only flushed.
+   *
+   * @throws IOException if the levels or the checkpoint could not be written
+   */
+  @Override
+  public void close() throws IOException {
+    this.checkpoint();
+    if (this.file != null) this.out.close();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Resumes writing the given file from the given checkpoint. The file is cut back to its length
+   * at the checkpoint, and the boards of the levels in it are read back in.
+   *
+   * @param path       file to resume writing
+   * @param checkpoint checkpoint of file
+   * @param generator  description of generator of levels
+   * @return writer to given file
+   * @throws IllegalStateException if the checkpoint was made for a different generator, or does
+   *                               not match the file
+   * @throws IOException           if the file or its checkpoint could not be read or opened
+   */
+  private static LevelFileWriter resume(Path path, Path checkpoint, String generator)
+          throws IllegalStateException, IOException {
+    Properties progress = new Properties();
+    try (Reader in = Files.newBufferedReader(checkpoint, StandardCharsets.US_ASCII)) {
+      progress.load(in);
+    }
+
+    if (!generator.equals(progress.getProperty("generator"))) {
+      throw new IllegalStateException("Checkpoint " + checkpoint + " was made for "
+              + progress.getProperty("generator") + ", not " + generator + ".");
+    }
+
+    long seed;
+    int nextIndex;
+    int written;
+    int duplicates;
+    long length;
+    try {
+      seed = Long.parseLong(progress.getProperty("seed"));
+      nextIndex = Integer.parseInt(progress.getProperty("nextIndex"));
+      written = Integer.parseInt(progress.getProperty("written"));
+      duplicates = Integer.parseInt(progress.getProperty("duplicates"));
+      length = Long.parseLong(progress.getProperty("length"));
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Checkpoint " + checkpoint + " is malformatted.");
+    }
+
+    FileChannel file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if (file.size() < length) {
+        throw new IllegalStateException("File " + path + " is shorter than its checkpoint.");
+      }
+
+      // levels written after the checkpoint will be written again
+      file.truncate(length);
+      ByteBuffer bytes = ByteBuffer.allocate((int) length);
+      file.position(0);
+      while (bytes.hasRemaining() && file.read(bytes) >= 0) {
+        // intentionally left blank, reading until every byte up to the checkpoint has been read
+      }
+
+      List<Level> levels;
+      try (InputStream in = new ByteArrayInputStream(bytes.array())) {
+        levels = LevelFileReader.parseLevels(in);
+      }
+
+      if (levels.size() != written) {
+        throw new IllegalStateException("File " + path + " has " + levels.size()
+                + " levels, but its checkpoint has " + written + ".");
+      }
+
+      LevelFileWriter levelWriter = new LevelFileWriter(writerTo(file), file, checkpoint,
+              generator, seed, nextIndex, written, duplicates);
+      for (Level level : levels) levelWriter.boards.add(level);
+      return levelWriter;
+    } catch (IllegalStateException | IOException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a buffered writer of ASCII text to the given file, at its current position.
+   *
+   * @param file file to write to
+   * @return writer to file
+   */
+  private static Writer writerTo(FileChannel file) {
+    return new BufferedWriter(Channels.newWriter(file, StandardCharsets.US_ASCII.newEncoder(), -1));
+  }
+
+  /**
+   * Writes the comment with the seed that level files of generated levels start with.
+   *
+   * @throws IOException if the comment could not be written
+   */
+  private void writeHeader() throws IOException {
+    this.out.write("# seed " + this.seed + "\n\n");
+  }
+
+  /**
+   * Flushes every level written and, when writing to a file, forces them to disk and then replaces
+   * the checkpoint, so that the checkpoint never covers levels that are not in the file.
+   *
+   * @throws IOException if the levels or the checkpoint could not be written
+   */
+  private void checkpoint() throws IOException {
+    this.out.flush();
+    if (this.file == null) return;
+
+    this.file.force(false);
+
+    Properties progress = new Properties();
+    progress.setProperty("generator", this.generator);
+    progress.setProperty("seed", Long.toString(this.seed));
+    progress.setProperty("nextIndex", Integer.toString(this.nextIndex));
+    progress.setProperty("written", Integer.toString(this.written));
+    progress.setProperty("duplicates", Integer.toString(this.duplicates));
+    progress.setProperty("length", Long.toString(this.file.size()));
+
+    // replacing the old checkpoint all at once, so that a killed run never leaves half of one
+    Path temporary = Paths.get(this.checkpoint + ".tmp");
+    try (OutputStream out = Files.newOutputStream(temporary)) {
+      progress.store(out, "checkpoint of generated levels");
+    }
+
+    Files.move(temporary, this.checkpoint, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -1,7 +1,10 @@
 package blocky.util.levels;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.function.BooleanSupplier;
 
 import blocky.util.Direction;
 import blocky.util.Position;
@@ -10,22 +13,75 @@ import blocky.util.Position;
  * A class used for generating levels of the Blocky game.
  */
 public class LevelGenerator {
+  private static final char[] PIECES = {'S', 'O', 'C', 'Y', 'B', 'R'}; // pieces besides Empty
+  private static final int SEEN_BITS = 12; // 2^12 states remembered when ruling out easy levels
+  private static final int CLIMB_STEPS = 300; // changes tried before giving up on a level
+  private static final int STATE_LIMIT = 1 << 20; // most configurations searched per attempt
+  private static final long FEASIBLE_MILLIS = 60_000; // most time per level expected without budget
+  private static final int CHECK_INTERVAL = 16; // attempts between checks of feasibility
+  private static final int EXHAUSTED_LAYOUTS = 20; // attempts per possible layout before giving up
+  private static final int ESTIMATE_MARGIN = 4; // how far estimates must exceed what is allowed
+
   private final int size;
   private final int minMoves;
+  private final GeneratorMode mode; // INVARIANT: never null
+  private final int maxAttempts; // INVARIANT: never negative, 0 if attempts are not limited
+  private final long maxMillis; // INVARIANT: never negative, 0 if time is not limited
+  private final GenerationStats stats; // INVARIANT: never null, shared by every thread
 
   /**
-   * Constructs a new LevelGenerator object with the given size and minimum number of moves.
+   * Constructs a new LevelGenerator object with the given size and minimum number of moves, that
+   * generates levels by sampling.
    *
    * @param size     size of the game board to be generated
    * @param minMoves minimum number of moves levels should have
    * @throws IllegalArgumentException if either argument is <= 0
    */
   public LevelGenerator(int size, int minMoves) throws IllegalArgumentException {
+    this(size, minMoves, GeneratorMode.SAMPLING);
+  }
+
+  /**
+   * Constructs a new LevelGenerator object with the given size and minimum number of moves, that
+   * uses the given strategy to find levels.
+   *
+   * @param size     size of the game board to be generated
+   * @param minMoves minimum number of moves levels should have
+   * @param mode     strategy to use when finding levels
+   * @throws IllegalArgumentException if size or minMoves is <= 0, or if mode is null
+   */
+  public LevelGenerator(int size, int minMoves, GeneratorMode mode)
+          throws IllegalArgumentException {
+    this(size, minMoves, mode, 0, 0);
+  }
+
+  /**
+   * Constructs a new LevelGenerator object with the given size, minimum number of moves, strategy,
+   * and budget for each level.
+   *
+   * @param size        size of the game board to be generated
+   * @param minMoves    minimum number of moves levels should have
+   * @param mode        strategy to use when finding levels
+   * @param maxAttempts most attempts to make per level, or 0 for no limit
+   * @param maxMillis   most milliseconds to spend per level, or 0 for no limit
+   * @throws IllegalArgumentException if size or minMoves is <= 0, if mode is null, or if either
+   *                                  limit is negative
+   */
+  private LevelGenerator(int size, int minMoves, GeneratorMode mode, int maxAttempts,
+                         long maxMillis) throws IllegalArgumentException {
     if (size < 1 || minMoves < 1) throw new IllegalArgumentException("Tried to construct " +
             "LevelGenerator with size < 1 or minMoves < 1.");
+    if (mode == null) throw new IllegalArgumentException("Generator mode must be non-null.");
+    if (maxAttempts < 0 || maxMillis < 0) {
+      throw new IllegalArgumentException("Generation budget must not be negative.");
+    }
 
     this.size = size;
     this.minMoves = minMoves;
+    this.mode = mode;
+    this.maxAttempts = maxAttempts;
+    this.maxMillis = maxMillis;
+    this.stats = new GenerationStats(minMoves);
   }
 
   // -----------------------------------------------------------------------------------------------
@@ -34,23 +90,128 @@ public class LevelGenerator {
 
   /**
    * Generates a random solvable level for the Blocky game.
-
+   *
    * @return random level
    * @throws RuntimeException if fails to generate level that meets requirements
    */
   public Level generateLevel() throws RuntimeException {
-    Level level = null;
+    return this.generateLevel(new Random());
+  }
 
-    // fixme this can be infinite if level with size and minMoves is impossible
-    while (level == null) {
-      try {
-        level = this.generateLevelHelper();
-      } catch (IllegalStateException e) {
-        // intentionally left blank
-      }
+  /**
+   * Generates a random solvable level for the Blocky game, using the given source of randomness.
+   * Given two sources of randomness in the same state, this generates the same level.
+   *
+   * @param rand source of randomness to use
+   * @return random level
+   * @throws IllegalArgumentException if given source of randomness is null
+   * @throws RuntimeException         if fails to generate level that meets requirements
+   */
+  public Level generateLevel(Random rand) throws IllegalArgumentException, RuntimeException {
+    if (rand == null) throw new IllegalArgumentException("Source of randomness must be non-null.");
+    return this.generateLevel(rand, () -> false);
+  }
+
+  /**
+   * Starts generating the given number of levels on the given number of threads, and returns the
+   * batch that the levels are added to as they are generated. Each level is generated from its own
+   * source of randomness, seeded from the given seed and the index of the level, so the levels of a
+   * batch depend only on its seed and not on how many threads generate it.
+   *
+   * @param quantity number of levels to generate
+   * @param seed     seed of batch
+   * @param workers  number of threads to generate levels on
+   * @return batch that levels are added to
+   * @throws IllegalArgumentException if quantity or workers is < 1
+   */
+  public LevelBatch generateBatch(int quantity, long seed, int workers)
+          throws IllegalArgumentException {
+    return this.generateBatch(0, quantity, seed, workers);
+  }
+
+  /**
+   * Starts generating the given number of levels on the given number of threads, starting at the
+   * given index of the sequence of levels of the given seed, and returns the batch that the levels
+   * are added to as they are generated. The level at index i of the returned batch is the same as
+   * the level at index firstIndex + i of a batch that starts at 0.
+   *
+   * @param firstIndex index of first level to generate in the sequence of levels of the seed
+   * @param quantity   number of levels to generate
+   * @param seed       seed of batch
+   * @param workers    number of threads to generate levels on
+   * @return batch that levels are added to
+   * @throws IllegalArgumentException if firstIndex is negative, or if quantity or workers is < 1
+   */
+  public LevelBatch generateBatch(int firstIndex, int quantity, long seed, int workers)
+          throws IllegalArgumentException {
+    return new LevelBatch(this, firstIndex, quantity, seed, workers);
+  }
+
+  /**
+   * Changes the given level one cell at a time until it requires at least the minimum number of
+   * moves of this generator, keeping each change that does not make the level easier. Cells can
+   * gain or lose a SolidBlock or BlueBlock or get another random piece, and the WinningPiece can
+   * move to another wall on the edge of the level. The size of this generator is not used.
+   *
+   * @param start level to start from, which must be rectangular and solvable
+   * @param rand  source of randomness to use
+   * @return level changed from given level that requires enough moves
+   * @throws IllegalArgumentException if any argument is null, or if the given level is not
+   *                                  rectangular
+   * @throws IllegalStateException    if the given level is not solvable, or if it could not be
+   *                                  changed into a level that requires enough moves
+   */
+  public Level evolveLevel(Level start, Random rand)
+          throws IllegalArgumentException, IllegalStateException {
+    if (start == null || rand == null) {
+      throw new IllegalArgumentException("Level and source of randomness must be non-null.");
     }
 
-    return level;
+    char[] layout;
+    try {
+      layout = start.getChars();
+    } catch (IllegalStateException e) {
+      throw new IllegalArgumentException("Only rectangular levels can be evolved.");
+    }
+
+    return this.climb(start.getWidth(), layout, start.getPlayerPosition(), rand);
+  }
+
+  /**
+   * Returns a generator like this one that gives up on a level once the given number of attempts
+   * have been made or the given time has passed, whichever comes first. Attempts are whole levels
+   * when sampling, whole boards when retrograde, and whole climbs when climbing.
+   *
+   * @param maxAttempts most attempts to make per level, or 0 for no limit
+   * @param maxMillis   most milliseconds to spend per level, or 0 for no limit
+   * @return generator with given budget, and statistics of its own
+   * @throws IllegalArgumentException if either limit is negative
+   */
+  public LevelGenerator withBudget(int maxAttempts, long maxMillis)
+          throws IllegalArgumentException {
+    return new LevelGenerator(this.size, this.minMoves, this.mode, maxAttempts, maxMillis);
+  }
+
+  /**
+   * Returns a generator like this one, with the same strategy and budget, that generates levels
+   * requiring at least the given number of moves instead.
+   *
+   * @param minMoves minimum number of moves levels should have
+   * @return generator with given minimum number of moves, and statistics of its own
+   * @throws IllegalArgumentException if minMoves is <= 0
+   */
+  public LevelGenerator withMinMoves(int minMoves) throws IllegalArgumentException {
+    return new LevelGenerator(this.size, minMoves, this.mode, this.maxAttempts, this.maxMillis);
+  }
+
+  /**
+   * Returns the statistics of every attempt made by this generator so far, on every thread. The
+   * statistics keep changing while levels are being generated.
+   *
+   * @return statistics of this generator
+   */
+  public GenerationStats getStats() {
+    return this.stats;
   }
 
   /**
@@ -62,85 +223,495 @@ public class LevelGenerator {
     return this.generateLevel().toString();
   }
 
+  /**
+   * Describes the levels this generator generates and how, leaving out its budget. Generators that
+   * generate the same levels from the same sources of randomness have the same description.
+   *
+   * @return description of this generator
+   */
+  @Override
+  public String toString() {
+    return "levels of size " + this.size + " requiring at least " + this.minMoves
+            + " moves, generated by " + this.mode.name().toLowerCase();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PACKAGE PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Generates a random solvable level using the given source of randomness, unless generation is
+   * cancelled first. Gives up once the budget of this generator runs out, or once the statistics
+   * of this generator show that a level is very unlikely to be found within it.
+   *
+   * @param rand      source of randomness to use
+   * @param cancelled whether or not generation has been cancelled, checked before every attempt
+   * @return random level, or null if generation was cancelled
+   * @throws IllegalStateException if the budget runs out, or if levels are too rare to generate
+   */
+  Level generateLevel(Random rand, BooleanSupplier cancelled) throws IllegalStateException {
+    long startMillis = System.currentTimeMillis();
+
+    for (int attempt = 0; !cancelled.getAsBoolean(); attempt++) {
+      this.checkBudget(attempt, System.currentTimeMillis() - startMillis);
+
+      try {
+        switch (this.mode) {
+          case RETROGRADE:
+            return this.generateRetrogradeLevel(rand);
+          case CLIMBING:
+            return this.generateClimbingLevel(rand);
+          case SAMPLING:
+          default:
+            return this.generateLevelHelper(rand);
+        }
+      } catch (IllegalStateException e) {
+        // intentionally left blank
+      }
+    }
+
+    return null;
+  }
+
   // -----------------------------------------------------------------------------------------------
   // PRIVATE METHODS
   // -----------------------------------------------------------------------------------------------
 
+  /**
+   * Throws an IllegalStateException if the budget of this generator has run out for the current
+   * level, or if the attempts it has left are unlikely to be enough to find it. The attempts left
+   * are the attempts allowed by the budget, and the attempts that fit in the time allowed by the
+   * budget (or FEASIBLE_MILLIS without one) at the rate of attempts so far; as the estimate of the
+   * attempts needed is extrapolated, it must exceed them by ESTIMATE_MARGIN. Also gives up once no
+   * level has been found in many times more attempts than there are possible layouts.
+   *
+   * @param attempts attempts made for current level so far
+   * @param elapsed  milliseconds spent on current level so far
+   * @throws IllegalStateException if budget has run out, or if levels are too rare to generate
+   */
+  private void checkBudget(int attempts, long elapsed) throws IllegalStateException {
+    if (this.maxAttempts > 0 && attempts >= this.maxAttempts) {
+      throw new IllegalStateException("No level found within " + this.maxAttempts
+              + " attempts (" + this.stats + ").");
+    } else if (this.maxMillis > 0 && elapsed >= this.maxMillis) {
+      throw new IllegalStateException("No level found within " + this.maxMillis + "ms ("
+              + this.stats + ").");
+    } else if (attempts == 0 || attempts % CHECK_INTERVAL != 0) {
+      return; // the rate of attempts is unknown before the first one
+    }
+
+    double allowed = this.maxAttempts > 0 ? this.maxAttempts : Double.MAX_VALUE;
+    if (elapsed > 0) {
+      long millis = this.maxMillis > 0 ? this.maxMillis : FEASIBLE_MILLIS;
+      allowed = Math.min(allowed, (double) attempts * millis / elapsed);
+    }
+
+    // tiny boards have so few layouts that many attempts without a level mean there is none
+    double layouts = Math.pow(PIECES.length + 1, this.size * this.size) * this.size * this.size;
+    if (this.stats.accepted() == 0 && this.stats.attempts() > EXHAUSTED_LAYOUTS * layouts) {
+      throw new IllegalStateException("No level of size " + this.size + " requires "
+              + this.minMoves + " moves (" + this.stats + ").");
+    }
+
+    double expected = this.stats.expectedAttempts();
+    if (expected > ESTIMATE_MARGIN * allowed) {
+      throw new IllegalStateException(String.format("Levels of size %d that require %d moves are "
+                      + "too rare to generate, about 1 in %.2g attempts would find one (%s).",
+              this.size, this.minMoves, expected, this.stats));
+    }
+  }
+
   /**
    * Generates a random level and returns it only if it is solvable and requires the minimum number
-   * of moves, else it will throw an IllegalStateException.
+   * of moves, else it will throw an IllegalStateException. The layout is generated as chars and
+   * searched on a BitBoard, so a Level is only created for layouts that are accepted.
    *
+   * @param rand source of randomness to use
    * @return randomly generated level
    * @throws IllegalStateException if generated level is not solvable, or if the solution is less
    *                               moves than required by this generator
    */
-  private Level generateLevelHelper() throws IllegalStateException {
-    Random rand = new Random();
-    StringBuilder levelString = new StringBuilder("-level\n-player ");
-
+  private Level generateLevelHelper(Random rand) throws IllegalStateException {
     // generating random player position
     Position playerPos = new Position(rand.nextInt(size) + 1, rand.nextInt(size) + 1);
-    levelString.append(playerPos.row).append(" ").append(playerPos.col).append("\n");
 
-    // generating level
-    this.generateRowOfWalls(levelString); // top row of walls
-    this.generateIntermediateRows(levelString, playerPos); // game pieces
-    this.generateRowOfWalls(levelString); // bottom row of walls
-    levelString.append("-/level"); // final tag
+    // generating layout
+    int layoutSize = this.size + 2;
+    char[] layout = new char[layoutSize * layoutSize];
+    this.generateRowOfWalls(layout, 0); // top row of walls
+    this.generateIntermediateRows(layout, playerPos, rand); // game pieces
+    this.generateRowOfWalls(layout, layoutSize - 1); // bottom row of walls
 
-    // creating level from string
-    Level level = LevelFileReader.parseLevel(levelString.toString());
+    // cheaply rejecting most levels that are unsolvable or too easy before solving them
+    BitBoard board = new BitBoard(layoutSize, layout);
+    long[] start = board.initialState();
+    int bound = board.lowerBound(start);
+    if (bound == BitBoard.UNREACHABLE) {
+      this.stats.record(GenerationStats.UNSOLVABLE);
+      throw new IllegalStateException("Player can never reach winning piece.");
+    } else if (bound < this.minMoves) {
+      TranspositionTable seen = new TranspositionTable(board.stateLength(), SEEN_BITS);
+      int shortest = shortestWithin(board, start, bound, this.minMoves - 1, seen);
+      if (shortest != BitBoard.UNREACHABLE) {
+        this.stats.record(shortest);
+        throw new IllegalStateException("Not enough moves.");
+      }
+    }
 
     // making sure there is a solution and that this level requires correct number of moves
-    List<Direction> solution = level.getSolution(); // might throw ISE if unsolvable
+    LevelSolver solver = new LevelSolver(STATE_LIMIT);
+    List<Direction> solution = this.searchAndRecord(solver, board); // throws ISE if unsolvable
+    this.stats.record(solution.size());
     if (solution.size() < this.minMoves) throw new IllegalStateException("Not enough moves.");
+
+    // creating level from layout
+    Level level = LevelFileReader.parseLayout(layoutSize, layout, playerPos);
+    solver.checkSolution(level, solution);
+    level.setSolution(solution);
+    return level;
+  }
+
+  /**
+   * Generates a random board without a player and returns a level with the player placed on it,
+   * but only if the player can be placed somewhere that requires the minimum number of moves, else
+   * it will throw an IllegalStateException. Every starting position of the player is explored in
+   * one graph, and the fewest moves needed to win from all of them are found with one search
+   * backwards from the winning moves, instead of solving once per position.
+   *
+   * @param rand source of randomness to use
+   * @return randomly generated level
+   * @throws IllegalStateException if no position on the generated board is solvable and requires
+   *                               the minimum number of moves
+   */
+  private Level generateRetrogradeLevel(Random rand) throws IllegalStateException {
+    // generating layout without a player
+    int layoutSize = this.size + 2;
+    char[] layout = new char[layoutSize * layoutSize];
+    this.generateRowOfWalls(layout, 0); // top row of walls
+    this.generateIntermediateRows(layout, null, rand); // game pieces
+    this.generateRowOfWalls(layout, layoutSize - 1); // bottom row of walls
+
+    // cheaply ruling out starting positions that are unsolvable or too easy
+    BitBoard board = new BitBoard(layoutSize, layout);
+    List<Integer> cells = new ArrayList<>();
+    List<long[]> starts = new ArrayList<>();
+    TranspositionTable seen = new TranspositionTable(board.stateLength(), SEEN_BITS);
+    int longest = GenerationStats.UNSOLVABLE; // most moves needed from any position, for stats
+    for (int cell = 0; cell < layout.length; cell++) {
+      if (layout[cell] != '-') continue;
+      long[] start = board.initialStateWithPlayerAt(cell);
+      int bound = board.lowerBound(start);
+      if (bound == BitBoard.UNREACHABLE) continue;
+
+      if (bound < this.minMoves) {
+        int shortest = shortestWithin(board, start, bound, this.minMoves - 1, seen);
+        if (shortest != BitBoard.UNREACHABLE) {
+          longest = Math.max(longest, shortest);
+          continue;
+        }
+      }
+
+      cells.add(cell);
+      starts.add(start);
+    }
+
+    if (starts.isEmpty()) {
+      this.stats.record(longest);
+      throw new IllegalStateException("No position requires enough moves.");
+    }
+
+    // choosing a random starting position that requires correct number of moves
+    StateGraph graph;
+    try {
+      graph = new StateGraph(board, starts, STATE_LIMIT); // starting positions have ids 0, 1, ...
+    } catch (IllegalStateException e) {
+      this.stats.record(GenerationStats.TOO_LARGE);
+      throw e;
+    }
+
+    List<Integer> hard = new ArrayList<>();
+    for (int id = 0; id < starts.size(); id++) {
+      int distance = graph.distanceToWin(id);
+      if (distance != StateGraph.UNREACHABLE && distance >= this.minMoves) hard.add(id);
+      if (distance != StateGraph.UNREACHABLE) longest = Math.max(longest, distance);
+    }
+
+    this.stats.record(longest);
+    if (hard.isEmpty()) throw new IllegalStateException("Not enough moves.");
+    int id = hard.get(rand.nextInt(hard.size()));
+    int cell = cells.get(id);
+
+    // creating level from layout
+    layout[cell] = 'P';
+    Position playerPos = new Position(cell / layoutSize, cell % layoutSize);
+    Level level = LevelFileReader.parseLayout(layoutSize, layout, playerPos);
+    List<Direction> solution = graph.solution(id);
+    new LevelSolver().checkSolution(level, solution);
+    level.setSolution(solution);
     return level;
   }
 
   /**
-   * Adds a row of walls to the given string builder, followed by a new line.
+   * Generates a random solvable level and changes it one cell at a time until it requires the
+   * minimum number of moves, else it will throw an IllegalStateException.
    *
-   * @param levelString string builder to add to
+   * @param rand source of randomness to use
+   * @return randomly generated level
+   * @throws IllegalStateException if generated level is not solvable, or if it could not be
+   *                               changed into a level that requires enough moves
+   */
+  private Level generateClimbingLevel(Random rand) throws IllegalStateException {
+    Position playerPos = new Position(rand.nextInt(size) + 1, rand.nextInt(size) + 1);
+
+    int layoutSize = this.size + 2;
+    char[] layout = new char[layoutSize * layoutSize];
+    this.generateRowOfWalls(layout, 0); // top row of walls
+    this.generateIntermediateRows(layout, playerPos, rand); // game pieces
+    this.generateRowOfWalls(layout, layoutSize - 1); // bottom row of walls
+
+    return this.climb(layoutSize, layout, playerPos, rand);
+  }
+
+  /**
+   * Changes the given layout one cell at a time, keeping each change that does not make its
+   * optimal solution shorter, until it requires the minimum number of moves. Changes are tried up
+   * to CLIMB_STEPS times. The same solver is used for every search, so that its storage is reused,
+   * and changes that make the level easier are ruled out without solving.
+   *
+   * @param width     number of columns in layout
+   * @param layout    chars of every cell in layout, row by row
+   * @param playerPos position of player
+   * @param rand      source of randomness to use
+   * @return level changed from given layout that requires enough moves
+   * @throws IllegalStateException if given layout is not solvable, or if it could not be changed
+   *                               into a level that requires enough moves
    */
-  private void generateRowOfWalls(StringBuilder levelString) {
-    for (int col = 0; col < this.size + 2; col++) levelString.append("X");
-    levelString.append("\n");
+  private Level climb(int width, char[] layout, Position playerPos, Random rand)
+          throws IllegalStateException {
+    LevelSolver solver = new LevelSolver(STATE_LIMIT);
+    BitBoard board = new BitBoard(width, layout);
+    List<Direction> solution = this.searchAndRecord(solver, board); // throws ISE if unsolvable
+    TranspositionTable seen = new TranspositionTable(board.stateLength(), SEEN_BITS);
+
+    for (int step = 0; step < CLIMB_STEPS && solution.size() < this.minMoves; step++) {
+      char[] candidate = layout.clone();
+      mutate(candidate, width, rand);
+
+      // cheaply ruling out changes that make the level unsolvable or easier
+      board = new BitBoard(width, candidate);
+      long[] start = board.initialState();
+      int bound = board.lowerBound(start);
+      if (bound == BitBoard.UNREACHABLE
+              || bound < solution.size() && winsWithin(board, start, solution.size() - 1, seen)) {
+        continue;
+      }
+
+      try {
+        List<Direction> candidateSolution = solver.search(board);
+        if (candidateSolution.size() >= solution.size()) { // ties let changes pile up
+          layout = candidate;
+          solution = candidateSolution;
+        }
+      } catch (IllegalStateException e) {
+        // intentionally left blank, change made the level unsolvable
+      }
+    }
+
+    this.stats.record(solution.size());
+    if (solution.size() < this.minMoves) throw new IllegalStateException("Not enough moves.");
+
+    Level level = LevelFileReader.parseLayout(width, layout, playerPos);
+    solver.checkSolution(level, solution);
+    level.setSolution(solution);
+    return level;
+  }
+
+  /**
+   * Changes one cell of the given layout at random: adding or removing a SolidBlock or BlueBlock,
+   * placing another random piece, or moving a WinningPiece to another wall on the edge. Walls
+   * and the player are never changed, other than walls swapped with a WinningPiece.
+   *
+   * @param layout layout to change
+   * @param width  number of columns in layout
+   * @param rand   source of randomness to use
+   */
+  private static void mutate(char[] layout, int width, Random rand) {
+    int height = layout.length / width;
+    int kind = rand.nextInt(4);
+
+    if (kind == 3) { // moving a WinningPiece, by swapping it with a wall on the edge
+      int edge = rand.nextInt(2 * (width + height) - 4); // cells on edge, going around
+      int cell;
+      if (edge < width) {
+        cell = edge;
+      } else if (edge < 2 * width) {
+        cell = (height - 1) * width + edge - width;
+      } else {
+        cell = (1 + (edge - 2 * width) / 2) * width + ((edge % 2 == 0) ? 0 : width - 1);
+      }
+
+      int col = cell % width;
+      boolean corner = (cell < width || cell >= (height - 1) * width)
+              && (col == 0 || col == width - 1);
+      int win = new String(layout).indexOf('W');
+      if (!corner && layout[cell] == 'X' && win >= 0) {
+        layout[win] = 'X';
+        layout[cell] = 'W';
+      }
+
+      return;
+    }
+
+    int cell = (1 + rand.nextInt(height - 2)) * width + 1 + rand.nextInt(width - 2);
+    char c = layout[cell];
+    if (c == 'X' || c == 'W' || c == 'P') return; // nothing to change
+
+    if (kind == 0) {
+      layout[cell] = (c == 'S') ? '-' : 'S';
+    } else if (kind == 1) {
+      layout[cell] = (c == 'B') ? '-' : 'B';
+    } else {
+      layout[cell] = randomGamePiece(rand);
+    }
+  }
+
+  /**
+   * Searches for an optimal solution to the level on the given board with the given solver, and
+   * records the attempt in the statistics of this generator if there is none.
+   *
+   * @param solver solver to search with
+   * @param board  board to solve
+   * @return list of moves to optimally solve level
+   * @throws IllegalStateException if level does not have a solution, or if it has too many
+   *                               configurations to solve
+   */
+  private List<Direction> searchAndRecord(LevelSolver solver, BitBoard board)
+          throws IllegalStateException {
+    try {
+      return solver.search(board);
+    } catch (IllegalStateException e) {
+      boolean tooLarge = solver.stateLimitReached();
+      this.stats.record(tooLarge ? GenerationStats.TOO_LARGE : GenerationStats.UNSOLVABLE);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the fewest moves needed to win the level on the given board from the given state, if
+   * it can be won within the given number of moves. Searches with winsWithin() for increasing
+   * numbers of moves, starting from the lower bound of the state.
+   *
+   * @param board board to search
+   * @param state state to search from
+   * @param bound lower bound of moves needed to win from state
+   * @param limit largest number of moves to search
+   * @param table table to remember searched states in
+   * @return fewest moves needed to win, or BitBoard.UNREACHABLE if more than limit are needed
+   */
+  private static int shortestWithin(BitBoard board, long[] state, int bound, int limit,
+                                    TranspositionTable table) {
+    for (int moves = Math.max(bound, 1); moves <= limit; moves++) {
+      if (winsWithin(board, state, moves, table)) return moves;
+    }
+
+    return BitBoard.UNREACHABLE;
+  }
+
+  /**
+   * Determines whether the level on the given board can be won from the given state within the
+   * given number of moves, using a depth first search that skips every state whose lower bound
+   * rules it out, and every state already searched from with as few moves. Much cheaper than
+   * solving when the limit is small, since most states are skipped.
+   *
+   * @param board board to search
+   * @param state state to search from
+   * @param limit largest number of moves to search
+   * @param table table to remember searched states in, whose entries are forgotten first
+   * @return whether or not the level can be won within the limit
+   */
+  private static boolean winsWithin(BitBoard board, long[] state, int limit,
+                                    TranspositionTable table) {
+    long[][] buffers = new long[Math.max(limit, 1)][board.stateLength()];
+    table.nextPass();
+    table.record(state, 0);
+    return limit > 0 && winsWithin(board, state, 0, limit, buffers, table);
+  }
+
+  /**
+   * Determines whether the level on the given board can be won from the given state, reached with
+   * the given number of moves, within the given total number of moves.
+   *
+   * @param board   board to search
+   * @param state   state to search from
+   * @param depth   number of moves made to reach state, always < limit
+   * @param limit   largest total number of moves to search
+   * @param buffers arrays to hold states in, buffers[d] holding states after d + 1 moves
+   * @param table   table to remember searched states in
+   * @return whether or not the level can be won within the limit
+   */
+  private static boolean winsWithin(BitBoard board, long[] state, int depth, int limit,
+                                    long[][] buffers, TranspositionTable table) {
+    long[] next = buffers[depth];
+
+    for (Direction dir : Direction.allDirections()) {
+      int outcome = board.move(state, dir, next);
+      if (outcome == BitBoard.WINNING_MOVE) return true;
+
+      boolean worthSearching = outcome == BitBoard.MOVED && depth + 1 < limit
+              && board.lowerBound(next) <= limit - depth - 1 && table.record(next, depth + 1);
+      if (worthSearching && winsWithin(board, next, depth + 1, limit, buffers, table)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Fills the given row of the given layout with walls.
+   *
+   * @param layout layout to fill
+   * @param row    row to fill
+   */
+  private void generateRowOfWalls(char[] layout, int row) {
+    int layoutSize = this.size + 2;
+    Arrays.fill(layout, row * layoutSize, (row + 1) * layoutSize, 'X');
   }
 
   /**
-   * Generates all intermediate (all but first and last, since they are walls) rows for the given
-   * string builder, with each new row followed by a new line.
+   * Generates all intermediate (all but first and last, since they are walls) rows of the given
+   * layout.
    *
-   * @param levelString string builder to add to
-   * @param playerPos   position of player
+   * @param layout    layout to fill
+   * @param playerPos position of player, or null to fill every cell with a random piece
+   * @param rand      source of randomness to use
    */
-  private void generateIntermediateRows(StringBuilder levelString, Position playerPos) {
+  private void generateIntermediateRows(char[] layout, Position playerPos, Random rand) {
     int layoutSize = this.size + 2;
 
     for (int row = 1; row < layoutSize - 1; row++) {
-      levelString.append("X");
+      int offset = row * layoutSize;
+      layout[offset] = 'X';
 
       for (int col = 1; col < layoutSize - 1; col++) {
-        Position pos = new Position(row, col);
-        if (pos.equals(playerPos)) {
-          levelString.append("P");
+        if (playerPos != null && row == playerPos.row && col == playerPos.col) {
+          layout[offset + col] = 'P';
         } else {
-          levelString.append(randomGamePiece());
+          layout[offset + col] = randomGamePiece(rand);
         }
       }
 
-      levelString.append((row == this.size / 2 + 1) ? "W\n" : "X\n");
+      layout[offset + layoutSize - 1] = (row == this.size / 2 + 1) ? 'W' : 'X';
     }
   }
 
   /**
-   * Returns a random string representing a game piece to add to the string builder.
+   * Returns a random char representing a game piece to add to the layout.
    *
+   * @param rand source of randomness to use
    * @return random game piece
    */
-  private static String randomGamePiece() {
-    String[] pieces = {"S", "O", "C", "Y", "B", "R"};
-    Random rand = new Random();
-    return (rand.nextInt(4) < 3 ? "-" : pieces[rand.nextInt(pieces.length)]);
+  private static char randomGamePiece(Random rand) {
+    return (rand.nextInt(4) < 3 ? '-' : PIECES[rand.nextInt(PIECES.length)]);
   }
 }
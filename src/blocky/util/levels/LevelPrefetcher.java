@@ -0,0 +1,144 @@
+package blocky.util.levels;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a bounded queue of randomly generated levels filled by background threads, so that levels
+ * can be handed out as soon as they are asked for. Each thread generates levels until the queue is
+ * full, then waits for room. Threads are daemons, so they never keep the program running. A thread
+ * stops if its generator gives up on a level; once every thread has, the reason is reported by the
+ * next call to take(), and the threads are started again for the calls after it.
+ */
+class LevelPrefetcher {
+  private static final long POLL_MILLIS = 50; // how often take() checks for failed workers
+
+  private final LevelGenerator generator; // INVARIANT: never null
+  private final int workers; // INVARIANT: always >= 1
+  private final BlockingQueue<Level> levels; // INVARIANT: never null, levels not yet taken
+  private final AtomicInteger running; // INVARIANT: never null, number of workers not failed
+  private final AtomicBoolean stopped; // INVARIANT: never null
+  private volatile RuntimeException failure; // last exception that stopped a worker, if any
+
+  /**
+   * Constructs a new LevelPrefetcher and starts generating levels with the given generator.
+   *
+   * @param generator generator to generate levels with
+   * @param depth     largest number of levels to keep ready
+   * @param workers   number of threads to generate levels on
+   * @throws IllegalArgumentException if generator is null, or if depth or workers is < 1
+   */
+  LevelPrefetcher(LevelGenerator generator, int depth, int workers)
+          throws IllegalArgumentException {
+    if (generator == null) throw new IllegalArgumentException("Generator must be non-null.");
+    if (depth < 1 || workers < 1) {
+      throw new IllegalArgumentException("Depth and workers must be at least 1.");
+    }
+
+    this.generator = generator;
+    this.workers = workers;
+    this.levels = new ArrayBlockingQueue<>(depth);
+    this.running = new AtomicInteger(0);
+    this.stopped = new AtomicBoolean(false);
+    this.startWorkers();
+  }
+
+  /**
+   * Returns the next generated level, waiting for one to be generated only if none are ready.
+   *
+   * @return next level
+   * @throws IllegalStateException if every worker has failed (they are started again for the next
+   *                               call), if this prefetcher has been stopped, or if interrupted
+   *                               while waiting
+   */
+  synchronized Level take() throws IllegalStateException {
+    try {
+      while (true) {
+        Level level = this.levels.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (level != null) return level;
+
+        if (this.stopped.get()) {
+          throw new IllegalStateException("Level prefetcher has been stopped.");
+        } else if (this.running.get() == 0) {
+          String reason = this.failure.getMessage();
+          this.startWorkers();
+          throw new IllegalStateException("Could not generate level: " + reason);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for level.");
+    }
+  }
+
+  /**
+   * Returns the number of levels that are ready to be taken.
+   *
+   * @return number of levels ready
+   */
+  int ready() {
+    return this.levels.size();
+  }
+
+  /**
+   * Stops generating levels. Levels that are ready can still be taken.
+   */
+  void stop() {
+    this.stopped.set(true);
+  }
+
+  /**
+   * Returns whether or not this prefetcher has been stopped.
+   *
+   * @return whether or not this prefetcher has been stopped
+   */
+  boolean stopped() {
+    return this.stopped.get();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Starts the workers of this prefetcher, none of which may be running.
+   */
+  private void startWorkers() {
+    this.running.set(this.workers);
+
+    for (int i = 0; i < this.workers; i++) {
+      Thread worker = new Thread(this::work, "level-prefetcher-" + i);
+      worker.setDaemon(true);
+      worker.start();
+    }
+  }
+
+  /**
+   * Generates levels and adds them to the queue of this prefetcher until it is stopped, or until
+   * the generator of this prefetcher gives up on a level.
+   */
+  private void work() {
+    Random rand = new Random();
+
+    try {
+      while (!this.stopped.get()) {
+        Level level = this.generator.generateLevel(rand, this.stopped::get);
+        if (level == null) return; // stopped
+
+        // waiting for room, but giving up if stopped while waiting
+        while (!this.levels.offer(level, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+          if (this.stopped.get()) return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // intentionally left blank, worker ends
+    } catch (RuntimeException e) {
+      this.failure = e;
+      this.running.decrementAndGet();
+    }
+  }
+}
@@ -42,6 +42,16 @@ public abstract class LevelSet {
     return this.levels.get(this.curLevelIndex);
   }
 
+  /**
+   * Returns whether or not this set has a level after the current one. A level that exists may
+   * still fail to load (e.g. if it could not be generated), in which case nextLevel() throws.
+   *
+   * @return whether or not there is a next level
+   */
+  public boolean hasNextLevel() {
+    return this.curLevelIndex + 1 < this.levels.size();
+  }
+
   /**
    * Advances to and returns next level in this set, if possible.
    *
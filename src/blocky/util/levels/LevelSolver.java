@@ -1,23 +1,59 @@
 package blocky.util.levels;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
-import blocky.model.BlockyModel;
 import blocky.model.BlockyModelListener;
 import blocky.model.SimpleBlockyModel;
-import blocky.model.gamepieces.GamePiece;
 import blocky.util.Direction;
 
 /**
  * A class that can be used to solve levels of the Blocky game.
  */
 public class LevelSolver implements BlockyModelListener {
+  private final SolverMode mode; // INVARIANT: never null
+  private final int stateLimit; // INVARIANT: always > 0, most configurations a search may find
+  private boolean stateLimitReached; // whether the last search gave up because of stateLimit
   private boolean levelBeat;
   private boolean fatalMoveMade;
+  private StateTable states; // ids of every configuration found while solving, reused
+  private int[] parents; // configuration each one was found from, reused between searches
+  private Direction[] parentMoves; // direction moved in from parent, reused between searches
+
+  /**
+   * Constructs a new LevelSolver that searches breadth first.
+   */
+  public LevelSolver() {
+    this(SolverMode.BREADTH_FIRST);
+  }
+
+  /**
+   * Constructs a new LevelSolver that uses the given strategy to search for solutions.
+   *
+   * @param mode strategy to use when searching for solutions
+   * @throws IllegalArgumentException if given mode is null
+   */
+  public LevelSolver(SolverMode mode) throws IllegalArgumentException {
+    if (mode == null) throw new IllegalArgumentException("Solver mode must be non-null.");
+    this.mode = mode;
+    this.stateLimit = Integer.MAX_VALUE;
+  }
+
+  /**
+   * Constructs a new LevelSolver that searches breadth first, and gives up on levels where more
+   * than the given number of configurations are found before a solution.
+   *
+   * @param stateLimit most configurations to find while searching
+   * @throws IllegalArgumentException if given limit is < 1
+   */
+  LevelSolver(int stateLimit) throws IllegalArgumentException {
+    if (stateLimit < 1) throw new IllegalArgumentException("State limit must be at least 1.");
+    this.mode = SolverMode.BREADTH_FIRST;
+    this.stateLimit = stateLimit;
+  }
 
   // -----------------------------------------------------------------------------------------------
   // BlockyModelListener INTERFACE METHODS
@@ -46,16 +82,27 @@ public class LevelSolver implements BlockyModelListener {
    * @throws IllegalStateException    if given level does not have a solution
    */
   public List<Direction> solve(Level level) throws IllegalArgumentException, IllegalStateException {
-    BlockyModel model = new SimpleBlockyModel();
-    model.setListener(this);
-    model.loadLevel(level); // will throw IAE if level is null
+    List<Direction> solution = this.search(new BitBoard(level)); // will throw IAE if level is null
+    this.checkSolution(level, solution);
+    return solution;
+  }
 
-    try {
-      return this.solveModel(model); // will throw ISE if no solution exists
-    } catch (StackOverflowError e) {
-      // this means a moving block was caught between two blues... fixme remove when fixed
-      throw new IllegalStateException("This level contains an instance of infinite recursion.");
-    }
+  /**
+   * Finds and returns every optimal solution to the given level, up to the given number of them.
+   * Every configuration of the level is explored to find them, whatever the mode of this solver.
+   *
+   * @param level level to solve
+   * @param limit largest number of solutions to return
+   * @return list of optimal solutions to level
+   * @throws IllegalArgumentException if given level is null, or if given limit is < 1
+   * @throws IllegalStateException    if given level does not have a solution
+   */
+  public List<List<Direction>> solveAll(Level level, int limit)
+          throws IllegalArgumentException, IllegalStateException {
+    List<List<Direction>> solutions = new StateGraph(new BitBoard(level)).optimalSolutions(limit);
+    if (solutions.isEmpty()) throw new IllegalStateException("No solution exists for this level.");
+    for (List<Direction> solution : solutions) this.checkSolution(level, solution);
+    return solutions;
   }
 
   // -----------------------------------------------------------------------------------------------
@@ -75,356 +122,186 @@ public class LevelSolver implements BlockyModelListener {
   }
 
   // -----------------------------------------------------------------------------------------------
-  // PRIVATE METHODS
+  // PACKAGE PRIVATE METHODS
   // -----------------------------------------------------------------------------------------------
 
   /**
-   * Finds and returns an optimal solution to the given model, if there is one.
+   * Finds and returns an optimal solution to the level on the given board, if there is one. The
+   * solution is only checked against the board, so callers should also call checkSolution() once
+   * the board has been turned into a Level.
    *
-   * @param model model to solve
+   * @param board board holding initial layout of level
    * @return list of moves to optimally solve level
-   * @throws IllegalStateException if given model does not have a solution
-   */
-  private List<Direction> solveModel(BlockyModel model) throws IllegalStateException {
-    Configuration firstConfig = new Configuration(layoutAsString(model));
-
-    // creating and initializing HashMap
-    Map<Configuration, Map<Direction, BoardStatus>> map = new HashMap<>();
-    map.put(firstConfig, new HashMap<>());
-    this.searchDirections(model, firstConfig, map);
-
-    // linking all parents/children using BFS
-    List<WinningMove> winningMoves = new ArrayList<>();
-    LinkedList<Configuration> queue = new LinkedList<>();
-    queue.add(firstConfig);
-    this.establishRelationships(queue, map, new HashMap<>(), winningMoves);
-
-    // updating solutions from root
-    for (WinningMove winningMove : winningMoves) winningMove.updateParents();
-
-    try {
-      return firstConfig.solution.toList();
-    } catch (NullPointerException e) {
-      throw new IllegalStateException("No solution exists for this level.");
-    }
-  }
-
-  /**
-   * Searches for all possible moves from the current position and stores them in the map. Calls
-   * itself on found moves until there are no moves left to be found and map is complete.
-   *
-   * @param model  model to use for searching
-   * @param config configuration to search from
-   * @param map    map to update with found moves
+   * @throws IllegalStateException if level does not have a solution, or if the state limit of this
+   *                               solver was reached first
    */
-  private void searchDirections(BlockyModel model,
-                                Configuration config,
-                                Map<Configuration, Map<Direction, BoardStatus>> map) {
-
-    Direction[] directions = Direction.allDirections();
-
-    for (Direction dir : directions) {
-      BlockyModel modelCopy = model.copy();
-
-      this.reset();
-      if (modelCopy.move(dir)) {
-        BoardStatus boardStatus;
-
-        if (this.levelBeat) {
-          // moving this way beat the game
-          boardStatus = new WinningMove();
-        } else if (this.fatalMoveMade) {
-          // moving this way resulted in game ending
-          boardStatus = new FatalMove();
-        } else {
-          // moving this way was a regular move
-          boardStatus = new Configuration(layoutAsString(modelCopy));
-
-          if (!map.containsKey(boardStatus)) {
-            Configuration newConfig = (Configuration) boardStatus;
-            map.put(newConfig, new HashMap<>());
-            this.searchDirections(modelCopy, newConfig, map);
-          }
-        }
-
-        map.get(config).put(dir, boardStatus);
-      }
+  List<Direction> search(BitBoard board) throws IllegalStateException {
+    this.stateLimitReached = false;
+
+    // all will throw ISE if no solution exists
+    switch (this.mode) {
+      case EXHAUSTIVE:
+        return this.searchAll(board);
+      case PARALLEL:
+        return new ParallelSearch(board, ForkJoinPool.commonPool()).solve();
+      case A_STAR:
+        return new AStarSearch(board).solve();
+      case IDA_STAR:
+        return new IDAStarSearch(board).solve();
+      case BREADTH_FIRST:
+      default:
+        return this.searchBreadthFirst(board);
     }
   }
 
   /**
-   * Performs breadth first search to establish parent/child relationship between BoardStatuses.
+   * Returns whether the last search of this solver gave up because it found more configurations
+   * than the state limit of this solver.
    *
-   * @param queue        queue of configurations to perform BFS on
-   * @param map          map to determine relationships from
-   * @param visited      marks whether or not a BoardStatus has been visited yet
-   * @param winningMoves list of all winning moves for this level
-   */
-  private void establishRelationships(LinkedList<Configuration> queue,
-                                      Map<Configuration, Map<Direction, BoardStatus>> map,
-                                      Map<BoardStatus, Boolean> visited,
-                                      List<WinningMove> winningMoves) {
-
-    if (queue.isEmpty()) return;
-
-    Configuration config = queue.poll();
-    Map<Direction, BoardStatus> children = map.get(config);
-
-    for (Direction direction : children.keySet()) {
-      BoardStatus child = children.get(direction);
-      if (!visited.containsKey(child)) {
-        visited.put(child, true);
-        config.addChild(direction, child);
-        if (child instanceof Configuration) queue.add((Configuration) child);
-        if (child instanceof WinningMove) winningMoves.add((WinningMove) child);
-      }
-    }
-
-    establishRelationships(queue, map, visited, winningMoves);
-  }
-
-  /**
-   * Resets stored boolean values to false.
+   * @return whether or not the state limit was reached
    */
-  private void reset() {
-    this.levelBeat = false;
-    this.fatalMoveMade = false;
+  boolean stateLimitReached() {
+    return this.stateLimitReached;
   }
 
   /**
-   * Returns the layout as a String for use as key in HashMap.
+   * Makes sure that the given solution beats the given level when played on a model, so that any
+   * difference between the model and the board used to find it cannot go unnoticed.
    *
-   * @param model model to represent with String
-   * @return String representing model
+   * @param level    level that was solved
+   * @param solution solution that was found
+   * @throws IllegalStateException if the solution does not beat the level
    */
-  private static String layoutAsString(BlockyModel model) {
-    StringBuilder layoutString = new StringBuilder();
+  void checkSolution(Level level, List<Direction> solution) throws IllegalStateException {
+    SimpleBlockyModel model = new SimpleBlockyModel(false); // sprites would never be rendered
+    model.setListener(this);
+    model.loadLevel(level);
 
-    List<List<GamePiece>> layout = model.layout();
-    for (List<GamePiece> row : layout) {
-      for (GamePiece gp : row) layoutString.append(pieceAsString(gp));
+    this.reset();
+    for (Direction dir : solution) {
+      if (this.levelBeat || this.fatalMoveMade) break;
+      model.move(dir);
     }
 
-    return layoutString.toString();
+    if (!this.levelBeat || this.fatalMoveMade) {
+      throw new IllegalStateException("Solution found for level " + level.getID()
+              + " does not beat it.");
+    }
   }
 
-  /**
-   * Determines char to use to represent GamePiece for use in HashMap key.
-   *
-   * @param gp GamePiece as String
-   * @return String representing GamePiece
-   */
-  private static String pieceAsString(GamePiece gp) {
-    String str = gp.uniqueIdentifier();
-    if (str.equals("W") || str.equals("X")) return "";
-    return str;
-  }
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
 
   /**
-   * Determines and returns a single character to use to represent the given direction.
+   * Finds and returns an optimal solution to the level on the given board, if there is one, by
+   * first finding every configuration that can be reached and the result of every move from each
+   * of them.
    *
-   * @param dir direction to represent with a character
-   * @return char representing direction
+   * @param board board to solve
+   * @return list of moves to optimally solve level
+   * @throws IllegalStateException if level does not have a solution
    */
-  private static char dirToChar(Direction dir) {
-    // gets 'L' for left, 'U' for up, etc.
-    return dir.toString().toUpperCase().charAt(0);
+  private List<Direction> searchAll(BitBoard board) throws IllegalStateException {
+    return new StateGraph(board).solution();
   }
 
-  // -----------------------------------------------------------------------------------------------
-  // PRIVATE CLASSES
-  // -----------------------------------------------------------------------------------------------
-
-  // BoardStatus classes
-
   /**
-   * Represents the status of a game board, whether there is a specific configuration, or if the
-   * game has been won, or if a fatal move has been made.
+   * Finds and returns an optimal solution to the level on the given board using an iterative
+   * breadth first search. Configurations are given ids in the order they are found, so expanding
+   * them in order of id expands them layer by layer; the first winning move found from a
+   * configuration in layer k is therefore part of a solution of k + 1 moves, and no shorter
+   * solution exists.
+   *
+   * @param board board to solve
+   * @return list of moves to optimally solve level
+   * @throws IllegalStateException if level does not have a solution, or if more configurations
+   *                               than the state limit of this solver are found first
    */
-  private abstract class BoardStatus {
-    final Map<Configuration, Direction> parents; // INVARIANT: never null
-    Solution solution; // INVARIANT: not null once set
-
-    /**
-     * Constructs a new BoardStatus object.
-     */
-    BoardStatus() {
-      this.parents = new HashMap<>();
-      this.solution = null;
+  private List<Direction> searchBreadthFirst(BitBoard board) throws IllegalStateException {
+    // storage of the last search is reused, which matters when solving many similar levels
+    if (this.states == null || this.states.words() != board.stateLength()) {
+      this.states = new StateTable(board.stateLength());
+      this.parents = new int[1024];
+      this.parentMoves = new Direction[1024];
+    } else {
+      this.states.clear();
     }
 
-    /**
-     * Adds a parent to this BoardStatus. Parents represent Configurations that can reach this
-     * BoardStatus. All parents will be notified when this BoardStatus's solution is updated.
-     *
-     * @param parent    parent of this board status
-     * @param direction direction this child was reached from parent
-     */
-    void addParent(Configuration parent, Direction direction) {
-      if (!this.parents.containsKey(parent)) {
-        this.parents.put(parent, direction);
-        parent.addChild(direction, this);
-      }
-    }
+    this.states.add(board.initialState());
+    this.parents[0] = -1;
 
-    /**
-     * Lets all parents of this status know that its child has been updated.
-     */
-    void updateParents() {
-      for (Configuration parent : this.parents.keySet()) {
-        parent.childUpdated(this.parents.get(parent));
-      }
-    }
-  }
+    long[] current = new long[board.stateLength()];
+    long[] next = new long[board.stateLength()];
 
-  /**
-   * Represents a configuration of the game board where at least one move can still be made.
-   */
-  private class Configuration extends BoardStatus {
-    final String key; // INVARIANT: never null or empty
-    final Map<Direction, BoardStatus> children; // INVARIANT: never null
-
-    /**
-     * Constructs a new Configuration object.
-     *
-     * @param key a string representing this configuration for use as key in HashMap
-     * @throws IllegalArgumentException if given string is null or empty
-     */
-    Configuration(String key) throws IllegalArgumentException {
-      super();
-
-      if (key == null || key.isEmpty()) {
-        throw new IllegalArgumentException("Key must be non-null and non-empty.");
-      }
+    for (int id = 0; id < this.states.size(); id++) {
+      this.states.copyKey(id, current);
 
-      this.key = key;
-      this.children = new HashMap<>();
-    }
+      for (Direction dir : Direction.allDirections()) {
+        int outcome = board.move(current, dir, next);
 
-    @Override
-    public boolean equals(Object other) {
-      if (!(other instanceof Configuration)) return false;
-      Configuration that = (Configuration) other;
-      return this.key.equals(that.key);
-    }
+        if (outcome == BitBoard.WINNING_MOVE) {
+          List<Direction> solution = this.pathTo(id, this.parents, this.parentMoves);
+          solution.add(dir);
+          return solution;
+        } else if (outcome != BitBoard.MOVED || board.lowerBound(next) == BitBoard.UNREACHABLE) {
+          continue; // no solution can go through this move
+        }
 
-    @Override
-    public int hashCode() {
-      return this.key.hashCode();
-    }
+        int newID = this.states.size();
+        if (this.states.add(next) == newID) {
+          if (newID == this.parents.length) {
+            this.parents = Arrays.copyOf(this.parents, newID * 2);
+            this.parentMoves = Arrays.copyOf(this.parentMoves, newID * 2);
+          }
 
-    /**
-     * Adds a child to this Configuration, and adds this Configuration as parent to child.
-     *
-     * @param directionOfChild direction that child can be reached from
-     * @param child            child to add to this Configuration
-     */
-    void addChild(Direction directionOfChild, BoardStatus child) {
-      if (!this.children.containsKey(directionOfChild)) {
-        this.children.put(directionOfChild, child);
-        child.addParent(this, directionOfChild);
-      }
-    }
+          this.parents[newID] = id;
+          this.parentMoves[newID] = dir;
 
-    /**
-     * Notifies this Configuration that its child has updated its solution.
-     *
-     * @param directionOfChild direction of child that updated
-     */
-    void childUpdated(Direction directionOfChild) {
-      Solution childSolution = this.children.get(directionOfChild).solution;
-      if (this.solution == null || ((childSolution.size() + 1 < this.solution.size()))) {
-        this.solution = new WinningSolution(directionOfChild, childSolution);
-        this.updateParents();
+          if (this.states.size() > this.stateLimit) {
+            this.stateLimitReached = true;
+            throw new IllegalStateException("Level has more than " + this.stateLimit
+                    + " configurations.");
+          }
+        }
       }
     }
-  }
 
-  /**
-   * Represents a winning move made by the player, meaning this is the final step of a solution.
-   */
-  private class WinningMove extends BoardStatus {
-    /**
-     * Constructs a new WinningMove object.
-     */
-    WinningMove() {
-      super();
-      this.solution = new EndOfSolution();
-    }
+    throw new IllegalStateException("No solution exists for this level.");
   }
 
   /**
-   * Represents a fatal move made by the player, meaning there is no solution here.
-   */
-  private class FatalMove extends BoardStatus { }
-
-  // Solution classes (same concept as ConsList)
-
-  /**
-   * Represents a solution with a series of directions as steps.
+   * Follows parent pointers from the configuration with the given id back to the first
+   * configuration, and returns the moves that lead from the first configuration to it.
+   *
+   * @param id          id of configuration to find path to
+   * @param parents     id of the parent of each configuration, or -1 for the first configuration
+   * @param parentMoves direction moved in to get from the parent of each configuration to it
+   * @return list of moves leading to configuration
    */
-  private abstract class Solution {
-    /**
-     * Finds and returns the number of steps in this solution.
-     *
-     * @return size of this solution
-     */
-    abstract int size();
-
-    /**
-     * Converts this solution to a list of directions.
-     *
-     * @return list of directions representing solution
-     */
-    abstract List<Direction> toList();
+  private List<Direction> pathTo(int id, int[] parents, Direction[] parentMoves) {
+    List<Direction> path = new ArrayList<>();
+    for (int cur = id; parents[cur] != -1; cur = parents[cur]) path.add(parentMoves[cur]);
+    Collections.reverse(path);
+    return path;
   }
 
   /**
-   * Represents a winning solution.
+   * Resets stored boolean values to false.
    */
-  private class WinningSolution extends Solution {
-    Direction move;
-    Solution rest;
-    private final int size;
-
-    /**
-     * Constructs a new WinningSolution object.
-     *
-     * @param move the first direction of this solution
-     * @param rest the rest of this solution
-     */
-    WinningSolution(Direction move, Solution rest) {
-      this.move = move;
-      this.rest = rest;
-      this.size = rest.size() + 1;
-    }
-
-    @Override
-    int size() {
-      return this.size;
-    }
-
-    @Override
-    List<Direction> toList() {
-      List<Direction> list = new ArrayList<>();
-      list.add(this.move);
-      list.addAll(this.rest.toList());
-      return list;
-    }
+  private void reset() {
+    this.levelBeat = false;
+    this.fatalMoveMade = false;
   }
 
   /**
-   * Represents the end of a solution.
+   * Determines and returns a single character to use to represent the given direction.
+   *
+   * @param dir direction to represent with a character
+   * @return char representing direction
    */
-  private class EndOfSolution extends Solution {
-    @Override
-    int size() {
-      return 0;
-    }
-
-    @Override
-    List<Direction> toList() {
-      return new ArrayList<>();
-    }
+  private static char dirToChar(Direction dir) {
+    // gets 'L' for left, 'U' for up, etc.
+    return dir.toString().toUpperCase().charAt(0);
   }
 }
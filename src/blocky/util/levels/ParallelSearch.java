@@ -0,0 +1,285 @@
+package blocky.util.levels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import blocky.util.Direction;
+
+/**
+ * A breadth first search over the configurations of a BitBoard that expands each layer of the
+ * search in parallel. The frontier of each layer is split into chunks that are expanded by the
+ * threads of a ForkJoinPool, with new configurations found through a shared StripedStateSet. A
+ * layer is only started once the one before it is complete, so the first layer with a winning move
+ * holds an optimal solution; of all winning moves in that layer, the one from the earliest
+ * configuration in the frontier is chosen.
+ */
+class ParallelSearch {
+  private static final int CHUNK_SIZE = 512; // configurations expanded by one task
+  private static final int NO_WIN = Integer.MAX_VALUE;
+  private static final Direction[] DIRECTIONS = Direction.allDirections();
+
+  private final BitBoard board; // INVARIANT: never null
+  private final ForkJoinPool pool; // INVARIANT: never null
+  private final int words; // INVARIANT: always > 0, number of longs in every state
+  private final StripedStateSet visited; // INVARIANT: never null
+  private final List<Layer> layers; // INVARIANT: never null, layers.get(d) is frontier at depth d
+
+  /**
+   * Constructs a new ParallelSearch over the given board that runs in the given pool.
+   *
+   * @param board board to search
+   * @param pool  pool to expand frontiers in
+   * @throws IllegalArgumentException if given board or pool is null
+   */
+  ParallelSearch(BitBoard board, ForkJoinPool pool) throws IllegalArgumentException {
+    if (board == null || pool == null) {
+      throw new IllegalArgumentException("Board and pool must be non-null.");
+    }
+
+    this.board = board;
+    this.pool = pool;
+    this.words = board.stateLength();
+    this.visited = new StripedStateSet(this.words);
+    this.layers = new ArrayList<>();
+  }
+
+  /**
+   * Finds and returns an optimal solution to the level on the board of this search.
+   *
+   * @return list of moves to optimally solve level
+   * @throws IllegalStateException if level does not have a solution, or if a piece would be moved
+   *                               off the board
+   */
+  List<Direction> solve() throws IllegalStateException {
+    long[] first = this.board.initialState();
+    this.visited.add(first);
+    this.layers.add(new Layer(first, new int[] {-1}, new byte[] {-1}, 1));
+
+    while (true) {
+      Layer frontier = this.layers.get(this.layers.size() - 1);
+      if (frontier.size == 0) throw new IllegalStateException("No solution exists for this level.");
+
+      int chunks = (frontier.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+      Chunk[] results = new Chunk[chunks];
+      AtomicInteger bestWin = new AtomicInteger(NO_WIN);
+      this.pool.invoke(new Expansion(frontier, 0, chunks, results, bestWin));
+
+      if (bestWin.get() != NO_WIN) {
+        int win = bestWin.get();
+        List<Direction> solution = this.pathTo(this.layers.size() - 1, win / DIRECTIONS.length);
+        solution.add(DIRECTIONS[win % DIRECTIONS.length]);
+        return solution;
+      }
+
+      this.layers.add(this.merge(results));
+    }
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Expands the configurations in the given chunk of the given frontier, recording every
+   * configuration not found before and the earliest winning move.
+   *
+   * @param frontier frontier to expand
+   * @param chunk    index of chunk to expand
+   * @param bestWin  earliest winning move found in frontier so far, as index * 4 + direction
+   * @return configurations found from chunk
+   * @throws IllegalStateException if a piece would be moved off the board
+   */
+  private Chunk expand(Layer frontier, int chunk, AtomicInteger bestWin)
+          throws IllegalStateException {
+    Chunk found = new Chunk(this.words);
+    long[] current = new long[this.words];
+    long[] next = new long[this.words];
+    int end = Math.min(frontier.size, (chunk + 1) * CHUNK_SIZE);
+
+    for (int index = chunk * CHUNK_SIZE; index < end; index++) {
+      // no configuration after the earliest winning move can lead to the chosen solution
+      if (index * DIRECTIONS.length > bestWin.get()) break;
+      System.arraycopy(frontier.states, index * this.words, current, 0, this.words);
+
+      for (int d = 0; d < DIRECTIONS.length; d++) {
+        int outcome = this.board.move(current, DIRECTIONS[d], next);
+
+        if (outcome == BitBoard.WINNING_MOVE) {
+          int win = index * DIRECTIONS.length + d;
+          int best = bestWin.get();
+          while (win < best && !bestWin.compareAndSet(best, win)) best = bestWin.get();
+          break;
+        } else if (outcome == BitBoard.MOVED && this.board.lowerBound(next) != BitBoard.UNREACHABLE
+                && this.visited.add(next)) {
+          found.add(next, index, d);
+        }
+      }
+    }
+
+    return found;
+  }
+
+  /**
+   * Joins the configurations found from every chunk of a frontier into the next frontier, in order
+   * of chunk.
+   *
+   * @param results configurations found from each chunk
+   * @return next frontier
+   */
+  private Layer merge(Chunk[] results) {
+    int size = 0;
+    for (Chunk result : results) size += result.size;
+
+    Layer layer = new Layer(new long[size * this.words], new int[size], new byte[size], size);
+    int offset = 0;
+    for (Chunk result : results) {
+      System.arraycopy(result.states, 0, layer.states, offset * this.words,
+              result.size * this.words);
+      System.arraycopy(result.parents, 0, layer.parents, offset, result.size);
+      System.arraycopy(result.moves, 0, layer.moves, offset, result.size);
+      offset += result.size;
+    }
+
+    return layer;
+  }
+
+  /**
+   * Follows parents from the configuration at the given index of the given layer back to the first
+   * configuration, and returns the moves that lead from the first configuration to it.
+   *
+   * @param depth depth of layer holding configuration
+   * @param index index of configuration in layer
+   * @return list of moves leading to configuration
+   */
+  private List<Direction> pathTo(int depth, int index) {
+    List<Direction> path = new ArrayList<>();
+    for (int d = depth; d > 0; d--) {
+      Layer layer = this.layers.get(d);
+      path.add(DIRECTIONS[layer.moves[index]]);
+      index = layer.parents[index];
+    }
+
+    Collections.reverse(path);
+    return path;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE CLASSES
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Represents every configuration first found at one depth of the search.
+   */
+  private static class Layer {
+    final long[] states; // packed state of configuration i starts at i * words
+    final int[] parents; // index of parent of each configuration in previous layer
+    final byte[] moves; // index in DIRECTIONS of move from parent to each configuration
+    final int size; // number of configurations in layer
+
+    /**
+     * Constructs a new Layer from the given arrays.
+     *
+     * @param states  packed states of configurations
+     * @param parents index of parent of each configuration
+     * @param moves   move from parent to each configuration
+     * @param size    number of configurations
+     */
+    Layer(long[] states, int[] parents, byte[] moves, int size) {
+      this.states = states;
+      this.parents = parents;
+      this.moves = moves;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Represents the configurations found by expanding one chunk of a frontier.
+   */
+  private static class Chunk {
+    final int words; // number of longs in every state
+    long[] states;
+    int[] parents;
+    byte[] moves;
+    int size;
+
+    /**
+     * Constructs a new, empty Chunk for states of the given number of longs.
+     *
+     * @param words number of longs in every state
+     */
+    Chunk(int words) {
+      this.words = words;
+      this.states = new long[64 * words];
+      this.parents = new int[64];
+      this.moves = new byte[64];
+      this.size = 0;
+    }
+
+    /**
+     * Adds a configuration to this chunk.
+     *
+     * @param state  packed state of configuration
+     * @param parent index of parent of configuration in frontier
+     * @param move   index in DIRECTIONS of move from parent to configuration
+     */
+    void add(long[] state, int parent, int move) {
+      if (this.size == this.parents.length) {
+        this.states = Arrays.copyOf(this.states, this.states.length * 2);
+        this.parents = Arrays.copyOf(this.parents, this.size * 2);
+        this.moves = Arrays.copyOf(this.moves, this.size * 2);
+      }
+
+      System.arraycopy(state, 0, this.states, this.size * this.words, this.words);
+      this.parents[this.size] = parent;
+      this.moves[this.size] = (byte) move;
+      this.size++;
+    }
+  }
+
+  /**
+   * Task that expands a range of chunks of a frontier, splitting the range in half until only one
+   * chunk is left.
+   */
+  private class Expansion extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Layer frontier;
+    private final int from, to; // range of chunks to expand, exclusive of to
+    private final Chunk[] results;
+    private final AtomicInteger bestWin;
+
+    /**
+     * Constructs a new Expansion of the given range of chunks.
+     *
+     * @param frontier frontier to expand
+     * @param from     first chunk to expand
+     * @param to       chunk after last to expand
+     * @param results  array to store configurations found from each chunk in
+     * @param bestWin  earliest winning move found in frontier so far
+     */
+    Expansion(Layer frontier, int from, int to, Chunk[] results, AtomicInteger bestWin) {
+      this.frontier = frontier;
+      this.from = from;
+      this.to = to;
+      this.results = results;
+      this.bestWin = bestWin;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from == 1) {
+        ParallelSearch search = ParallelSearch.this;
+        this.results[this.from] = search.expand(this.frontier, this.from, this.bestWin);
+      } else {
+        int mid = (this.from + this.to) >>> 1;
+        invokeAll(new Expansion(this.frontier, this.from, mid, this.results, this.bestWin),
+                new Expansion(this.frontier, mid, this.to, this.results, this.bestWin));
+      }
+    }
+  }
+}
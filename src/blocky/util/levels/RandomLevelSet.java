@@ -5,44 +5,90 @@ import java.util.List;
 
 /**
  * Represents an endless set of randomly generated levels for the Blocky game. Levels are generated
- * as needed when the nextLevel() method is called.
+ * ahead of time by background threads and kept in a bounded queue, so that the nextLevel() method
+ * only has to wait for a level to be generated when the queue has run dry.
  */
 public class RandomLevelSet extends LevelSet {
-  private final LevelGenerator generator; // INVARIANT: never null
+  public static final int DEFAULT_DEPTH = 4; // levels kept ready by default
+  public static final int DEFAULT_WORKERS = 1; // threads generating levels by default
+
+  private final LevelPrefetcher prefetcher; // INVARIANT: never null
 
   /**
-   * Constructs a new RandomLevelSet that uses the given LevelGenerator to generate new levels.
+   * Constructs a new RandomLevelSet that uses the given LevelGenerator to generate new levels,
+   * keeping DEFAULT_DEPTH levels ready using DEFAULT_WORKERS threads.
    *
    * @param generator generator to use for random level generation
    * @throws IllegalArgumentException if given generator is null
    */
   public RandomLevelSet(LevelGenerator generator) throws IllegalArgumentException {
-    super(levelList(generator));
-    this.generator = generator;
+    this(generator, DEFAULT_DEPTH, DEFAULT_WORKERS);
+  }
+
+  /**
+   * Constructs a new RandomLevelSet that uses the given LevelGenerator to generate new levels,
+   * keeping up to the given number of levels ready using the given number of threads.
+   *
+   * @param generator generator to use for random level generation
+   * @param depth     largest number of levels to keep ready
+   * @param workers   number of threads to generate levels on
+   * @throws IllegalArgumentException if given generator is null, or if depth or workers is < 1
+   */
+  public RandomLevelSet(LevelGenerator generator, int depth, int workers)
+          throws IllegalArgumentException {
+    this(new LevelPrefetcher(generator, depth, workers));
+  }
+
+  /**
+   * Constructs a new RandomLevelSet that takes its levels from the given prefetcher.
+   *
+   * @param prefetcher prefetcher to take levels from
+   */
+  private RandomLevelSet(LevelPrefetcher prefetcher) {
+    super(levelList(prefetcher));
+    this.prefetcher = prefetcher;
+  }
+
+  @Override
+  public boolean hasNextLevel() {
+    return super.hasNextLevel() || !this.prefetcher.stopped() || this.prefetcher.ready() > 0;
   }
 
   @Override
-  public Level nextLevel() {
+  public Level nextLevel() throws IllegalStateException {
     try {
       return super.nextLevel();
     } catch (IllegalStateException e) {
-      this.levels.add(this.generator.generateLevel());
+      this.levels.add(this.prefetcher.take()); // only waits if no level is ready
       return super.nextLevel();
     }
   }
 
   /**
-   * Returns a list containing a single level generated by the given generator.
+   * Returns the number of levels that have been generated ahead of time and are ready to be played.
    *
-   * @param generator generator to use for random level in list
-   * @return list containing random level
-   * @throws IllegalArgumentException if given generator is null
+   * @return number of levels ready
    */
-  private static List<Level> levelList(LevelGenerator generator) throws IllegalArgumentException {
-    if (generator == null) throw new IllegalArgumentException("Generator must be non-null.");
+  public int levelsReady() {
+    return this.prefetcher.ready();
+  }
 
+  /**
+   * Stops generating levels in the background. Levels that are ready can still be advanced to.
+   */
+  public void stopGenerating() {
+    this.prefetcher.stop();
+  }
+
+  /**
+   * Returns a list containing the first level taken from the given prefetcher.
+   *
+   * @param prefetcher prefetcher to take level from
+   * @return list containing random level
+   */
+  private static List<Level> levelList(LevelPrefetcher prefetcher) {
     List<Level> list = new ArrayList<>();
-    list.add(generator.generateLevel());
+    list.add(prefetcher.take());
     return list;
   }
 }
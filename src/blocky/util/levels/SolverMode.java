@@ -0,0 +1,56 @@
+package blocky.util.levels;
+
+/**
+ * Represents the strategy that a LevelSolver uses to search for an optimal solution.
+ */
+public enum SolverMode {
+  /**
+   * Explores every reachable configuration of the level before working out the solution.
+   */
+  EXHAUSTIVE,
+
+  /**
+   * Searches breadth first from the starting configuration and stops at the first winning move.
+   */
+  BREADTH_FIRST,
+
+  /**
+   * Searches breadth first like BREADTH_FIRST, but expands each layer of the search in parallel.
+   */
+  PARALLEL,
+
+  /**
+   * Searches with A*, expanding the configurations that seem closest to a solution first.
+   */
+  A_STAR,
+
+  /**
+   * Searches with iterative deepening A*, which uses a fixed amount of memory however many
+   * configurations the level has.
+   */
+  IDA_STAR;
+
+  /**
+   * Parses given String as SolverMode, if possible.
+   *
+   * @param str String from which to parse SolverMode
+   * @return SolverMode parsed from String
+   * @throws IllegalArgumentException if given String could not be parsed as SolverMode
+   */
+  public static SolverMode parseString(String str) throws IllegalArgumentException {
+    switch (str) {
+      case "all":
+        return EXHAUSTIVE;
+      case "bfs":
+        return BREADTH_FIRST;
+      case "parallel":
+        return PARALLEL;
+      case "astar":
+        return A_STAR;
+      case "idastar":
+        return IDA_STAR;
+      default:
+        throw new IllegalArgumentException("Could not parse \"" + str + "\" as SolverMode");
+    }
+  }
+}
@@ -0,0 +1,320 @@
+package blocky.util.levels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import blocky.util.Direction;
+
+/**
+ * The graph of every configuration that can be reached in a level, stored entirely in int arrays.
+ * Configurations are numbered in the order they are found from the starting ones (ids 0 to the
+ * number of starting configurations - 1), and the result of moving in each direction from each
+ * configuration is stored in a single successor array. The edges are also stored in reverse in
+ * compressed sparse row form, which is used to find the fewest moves needed to win from every
+ * configuration at once; solutions are then read off by following moves that bring the player one
+ * move closer to winning.
+ */
+class StateGraph {
+  // values stored in this.successors for moves that do not lead to another configuration
+  static final int NO_MOVE = -1;
+  static final int WINNING_MOVE = -2;
+  static final int FATAL_MOVE = -3;
+  static final int DEAD_MOVE = -4; // leads to a configuration that can never win, not explored
+  static final int UNREACHABLE = Integer.MAX_VALUE; // distance of configurations that cannot win
+
+  private static final int MOVES_PER_STATE = 4; // one per direction, indexed by ordinal
+  private static final Direction[] DIRECTIONS = Direction.allDirections();
+
+  private final int size; // INVARIANT: always > 0, number of configurations
+  private final int[] successors; // INVARIANT: never null, result of each move, id * 4 + ordinal
+  private final int[] predecessorStarts; // INVARIANT: never null, start of each id in predecessors
+  private final int[] predecessors; // INVARIANT: never null, configurations leading to each id
+  private final int[] distances; // INVARIANT: never null, fewest moves to win from each id
+
+  /**
+   * Constructs the graph of every configuration that can be reached on the given board.
+   *
+   * @param board board to explore
+   * @throws IllegalArgumentException if given board is null
+   * @throws IllegalStateException    if a piece would be moved off the board
+   */
+  StateGraph(BitBoard board) throws IllegalArgumentException, IllegalStateException {
+    this(board, startOf(board), Integer.MAX_VALUE); // will throw IAE if board is null
+  }
+
+  /**
+   * Constructs the graph of every configuration that can be reached on the given board from any of
+   * the given starting states, which are given ids in the order they are listed, unless there are
+   * more than the given number of them.
+   *
+   * @param board      board to explore
+   * @param starts     distinct states to explore from
+   * @param stateLimit most configurations to explore
+   * @throws IllegalArgumentException if any argument is null, if starts is empty, or if any two
+   *                                  starting states are the same
+   * @throws IllegalStateException    if a piece would be moved off the board, or if more than
+   *                                  stateLimit configurations can be reached
+   */
+  StateGraph(BitBoard board, List<long[]> starts, int stateLimit)
+          throws IllegalArgumentException, IllegalStateException {
+    if (board == null || starts == null || starts.isEmpty()) {
+      throw new IllegalArgumentException("Board and starting states must be non-null and "
+              + "non-empty.");
+    }
+
+    StateTable states = new StateTable(board.stateLength());
+    int[] moves = new int[1024 * MOVES_PER_STATE];
+    for (long[] start : starts) {
+      int newID = states.size();
+      if (states.add(start) != newID) {
+        throw new IllegalArgumentException("Starting states must be distinct.");
+      }
+    }
+
+    long[] current = new long[board.stateLength()];
+    long[] next = new long[board.stateLength()];
+
+    // every configuration is expanded once, in the order they were found
+    for (int id = 0; id < states.size(); id++) {
+      if (states.size() > stateLimit) {
+        throw new IllegalStateException("Level has more than " + stateLimit + " configurations.");
+      }
+
+      states.copyKey(id, current);
+      if ((id + 1) * MOVES_PER_STATE > moves.length) moves = Arrays.copyOf(moves, moves.length * 2);
+
+      for (Direction dir : DIRECTIONS) {
+        int move;
+        switch (board.move(current, dir, next)) {
+          case BitBoard.WINNING_MOVE:
+            move = WINNING_MOVE;
+            break;
+          case BitBoard.FATAL_MOVE:
+          case BitBoard.INFINITE_MOVE:
+            move = FATAL_MOVE;
+            break;
+          case BitBoard.MOVED:
+            move = board.lowerBound(next) == BitBoard.UNREACHABLE ? DEAD_MOVE : states.add(next);
+            break;
+          default:
+            move = NO_MOVE;
+            break;
+        }
+
+        moves[id * MOVES_PER_STATE + dir.ordinal()] = move;
+      }
+    }
+
+    this.size = states.size();
+    this.successors = Arrays.copyOf(moves, this.size * MOVES_PER_STATE);
+    this.predecessorStarts = new int[this.size + 1];
+    this.predecessors = this.buildPredecessors();
+    this.distances = this.buildDistances();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PACKAGE PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the number of configurations in this graph.
+   *
+   * @return number of configurations
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the result of moving in the given direction from the configuration with the given id.
+   *
+   * @param id  id of configuration
+   * @param dir direction to move in
+   * @return id of configuration reached, or NO_MOVE, WINNING_MOVE, FATAL_MOVE, or DEAD_MOVE
+   * @throws IllegalArgumentException if no configuration has the given id
+   */
+  int successor(int id, Direction dir) throws IllegalArgumentException {
+    this.requireID(id);
+    return this.successors[id * MOVES_PER_STATE + dir.ordinal()];
+  }
+
+  /**
+   * Returns the fewest moves needed to win from the configuration with the given id.
+   *
+   * @param id id of configuration
+   * @return fewest moves needed to win, or UNREACHABLE if the level cannot be won from it
+   * @throws IllegalArgumentException if no configuration has the given id
+   */
+  int distanceToWin(int id) throws IllegalArgumentException {
+    this.requireID(id);
+    return this.distances[id];
+  }
+
+  /**
+   * Returns an optimal solution from the first configuration. Of all optimal solutions, the one
+   * returned takes the first direction in Direction.allDirections() wherever there is a choice.
+   *
+   * @return list of moves to optimally solve level
+   * @throws IllegalStateException if level does not have a solution
+   */
+  List<Direction> solution() throws IllegalStateException {
+    return this.solution(0);
+  }
+
+  /**
+   * Returns an optimal solution from the configuration with the given id, chosen as solution()
+   * chooses it from the first configuration.
+   *
+   * @param id id of configuration to solve from
+   * @return list of moves to optimally win from configuration
+   * @throws IllegalArgumentException if no configuration has the given id
+   * @throws IllegalStateException    if level cannot be won from configuration
+   */
+  List<Direction> solution(int id) throws IllegalArgumentException, IllegalStateException {
+    this.requireID(id);
+    if (this.distances[id] == UNREACHABLE) {
+      throw new IllegalStateException("No solution exists for this level.");
+    }
+
+    List<List<Direction>> solutions = new ArrayList<>();
+    this.collectSolutions(id, new ArrayList<>(), solutions, 1);
+    return solutions.get(0);
+  }
+
+  /**
+   * Returns every optimal solution from the first configuration, up to the given number of them,
+   * ordered by the order of their moves in Direction.allDirections().
+   *
+   * @param limit largest number of solutions to return
+   * @return list of optimal solutions, empty if level does not have a solution
+   * @throws IllegalArgumentException if given limit is < 1
+   */
+  List<List<Direction>> optimalSolutions(int limit) throws IllegalArgumentException {
+    if (limit < 1) throw new IllegalArgumentException("Limit must be at least 1.");
+
+    List<List<Direction>> solutions = new ArrayList<>();
+    if (this.distances[0] != UNREACHABLE) {
+      this.collectSolutions(0, new ArrayList<>(), solutions, limit);
+    }
+
+    return solutions;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Adds every optimal solution from the given configuration to the given list, each preceded by
+   * the given moves, until the list holds the given number of solutions.
+   *
+   * @param id        id of configuration to search from
+   * @param moves     moves made to reach configuration
+   * @param solutions list to add solutions to
+   * @param limit     largest number of solutions to find
+   */
+  private void collectSolutions(int id, List<Direction> moves, List<List<Direction>> solutions,
+                                int limit) {
+    for (Direction dir : DIRECTIONS) {
+      if (solutions.size() == limit) return;
+
+      int next = this.successors[id * MOVES_PER_STATE + dir.ordinal()];
+      boolean winning = next == WINNING_MOVE && this.distances[id] == 1;
+      boolean closer = next >= 0 && this.distances[next] == this.distances[id] - 1;
+      if (!winning && !closer) continue;
+
+      moves.add(dir);
+      if (winning) {
+        solutions.add(new ArrayList<>(moves));
+      } else {
+        this.collectSolutions(next, moves, solutions, limit);
+      }
+
+      moves.remove(moves.size() - 1);
+    }
+  }
+
+  /**
+   * Builds the reverse of every edge between two configurations, grouped by the configuration the
+   * edge leads to, and fills in this.predecessorStarts.
+   *
+   * @return configurations leading to each configuration, starting at its predecessorStarts entry
+   */
+  private int[] buildPredecessors() {
+    // counting edges into each configuration, then turning counts into starting points
+    for (int move : this.successors) if (move >= 0) this.predecessorStarts[move + 1]++;
+    for (int id = 0; id < this.size; id++) {
+      this.predecessorStarts[id + 1] += this.predecessorStarts[id];
+    }
+
+    int[] predecessors = new int[this.predecessorStarts[this.size]];
+    int[] filled = Arrays.copyOf(this.predecessorStarts, this.size);
+    for (int i = 0; i < this.successors.length; i++) {
+      int move = this.successors[i];
+      if (move >= 0) predecessors[filled[move]++] = i / MOVES_PER_STATE;
+    }
+
+    return predecessors;
+  }
+
+  /**
+   * Finds the fewest moves needed to win from every configuration with a breadth first search
+   * backwards from the configurations that have a winning move.
+   *
+   * @return fewest moves needed to win from each configuration, or UNREACHABLE
+   */
+  private int[] buildDistances() {
+    int[] distances = new int[this.size];
+    Arrays.fill(distances, UNREACHABLE);
+    int[] queue = new int[this.size];
+    int head = 0;
+    int tail = 0;
+
+    for (int id = 0; id < this.size; id++) {
+      for (int i = 0; i < MOVES_PER_STATE; i++) {
+        if (this.successors[id * MOVES_PER_STATE + i] == WINNING_MOVE) {
+          distances[id] = 1;
+          queue[tail++] = id;
+          break;
+        }
+      }
+    }
+
+    while (head < tail) {
+      int id = queue[head++];
+      for (int i = this.predecessorStarts[id]; i < this.predecessorStarts[id + 1]; i++) {
+        int predecessor = this.predecessors[i];
+        if (distances[predecessor] == UNREACHABLE) {
+          distances[predecessor] = distances[id] + 1;
+          queue[tail++] = predecessor;
+        }
+      }
+    }
+
+    return distances;
+  }
+
+  /**
+   * Returns a list holding the initial state of the given board.
+   *
+   * @param board board to read
+   * @return list holding initial state of board
+   * @throws IllegalArgumentException if given board is null
+   */
+  private static List<long[]> startOf(BitBoard board) throws IllegalArgumentException {
+    if (board == null) throw new IllegalArgumentException("Board must be non-null.");
+    return Collections.singletonList(board.initialState());
+  }
+
+  /**
+   * Throws IAE if no configuration has the given id.
+   *
+   * @param id id to check
+   * @throws IllegalArgumentException if no configuration has the given id
+   */
+  private void requireID(int id) throws IllegalArgumentException {
+    if (id < 0 || id >= this.size) throw new IllegalArgumentException("No configuration " + id);
+  }
+}
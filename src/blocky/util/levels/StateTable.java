@@ -0,0 +1,189 @@
+package blocky.util.levels;
+
+import java.util.Arrays;
+
+/**
+ * A hash table that assigns int ids to packed board states (see BlockyModel.packedLayout()). Ids
+ * are handed out in order starting at 0, so they can be used to index plain arrays of per-state
+ * data. Keys are stored back to back in a single array of longs and looked up using open addressing
+ * with linear probing; the table doubles in size whenever it becomes half full.
+ */
+class StateTable {
+  private static final int EMPTY_SLOT = -1;
+  private static final int INITIAL_SLOTS = 1024; // must be a power of two
+
+  private final int words; // INVARIANT: always > 0, number of longs in every key
+  private long[] keys; // INVARIANT: never null, key of state with id i starts at i * words
+  private int[] hashes; // INVARIANT: never null, hash of state with id i is at index i
+  private int[] slots; // INVARIANT: never null, length is a power of two, holds ids or EMPTY_SLOT
+  private int size; // INVARIANT: never negative, always < half of slots.length
+
+  /**
+   * Constructs a new, empty StateTable for keys of the given number of longs.
+   *
+   * @param words number of longs in every key
+   * @throws IllegalArgumentException if given number of words is < 1
+   */
+  StateTable(int words) throws IllegalArgumentException {
+    if (words < 1) throw new IllegalArgumentException("Keys must contain at least one long.");
+
+    this.words = words;
+    this.keys = new long[INITIAL_SLOTS / 2 * words];
+    this.hashes = new int[INITIAL_SLOTS / 2];
+    this.slots = new int[INITIAL_SLOTS];
+    Arrays.fill(this.slots, EMPTY_SLOT);
+    this.size = 0;
+  }
+
+  /**
+   * Returns the number of states in this table.
+   *
+   * @return number of states in this table
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the number of longs in every key of this table.
+   *
+   * @return number of longs in every key
+   */
+  int words() {
+    return this.words;
+  }
+
+  /**
+   * Finds and returns the id of the given state, or -1 if it is not in this table.
+   *
+   * @param key packed state to find
+   * @return id of given state, or -1 if not found
+   */
+  int find(long[] key) {
+    int hash = this.hash(key);
+    int mask = this.slots.length - 1;
+
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int id = this.slots[slot];
+      if (id == EMPTY_SLOT) return -1;
+      if (this.hashes[id] == hash && this.keyEquals(id, key)) return id;
+    }
+  }
+
+  /**
+   * Adds the given state to this table if it is not already in it, and returns its id. New states
+   * are given the id equal to the size of this table before they were added.
+   *
+   * @param key packed state to add
+   * @return id of given state
+   */
+  int add(long[] key) {
+    int hash = this.hash(key);
+    int mask = this.slots.length - 1;
+
+    int slot = hash & mask;
+    for (int id = this.slots[slot]; id != EMPTY_SLOT; id = this.slots[slot]) {
+      if (this.hashes[id] == hash && this.keyEquals(id, key)) return id;
+      slot = (slot + 1) & mask;
+    }
+
+    int id = this.size;
+    if (id == this.hashes.length) this.growStorage();
+    System.arraycopy(key, 0, this.keys, id * this.words, this.words);
+    this.hashes[id] = hash;
+    this.slots[slot] = id;
+    this.size++;
+
+    if (this.size * 2 >= this.slots.length) this.rehash();
+    return id;
+  }
+
+  /**
+   * Copies the key of the state with the given id into the given array.
+   *
+   * @param id  id of state to copy
+   * @param out array to copy key into, must have room for at least words() longs
+   * @throws IllegalArgumentException if no state with the given id exists
+   */
+  void copyKey(int id, long[] out) throws IllegalArgumentException {
+    if (id < 0 || id >= this.size) throw new IllegalArgumentException("No state with id " + id);
+    System.arraycopy(this.keys, id * this.words, out, 0, this.words);
+  }
+
+  /**
+   * Removes every state from this table while keeping its storage for reuse.
+   */
+  void clear() {
+    Arrays.fill(this.slots, EMPTY_SLOT);
+    this.size = 0;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PRIVATE METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Determines whether the stored key of the state with the given id equals the given key.
+   *
+   * @param id  id of stored state
+   * @param key key to compare against
+   * @return whether or not the keys are equal
+   */
+  private boolean keyEquals(int id, long[] key) {
+    int offset = id * this.words;
+    for (int i = 0; i < this.words; i++) if (this.keys[offset + i] != key[i]) return false;
+    return true;
+  }
+
+  /**
+   * Doubles the capacity of the key and hash storage.
+   */
+  private void growStorage() {
+    this.keys = Arrays.copyOf(this.keys, this.keys.length * 2);
+    this.hashes = Arrays.copyOf(this.hashes, this.hashes.length * 2);
+  }
+
+  /**
+   * Doubles the number of slots and reinserts every id using its stored hash.
+   */
+  private void rehash() {
+    this.slots = new int[this.slots.length * 2];
+    Arrays.fill(this.slots, EMPTY_SLOT);
+    int mask = this.slots.length - 1;
+
+    for (int id = 0; id < this.size; id++) {
+      int slot = this.hashes[id] & mask;
+      while (this.slots[slot] != EMPTY_SLOT) slot = (slot + 1) & mask;
+      this.slots[slot] = id;
+    }
+  }
+
+  /**
+   * Computes the hash of the given key, mixing the bits so that low bits can be used for indexing.
+   *
+   * @param key key to hash
+   * @return hash of key
+   */
+  private int hash(long[] key) {
+    return hash(key, this.words);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // PACKAGE PRIVATE STATIC METHODS
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Computes the hash of the first given number of longs of the given key, mixing the bits so that
+   * both low and high bits can be used for indexing.
+   *
+   * @param key   key to hash
+   * @param words number of longs in key
+   * @return hash of key
+   */
+  static int hash(long[] key, int words) {
+    long h = 0;
+    for (int i = 0; i < words; i++) h = (h ^ key[i]) * 0x9E3779B97F4A7C15L;
+    h ^= (h >>> 32);
+    return (int) (h ^ (h >>> 16));
+  }
+}
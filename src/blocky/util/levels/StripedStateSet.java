@@ -0,0 +1,42 @@
+package blocky.util.levels;
+
+/**
+ * A set of packed board states that can be added to by many threads at once. States are spread
+ * over a fixed number of StateTables (stripes) by the high bits of their hash, and each stripe is
+ * locked separately, so threads only wait for each other when they add to the same stripe.
+ */
+class StripedStateSet {
+  private static final int STRIPE_BITS = 6;
+
+  private final int words; // INVARIANT: always > 0, number of longs in every state
+  private final StateTable[] stripes; // INVARIANT: never null, has 2^STRIPE_BITS tables
+
+  /**
+   * Constructs a new, empty StripedStateSet for states of the given number of longs.
+   *
+   * @param words number of longs in every state
+   * @throws IllegalArgumentException if given number of words is < 1
+   */
+  StripedStateSet(int words) throws IllegalArgumentException {
+    if (words < 1) throw new IllegalArgumentException("States must contain at least one long.");
+
+    this.words = words;
+    this.stripes = new StateTable[1 << STRIPE_BITS];
+    for (int i = 0; i < this.stripes.length; i++) this.stripes[i] = new StateTable(words);
+  }
+
+  /**
+   * Adds the given state to this set if it is not already in it. Safe to call from any thread.
+   *
+   * @param key packed state to add
+   * @return whether or not the state was added (i.e. it was not already in this set)
+   */
+  boolean add(long[] key) {
+    StateTable stripe = this.stripes[StateTable.hash(key, this.words) >>> (32 - STRIPE_BITS)];
+
+    synchronized (stripe) {
+      int size = stripe.size();
+      return stripe.add(key) == size;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package blocky.util.levels;
+
+/**
+ * A fixed-size table remembering the fewest moves with which packed board states have been reached
+ * during one pass of a search. Each state maps to exactly one slot, and newer entries replace older
+ * ones, so the table never grows; forgetting a state only means it may be searched again. Entries
+ * are stamped with the pass they were made in, so starting a new pass forgets every entry at once.
+ */
+class TranspositionTable {
+  private final int words; // INVARIANT: always > 0, number of longs in every key
+  private final int mask; // INVARIANT: number of slots - 1, number of slots is a power of two
+  private final long[] keys; // INVARIANT: never null, key in slot i starts at i * words
+  private final int[] depths; // INVARIANT: never null, fewest moves to state in each slot
+  private final int[] passes; // INVARIANT: never null, pass each slot was written in, 0 if never
+  private int pass; // INVARIANT: always > 0, current pass
+
+  /**
+   * Constructs a new, empty TranspositionTable with 2^bits slots for keys of the given number of
+   * longs.
+   *
+   * @param words number of longs in every key
+   * @param bits  log base 2 of number of slots
+   * @throws IllegalArgumentException if words < 1, or if bits is not within 1-30
+   */
+  TranspositionTable(int words, int bits) throws IllegalArgumentException {
+    if (words < 1) throw new IllegalArgumentException("Keys must contain at least one long.");
+    if (bits < 1 || bits > 30) throw new IllegalArgumentException("Bits must be within 1-30.");
+
+    this.words = words;
+    this.mask = (1 << bits) - 1;
+    this.keys = new long[(1 << bits) * words];
+    this.depths = new int[1 << bits];
+    this.passes = new int[1 << bits];
+    this.pass = 1;
+  }
+
+  /**
+   * Forgets every entry by starting a new pass.
+   */
+  void nextPass() {
+    this.pass++;
+  }
+
+  /**
+   * Records that the given state has been reached with the given number of moves in this pass,
+   * unless it has already been reached with as few moves.
+   *
+   * @param key   packed state
+   * @param depth number of moves state was reached with
+   * @return whether or not state was recorded (i.e. it has not been reached with as few moves)
+   */
+  boolean record(long[] key, int depth) {
+    int slot = StateTable.hash(key, this.words) & this.mask;
+    int offset = slot * this.words;
+
+    if (this.passes[slot] == this.pass && this.depths[slot] <= depth) {
+      boolean same = true;
+      for (int i = 0; i < this.words && same; i++) same = this.keys[offset + i] == key[i];
+      if (same) return false;
+    }
+
+    System.arraycopy(key, 0, this.keys, offset, this.words);
+    this.depths[slot] = depth;
+    this.passes[slot] = this.pass;
+    return true;
+  }
+}
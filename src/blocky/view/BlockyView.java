@@ -31,7 +31,7 @@ public interface BlockyView {
   void levelLoaded(BlockyModel model) throws IllegalArgumentException;
 
   /**
-   * Notifies this view that a move has been made in the given model.
+   * Notifies this view that a move has been made, undone, or redone in the given model.
    *
    * @param model model to use for rendering
    * @throws IllegalArgumentException if given model is null
@@ -22,6 +22,20 @@ public interface BlockyViewListener {
    */
   void move(Direction dir) throws IllegalArgumentException, IllegalStateException;
 
+  /**
+   * Takes back the last move made in the current level.
+   *
+   * @throws IllegalStateException if there is no move to undo, or if cannot currently undo
+   */
+  void undo() throws IllegalStateException;
+
+  /**
+   * Makes again the last move that was taken back.
+   *
+   * @throws IllegalStateException if there is no move to redo, or if cannot currently redo
+   */
+  void redo() throws IllegalStateException;
+
   /**
    * Goes to the next level.
    *
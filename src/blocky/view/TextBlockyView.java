@@ -164,6 +164,10 @@ public class TextBlockyView implements BlockyView {
       this.listener.move(Direction.DOWN);
     } else if (str.equalsIgnoreCase("d")) {
       this.listener.move(Direction.RIGHT);
+    } else if (str.equalsIgnoreCase("/undo")) {
+      this.listener.undo();
+    } else if (str.equalsIgnoreCase("/redo")) {
+      this.listener.redo();
     } else if (str.equalsIgnoreCase("/re")) {
       this.listener.restartLevel();
     } else if (str.equalsIgnoreCase("/next")) {
@@ -146,6 +146,8 @@ public class VisualBlockyView extends JFrame
   @Override
   public void moveMade(BlockyModel model) throws IllegalArgumentException {
     this.lastModelTick = model.curStep() * this.ticksPerStep;
+    // an undone move takes the model back to an earlier step, which is where the next move starts
+    this.lastRenderedTick = Math.min(this.lastRenderedTick, this.lastModelTick);
 
     this.moveInfo.setText("Moves: " + model.movesMade());
     this.gameBoardPanel.setTick(this.lastRenderedTick);
@@ -236,6 +238,10 @@ public class VisualBlockyView extends JFrame
       this.listener.move(Direction.RIGHT);
     } else if (keyCode == 83 || keyCode == 40) { // 's' or down arrow
       this.listener.move(Direction.DOWN);
+    } else if (keyCode == 85) { // 'u'
+      this.listener.undo();
+    } else if (keyCode == 89) { // 'y'
+      this.listener.redo();
     } else if (keyCode == 82) { // 'r'
       this.listener.restartLevel();
     } else if (keyCode == 78) { // 'n'
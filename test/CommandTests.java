@@ -1,16 +1,182 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
+import blocky.model.SimpleBlockyModel;
+import blocky.model.commands.EffectQueue;
+import blocky.model.gamepieces.GamePiece;
+import blocky.util.Direction;
+import blocky.util.levels.Level;
+import blocky.util.levels.LevelFileReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 /**
- * A class for testing instances of the ModelCommand interface.
+ * A class for testing the EffectQueue class.
  */
 public class CommandTests {
 
+  // EffectQueue methods
+  // - boolean drain(CommandBlockyModel) throws IAE, ISE
+  // - int mark()
+  // - boolean drainFrom(CommandBlockyModel, int) throws IAE, ISE
+  // - void clear()
+
   // EXAMPLES --------------------------------------------------------------------------------------
 
-  // todo
+  // 3x3 board with nothing on it but the player, in its top left corner
+  private Level openBoard = LevelFileReader.parseLevel("-level "
+          + "XXXXX XP--X X---X X---X XXXXX -player 1 1 -/level");
+
+  private EffectQueue queue = new EffectQueue();
+  private RecordingModel model = new RecordingModel(this.openBoard);
 
   // TESTS  ----------------------------------------------------------------------------------------
 
-  // todo
+  @Test
+  public void drainCarriesOutEffectsInOrder() {
+    this.queue.winGame();
+    this.queue.fatalMove();
+    this.queue.winGame();
+
+    assertTrue(this.queue.drain(this.model));
+    assertEquals(Arrays.asList("win", "fatal", "win"), this.model.carriedOut);
+
+    // the queue is empty afterwards
+    assertFalse(this.queue.drain(this.model));
+    assertEquals(3, this.model.carriedOut.size());
+  }
+
+  @Test
+  public void drainReturnsWhetherAnyEffectChangedAnything() {
+    // moving a piece moves whatever is at its position, which is the player here
+    GamePiece player = this.model.layout().get(1).get(1);
+
+    this.queue.move(player, Direction.LEFT); // into a wall
+    assertFalse(this.queue.drain(this.model));
+
+    this.queue.winGame();
+    this.queue.move(player, Direction.UP); // into a wall, after an effect that changed something
+    assertTrue(this.queue.drain(this.model));
+
+    this.queue.move(player, Direction.UP);
+    this.queue.move(player, Direction.RIGHT); // across the board, after an effect that did not
+    assertTrue(this.queue.drain(this.model));
+  }
+
+  @Test
+  public void drainThrowsISEWhenDrainedWhileDraining() {
+    this.model.duringFatalMove = () -> this.queue.drain(this.model);
+    this.queue.fatalMove();
+    this.queue.winGame();
+
+    try {
+      this.queue.drain(this.model);
+      fail("Draining while draining should have thrown ISE.");
+    } catch (IllegalStateException e) {
+      assertEquals("Tried to drain queue while draining it.", e.getMessage());
+    }
+
+    // the drain in progress stopped, and the queue can be drained again
+    assertEquals(Arrays.asList("fatal"), this.model.carriedOut);
+    this.queue.winGame();
+    assertTrue(this.queue.drain(this.model));
+    assertEquals(Arrays.asList("fatal", "win"), this.model.carriedOut);
+  }
+
+  @Test
+  public void drainFromCarriesOutOnlyEffectsAfterMark() {
+    this.queue.winGame();
+    int mark = this.queue.mark();
+    assertFalse(this.queue.drainFrom(this.model, mark));
+
+    this.queue.fatalMove();
+    assertTrue(this.queue.drainFrom(this.model, mark));
+    assertEquals(Arrays.asList("fatal"), this.model.carriedOut);
+
+    // the effects before the mark are left to the next drain
+    assertTrue(this.queue.drain(this.model));
+    assertEquals(Arrays.asList("fatal", "win"), this.model.carriedOut);
+  }
+
+  @Test
+  public void drainFromWorksWhileDraining() {
+    this.model.duringFatalMove = () -> {
+      int mark = this.queue.mark();
+      this.queue.fatalMove();
+      this.queue.drainFrom(this.model, mark);
+    };
+    this.queue.fatalMove();
+    this.queue.winGame();
+
+    // the effect added after the mark is carried out before the effects already queued
+    assertTrue(this.queue.drain(this.model));
+    assertEquals(Arrays.asList("fatal", "fatal", "win"), this.model.carriedOut);
+  }
+
+  @Test
+  public void drainFromThrowsIAEForMarkOutsideQueue() {
+    this.queue.winGame();
+    this.queue.fatalMove();
+    for (int mark : new int[]{-1, 3}) {
+      try {
+        this.queue.drainFrom(this.model, mark);
+        fail("Mark " + mark + " should have thrown IAE.");
+      } catch (IllegalArgumentException e) {
+        assertEquals("Mark must be within effects yet to be carried out.", e.getMessage());
+      }
+    }
+
+    // effects already carried out by the drain in progress are before any valid mark
+    this.model.duringFatalMove = () -> this.queue.drainFrom(this.model, 0);
+    try {
+      this.queue.drain(this.model);
+      fail("Mark before effects yet to be carried out should have thrown IAE.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Mark must be within effects yet to be carried out.", e.getMessage());
+    }
+  }
+
+  // HELPERS ---------------------------------------------------------------------------------------
+
+  /**
+   * A model that records the game-ending effects carried out on it rather than ending the game,
+   * and that can run some code while a fatal move effect is being carried out.
+   */
+  private static class RecordingModel extends SimpleBlockyModel {
+    private final List<String> carriedOut; // effects carried out, in order
+    private Runnable duringFatalMove; // run once by the next fatal move effect, might be null
+
+    /**
+     * Constructs a new RecordingModel with the given level loaded.
+     *
+     * @param level level to load
+     */
+    RecordingModel(Level level) {
+      super(false);
+      this.loadLevel(level);
+      this.carriedOut = new ArrayList<>();
+      this.duringFatalMove = null;
+    }
+
+    @Override
+    public void winGame() {
+      this.carriedOut.add("win");
+    }
 
+    @Override
+    public void fatalMoveMade() {
+      this.carriedOut.add("fatal");
+      if (this.duringFatalMove != null) {
+        Runnable toRun = this.duringFatalMove;
+        this.duringFatalMove = null;
+        toRun.run();
+      }
+    }
+  }
 }
@@ -21,6 +21,7 @@ public class LevelTests {
 
   // Level Set
   // - Level curLevel()
+  // - boolean hasNextLevel()
   // - Level nextLevel() throws ISE
   // - Level prevLevel() throws ISE
   // - Level goToLevel(int index) throws IAE
@@ -1,33 +1,311 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
+import blocky.model.BlockyModel;
+import blocky.model.BlockyModelListener;
+import blocky.model.SimpleBlockyModel;
+import blocky.util.Direction;
+import blocky.util.levels.Level;
+import blocky.util.levels.LevelFileReader;
+import blocky.util.levels.LevelSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
 /**
  * A class for testing instances of the BlockyModel and CommandBlockyModel interfaces.
  */
-public class ModelTests {
+public class ModelTests implements BlockyModelListener {
 
   // BlockyModel methods
   // - void restartLevel() throws ISE
   // - void loadLevel(Level) throws IAE
   // - boolean move(Direction) throws ISE
+  // - void undo() throws ISE
+  // - void redo() throws ISE
   // - List<List<GamePiece>> layout() throws ISE
   // - void setListener(BlockyModelListener listener) throws IAE
 
   // CommandBlockyModel methods
-  // - boolean movePieceAt(Position, Direction) throws IAE, ISE
-  // - boolean setPieceAt(Position, GamePiece) throws IAE, ISE
+  // - boolean movePieceAt(int, Direction) throws IAE, ISE
+  // - boolean deletePieceAt(int) throws IAE, ISE
   // - void winGame() throws ISE
 
   // EXAMPLES --------------------------------------------------------------------------------------
 
-  // todo
+  // 9x9 board with nothing on it but the player, in its top left corner
+  private Level openBoard = LevelFileReader.parseLevel("-level "
+          + "XXXXXXXXXXX XP--------X X---------X X---------X X---------X X---------X "
+          + "X---------X X---------X X---------X X---------X XXXXXXXXXXX "
+          + "-player 1 1 -/level");
+
+  // player slides right into a RedBlock
+  private Level redBoard = LevelFileReader.parseLevel("-level "
+          + "XXXXXX XP--RX XXXXXX -player 1 1 -/level");
+
+  // player slides right and bounces between the BlueBlocks forever
+  private Level blueLoopBoard = LevelFileReader.parseLevel("-level "
+          + "XXXXXX XBP-BX XXXXXX -player 1 2 -/level");
+
+  // levels with every kind of piece, and their solutions
+  private LevelSet bundledLevels = LevelFileReader.parseLevelFile("levelData/5x5Levels.txt");
+
+  // outcomes of the last move made
+  private boolean levelBeat;
+  private boolean fatalMoveMade;
+
+  // BlockyModelListener INTERFACE METHODS ---------------------------------------------------------
+
+  @Override
+  public void levelBeat() {
+    this.levelBeat = true;
+  }
+
+  @Override
+  public void fatalMoveMade() {
+    this.fatalMoveMade = true;
+  }
 
   // REGULAR MODEL TESTS  --------------------------------------------------------------------------
 
-  // todo restartLevel
+  @Test
+  public void restartLevelAfterMovesMatchesLoadLevel() {
+    for (int index = 1; index <= bundledLevels.size(); index++) {
+      Level level = bundledLevels.goToLevel(index);
+      BlockyModel model = this.modelOf(level);
+      List<Direction> solution = level.getSolution();
+      for (Direction dir : solution.subList(0, solution.size() - 1)) model.move(dir);
+
+      model.restartLevel();
+      assertEquals("level " + index, stateOf(this.modelOf(level)), stateOf(model));
+      assertEquals(0, model.movesMade());
+      try {
+        model.undo();
+        fail("Undoing right after restarting should have thrown ISE.");
+      } catch (IllegalStateException e) {
+        assertEquals("No move to undo.", e.getMessage());
+      }
+    }
+  }
 
   // todo loadLevel
 
-  // todo move
+  @Test
+  public void slideAllocatesNothing() {
+    com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    long thread = Thread.currentThread().getId();
+
+    SimpleBlockyModel model = new SimpleBlockyModel(false);
+    model.setListener(this);
+    model.loadLevel(openBoard);
+
+    // the first slides over each cell copy it from the level, see SimpleBlockyModel.claimCell()
+    model.move(Direction.RIGHT);
+    model.move(Direction.LEFT);
+
+    long start = threads.getThreadAllocatedBytes(thread);
+    long overhead = threads.getThreadAllocatedBytes(thread) - start;
+
+    // sliding across the whole board and back
+    start = threads.getThreadAllocatedBytes(thread);
+    assertTrue(model.move(Direction.RIGHT));
+    assertEquals(0, threads.getThreadAllocatedBytes(thread) - start - overhead);
+
+    start = threads.getThreadAllocatedBytes(thread);
+    assertTrue(model.move(Direction.LEFT));
+    assertEquals(0, threads.getThreadAllocatedBytes(thread) - start - overhead);
+  }
+
+  @Test
+  public void undoAfterMoveWorks() {
+    BlockyModel model = this.modelOf(openBoard);
+    String before = stateOf(model);
+
+    assertTrue(model.move(Direction.RIGHT));
+    assertNotEquals(before, stateOf(model));
+    model.undo();
+    assertEquals(before, stateOf(model));
+    assertEquals(0, model.movesMade());
+  }
+
+  @Test
+  public void undoAfterFatalMoveWorks() {
+    BlockyModel model = this.modelOf(redBoard);
+    String before = stateOf(model);
+
+    model.move(Direction.RIGHT);
+    assertTrue(this.fatalMoveMade);
+    model.undo();
+    assertEquals(before, stateOf(model));
+
+    // the player is back, and can move again
+    this.fatalMoveMade = false;
+    assertTrue(model.move(Direction.RIGHT));
+    assertTrue(this.fatalMoveMade);
+  }
+
+  @Test
+  public void bounceLoopIsFatal() {
+    for (boolean animated : new boolean[]{true, false}) {
+      BlockyModel model = new SimpleBlockyModel(animated);
+      model.setListener(this);
+      model.loadLevel(blueLoopBoard);
+
+      this.fatalMoveMade = false;
+      model.move(Direction.RIGHT);
+      assertTrue(this.fatalMoveMade);
+      assertFalse(this.levelBeat);
+    }
+  }
+
+  @Test
+  public void undoAfterBounceLoopWorks() {
+    BlockyModel model = this.modelOf(blueLoopBoard);
+    String before = stateOf(model);
+
+    this.fatalMoveMade = false;
+    model.move(Direction.RIGHT);
+    assertTrue(this.fatalMoveMade);
+    model.undo();
+    assertEquals(before, stateOf(model));
+
+    // the loop is found again, not mistaken for the one before the undo
+    this.fatalMoveMade = false;
+    model.move(Direction.LEFT);
+    assertTrue(this.fatalMoveMade);
+    model.undo();
+    assertEquals(before, stateOf(model));
+  }
+
+  @Test
+  public void undoAfterWinWorks() {
+    Level level = bundledLevels.goToLevel(bundledLevels.size());
+    BlockyModel model = this.modelOf(level);
+    List<Direction> solution = level.getSolution();
+    for (Direction dir : solution.subList(0, solution.size() - 1)) model.move(dir);
+    String before = stateOf(model);
+
+    this.levelBeat = false;
+    model.move(solution.get(solution.size() - 1));
+    assertTrue(this.levelBeat);
+    model.undo();
+    assertEquals(before, stateOf(model));
+    assertEquals(solution.size() - 1, model.movesMade());
+  }
+
+  @Test
+  public void undoAndRedoRetraceEveryMove() {
+    for (int index = 1; index <= bundledLevels.size(); index++) {
+      Level level = bundledLevels.goToLevel(index);
+      BlockyModel model = this.modelOf(level);
+      List<String> states = new ArrayList<>();
+      states.add(stateOf(model));
+      for (Direction dir : level.getSolution()) {
+        model.move(dir);
+        states.add(stateOf(model));
+      }
+
+      for (int move = states.size() - 2; move >= 0; move--) {
+        model.undo();
+        assertEquals("level " + index + ", undo to " + move, states.get(move), stateOf(model));
+      }
+
+      for (int move = 1; move < states.size(); move++) {
+        model.redo();
+        assertEquals("level " + index + ", redo to " + move, states.get(move), stateOf(model));
+      }
+    }
+  }
+
+  @Test
+  public void redoThrowsISEWithNothingUndone() {
+    BlockyModel model = this.modelOf(openBoard);
+    model.move(Direction.RIGHT);
+
+    try {
+      model.redo();
+      fail("Redoing with nothing undone should have thrown ISE.");
+    } catch (IllegalStateException e) {
+      assertEquals("No move to redo.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void moveForgetsMovesToRedo() {
+    BlockyModel model = this.modelOf(openBoard);
+    model.move(Direction.RIGHT);
+    model.undo();
+    model.move(Direction.DOWN);
+    String after = stateOf(model);
+
+    try {
+      model.redo();
+      fail("Redoing after making a new move should have thrown ISE.");
+    } catch (IllegalStateException e) {
+      assertEquals("No move to redo.", e.getMessage());
+    }
+    assertEquals(after, stateOf(model));
+  }
+
+  @Test
+  public void undoThrowsISEWithNoMoves() {
+    BlockyModel model = this.modelOf(openBoard);
+
+    try {
+      model.undo();
+      fail("Undoing with no moves made should have thrown ISE.");
+    } catch (IllegalStateException e) {
+      assertEquals("No move to undo.", e.getMessage());
+    }
+
+    try {
+      new SimpleBlockyModel().undo();
+      fail("Undoing with no level should have thrown ISE.");
+    } catch (IllegalStateException e) {
+      assertEquals("Tried to play game with no level.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void undoAndRedoWorkOnCopy() {
+    BlockyModel model = this.modelOf(openBoard);
+    String start = stateOf(model);
+    model.move(Direction.RIGHT);
+    String moved = stateOf(model);
+
+    // moves made before copying are not journaled by the copy
+    BlockyModel copy = model.copy();
+    assertEquals(moved, stateOf(copy));
+    try {
+      copy.undo();
+      fail("Undoing on a copy with no moves of its own should have thrown ISE.");
+    } catch (IllegalStateException e) {
+      assertEquals("No move to undo.", e.getMessage());
+    }
+
+    copy.move(Direction.DOWN);
+    String copyMoved = stateOf(copy);
+    copy.undo();
+    assertEquals(moved, stateOf(copy));
+    copy.redo();
+    assertEquals(copyMoved, stateOf(copy));
+
+    // the original is untouched by the copy
+    assertEquals(moved, stateOf(model));
+    model.undo();
+    assertEquals(start, stateOf(model));
+    assertEquals(copyMoved, stateOf(copy));
+  }
 
   // todo layout
 
@@ -37,8 +315,34 @@ public class ModelTests {
 
   // todo movePieceAt
 
-  // todo setPieceAt
+  // todo deletePieceAt
 
   // todo winGame
 
+  // HELPERS ---------------------------------------------------------------------------------------
+
+  /**
+   * Returns a new animated model, listened to by this, with the given level loaded.
+   *
+   * @param level level to load
+   * @return model with level loaded
+   */
+  private BlockyModel modelOf(Level level) {
+    BlockyModel model = new SimpleBlockyModel();
+    model.setListener(this);
+    model.loadLevel(level);
+    return model;
+  }
+
+  /**
+   * Returns everything about the given model that undoing, redoing, and restarting must restore:
+   * its board, the number of moves made, and the step it is at.
+   *
+   * @param model model to describe
+   * @return description of model
+   */
+  private static String stateOf(BlockyModel model) {
+    return Arrays.toString(model.packedLayout()) + ", moves " + model.movesMade() + ", step "
+            + model.curStep();
+  }
 }
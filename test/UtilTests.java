@@ -244,4 +244,80 @@ public class UtilTests {
     fail("Test not implemented.");
   }
 
+  @Test
+  public void posPackRoundTrips() {
+    // testing pos with vals of 0
+    assertEquals(zeroPos, Position.unpack(zeroPos.packed()));
+
+    // testing pos with same vals
+    assertEquals(samePos, Position.unpack(samePos.packed()));
+    assertEquals(5, Position.rowOf(samePos.packed()));
+    assertEquals(5, Position.colOf(samePos.packed()));
+
+    // testing pos with dif vals, which must not be swapped
+    assertEquals(4, Position.rowOf(difPos.packed()));
+    assertEquals(6, Position.colOf(difPos.packed()));
+    assertNotEquals(difPos.packed(), new Position(6, 4).packed());
+
+    // testing largest row and col that can be packed
+    int packed = Position.pack(32767, 65535);
+    assertEquals(32767, Position.rowOf(packed));
+    assertEquals(65535, Position.colOf(packed));
+    assertEquals(new Position(32767, 65535), Position.unpack(packed));
+  }
+
+  @Test
+  public void posPackedMatchesPack() {
+    assertEquals(Position.pack(0, 0), zeroPos.packed());
+    assertEquals(Position.pack(5, 5), samePos.packed());
+    assertEquals(Position.pack(4, 6), difPos.packed());
+  }
+
+  @Test
+  public void posUnpackMakesNewPos() {
+    int packed = samePos.packed();
+    assertNotSame(Position.unpack(packed), Position.unpack(packed));
+  }
+
+  @Test
+  public void posPackThrowsIAEForNegativeVals() {
+    try { // negative row and col
+      negPos.packed();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Position (-5, -5) cannot be packed.", e.getMessage());
+    }
+
+    try { // negative row only
+      altPos.packed();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Position (-5, 5) cannot be packed.", e.getMessage());
+    }
+
+    try { // negative col only
+      Position.pack(5, -5);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Position (5, -5) cannot be packed.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void posPackThrowsIAEForValsTooLarge() {
+    try { // row too large
+      Position.pack(32768, 0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Position (32768, 0) cannot be packed.", e.getMessage());
+    }
+
+    try { // col too large
+      Position.pack(0, 65536);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Position (0, 65536) cannot be packed.", e.getMessage());
+    }
+  }
+
 }
@@ -0,0 +1,218 @@
+package blocky.util.levels;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import blocky.model.BlockyModel;
+import blocky.model.BlockyModelListener;
+import blocky.model.SimpleBlockyModel;
+import blocky.model.gamepieces.GamePiece;
+import blocky.model.gamepieces.PlayerBlock;
+import blocky.util.Direction;
+import blocky.util.Position;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A class for testing the BitBoard class against the model it stands in for.
+ */
+public class BitBoardTests implements BlockyModelListener {
+
+  // BitBoard methods
+  // - BitBoard(Level) throws IAE
+  // - BitBoard(int, char[]) throws IAE
+  // - long[] initialState()
+  // - long[] initialStateWithPlayerAt(int) throws IAE
+  // - int lowerBound(long[])
+  // - int move(long[], Direction, long[]) throws ISE
+
+  // EXAMPLES --------------------------------------------------------------------------------------
+
+  // level sets that are replayed on the model
+  static final String[] LEVEL_FILES = {"introLevels.txt", "testLevels.txt", "weirdLevels.txt",
+          "5x5Levels.txt", "9x9Levels.txt"};
+
+  private static final int STATES_PER_LEVEL = 100; // most configurations compared in each level
+
+  // player slides right and bounces between the BlueBlocks forever
+  private Level blueLoopBoard = LevelFileReader.parseLevel("-level "
+          + "XXXXXX XBP-BX XXXXXX -player 1 2 -/level");
+
+  // outcomes of moves on the model, as BitBoard outcomes
+  private boolean levelBeat;
+  private boolean fatalMoveMade;
+
+  // BlockyModelListener INTERFACE METHODS ---------------------------------------------------------
+
+  @Override
+  public void levelBeat() {
+    this.levelBeat = true;
+  }
+
+  @Override
+  public void fatalMoveMade() {
+    this.fatalMoveMade = true;
+  }
+
+  // TESTS -----------------------------------------------------------------------------------------
+
+  @Test
+  public void moveMatchesModelOnBundledLevels() {
+    int compared = 0;
+
+    for (String file : LEVEL_FILES) {
+      LevelSet levels = LevelFileReader.parseLevelFile("levelData/" + file);
+      for (int index = 1; index <= levels.size(); index++) {
+        compared += this.compareWithModel(levels.goToLevel(index), file + " " + index);
+      }
+    }
+
+    assertTrue(compared > 1000);
+  }
+
+  @Test
+  public void moveReportsBounceLoop() {
+    BitBoard board = new BitBoard(blueLoopBoard);
+    long[] result = new long[board.stateLength()];
+    assertEquals(BitBoard.INFINITE_MOVE, board.move(board.initialState(), Direction.RIGHT, result));
+    assertEquals(BitBoard.INFINITE_MOVE, board.move(board.initialState(), Direction.LEFT, result));
+
+    // the model finds the same loops, as fatal moves, from the only configuration of the level
+    assertEquals(4, this.compareWithModel(blueLoopBoard, "blue loop"));
+  }
+
+  @Test
+  public void moveLeavesGivenStateAlone() {
+    Level level = LevelFileReader.parseLevelFile("levelData/introLevels.txt").curLevel();
+    BitBoard board = new BitBoard(level);
+    long[] state = board.initialState();
+    long[] result = new long[board.stateLength()];
+
+    for (Direction dir : Direction.allDirections()) {
+      board.move(state, dir, result);
+      assertArrayEquals(board.initialState(), state);
+    }
+  }
+
+  @Test
+  public void constructorThrowsIAEForMalformedLayout() {
+    try {
+      new BitBoard(3, "XXXX-".toCharArray());
+      fail("Layout that is not a rectangle should have thrown IAE.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Layout must be a non-empty rectangle.", e.getMessage());
+    }
+  }
+
+  // HELPERS ---------------------------------------------------------------------------------------
+
+  /**
+   * Explores the configurations of the given level breadth first on both a headless model and a
+   * BitBoard, up to STATES_PER_LEVEL of them, checking that every move has the same outcome and
+   * leads to the same state on both. Returns the number of moves compared.
+   *
+   * @param level level to explore
+   * @param name  name of level, for failure messages
+   * @return number of moves compared
+   */
+  private int compareWithModel(Level level, String name) {
+    SimpleBlockyModel start = new SimpleBlockyModel(false);
+    start.setListener(this);
+    start.loadLevel(level);
+
+    BitBoard board = new BitBoard(level);
+    long[] next = new long[board.stateLength()];
+    assertArrayEquals(name, board.initialState(), stateOf(start));
+
+    StateTable seen = new StateTable(board.stateLength());
+    seen.add(board.initialState());
+    Deque<BlockyModel> models = new ArrayDeque<>();
+    models.add(start);
+    long[] state = new long[board.stateLength()];
+    int compared = 0;
+
+    for (int id = 0; !models.isEmpty(); id++) {
+      BlockyModel model = models.poll();
+      seen.copyKey(id, state);
+
+      for (Direction dir : Direction.allDirections()) {
+        BlockyModel moved = model.copy();
+        int expected = this.moveOnModel(moved, dir);
+        int outcome;
+        try {
+          outcome = board.move(state, dir, next);
+        } catch (IllegalStateException e) {
+          outcome = -1; // off board
+        }
+
+        String move = name + ", " + dir + " from " + Arrays.toString(state);
+        compared++;
+        if (outcome == BitBoard.INFINITE_MOVE) outcome = BitBoard.FATAL_MOVE;
+        assertEquals(move, expected, outcome);
+        if (outcome != BitBoard.MOVED) continue;
+
+        assertArrayEquals(move, next, stateOf(moved));
+        if (seen.size() < STATES_PER_LEVEL && seen.find(next) < 0) {
+          seen.add(next);
+          models.add(moved);
+        }
+      }
+    }
+
+    return compared;
+  }
+
+  /**
+   * Moves the player of the given model in the given direction, and returns the outcome as one of
+   * the outcomes of BitBoard.move(), with FATAL_MOVE for moves that never end, or -1 if a piece
+   * would be moved off the board.
+   *
+   * @param model model to move on
+   * @param dir   direction to move in
+   * @return outcome of move
+   */
+  private int moveOnModel(BlockyModel model, Direction dir) {
+    this.levelBeat = false;
+    this.fatalMoveMade = false;
+
+    boolean moved;
+    try {
+      moved = model.move(dir);
+    } catch (IllegalStateException e) {
+      return -1;
+    }
+
+    if (this.levelBeat) return BitBoard.WINNING_MOVE;
+    if (this.fatalMoveMade) return BitBoard.FATAL_MOVE;
+    return moved ? BitBoard.MOVED : BitBoard.NO_MOVE;
+  }
+
+  /**
+   * Returns the state of the board of the given model, as a BitBoard state.
+   *
+   * @param model model to read board of
+   * @return state of board of model
+   */
+  private static long[] stateOf(BlockyModel model) {
+    Level.Builder builder = new Level.Builder().setID(1);
+    List<List<GamePiece>> layout = model.layout();
+
+    for (int row = 0; row < layout.size(); row++) {
+      builder.addRow();
+      for (int col = 0; col < layout.get(row).size(); col++) {
+        GamePiece gp = layout.get(row).get(col);
+        builder.addPieceToRow(gp);
+        if (gp.renderAs() instanceof PlayerBlock) builder.setPlayerPosition(new Position(row, col));
+      }
+    }
+
+    return new BitBoard(builder.build()).initialState();
+  }
+}
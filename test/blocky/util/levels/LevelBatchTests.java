@@ -0,0 +1,144 @@
+package blocky.util.levels;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A class for testing the LevelBatch class, and the batches started by LevelGenerator.
+ */
+public class LevelBatchTests {
+
+  // LevelBatch methods
+  // - int size()
+  // - Level take() throws InterruptedException
+  // - Level get(int) throws IAE, ISE, CancellationException, InterruptedException
+  // - long levelSeed(int) throws IAE
+  // - void cancel()
+  // - boolean isCancelled()
+
+  // EXAMPLES --------------------------------------------------------------------------------------
+
+  private LevelGenerator generator = new LevelGenerator(3, 3, GeneratorMode.SAMPLING);
+  private long seed = 29;
+  private int quantity = 30;
+
+  // levels that take long enough to generate that a batch of them is still going when cancelled
+  private LevelGenerator slowGenerator = new LevelGenerator(9, 30);
+
+  // TESTS -----------------------------------------------------------------------------------------
+
+  @Test
+  public void batchIsSameForAnyNumberOfWorkers() throws Exception {
+    List<String> levels = levelsOf(this.generator.generateBatch(0, this.quantity, this.seed, 1));
+    assertEquals(this.quantity, levels.size());
+    assertEquals(levels,
+            levelsOf(this.generator.generateBatch(0, this.quantity, this.seed, 4)));
+  }
+
+  @Test
+  public void batchCanStartAnywhereInSequence() throws Exception {
+    List<String> levels = levelsOf(this.generator.generateBatch(0, this.quantity, this.seed, 2));
+    assertEquals(levels.subList(10, this.quantity),
+            levelsOf(this.generator.generateBatch(10, this.quantity - 10, this.seed, 3)));
+  }
+
+  @Test
+  public void levelSeedGeneratesSameLevel() throws Exception {
+    LevelBatch batch = this.generator.generateBatch(5, 10, this.seed, 2);
+    for (int index = 0; index < batch.size(); index++) {
+      Level level = this.generator.generateLevel(new Random(batch.levelSeed(index)));
+      assertEquals("level " + index, level.toString(), batch.get(index).toString());
+    }
+  }
+
+  @Test
+  public void takeGivesEveryLevelOnce() throws Exception {
+    LevelBatch batch = this.generator.generateBatch(0, this.quantity, this.seed, 4);
+    List<String> taken = new ArrayList<>();
+    for (Level level = batch.take(); level != null; level = batch.take()) {
+      taken.add(level.toString());
+    }
+
+    List<String> levels = levelsOf(batch);
+    Collections.sort(taken);
+    Collections.sort(levels);
+    assertEquals(levels, taken);
+  }
+
+  @Test
+  public void cancelStopsBatch() throws Exception {
+    LevelBatch batch = this.slowGenerator.generateBatch(0, 1000, this.seed, 2);
+    assertFalse(batch.isCancelled());
+    batch.cancel();
+    assertTrue(batch.isCancelled());
+
+    // levels that finished before the batch was cancelled can still be taken, but no others
+    int taken = 0;
+    while (batch.take() != null) taken++;
+    assertTrue(taken < batch.size());
+    assertNull(batch.take());
+
+    try {
+      batch.get(batch.size() - 1);
+      fail("Getting level of cancelled batch should have thrown CancellationException.");
+    } catch (CancellationException e) {
+      // intentionally left blank
+    }
+  }
+
+  @Test
+  public void generateBatchThrowsIAEForInvalidArguments() {
+    try {
+      this.generator.generateBatch(-1, this.quantity, this.seed, 1);
+      fail("Negative first index should have thrown IAE.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("First index must not be negative.", e.getMessage());
+    }
+
+    for (int[] args : new int[][]{{0, 1}, {1, 0}}) {
+      try {
+        this.generator.generateBatch(args[0], this.seed, args[1]);
+        fail("Quantity " + args[0] + " and workers " + args[1] + " should have thrown IAE.");
+      } catch (IllegalArgumentException e) {
+        assertEquals("Quantity and workers must be at least 1.", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void levelSeedThrowsIAEForInvalidIndex() {
+    LevelBatch batch = this.generator.generateBatch(0, 1, this.seed, 1);
+    try {
+      batch.levelSeed(1);
+      fail("Index past end of batch should have thrown IAE.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("No level at index 1 of batch.", e.getMessage());
+    }
+  }
+
+  // HELPERS ---------------------------------------------------------------------------------------
+
+  /**
+   * Waits for every level of the given batch and returns them as strings, in order.
+   *
+   * @param batch batch to get levels of
+   * @return string of each level of batch
+   * @throws InterruptedException if interrupted while waiting
+   */
+  private static List<String> levelsOf(LevelBatch batch) throws InterruptedException {
+    List<String> levels = new ArrayList<>();
+    for (int index = 0; index < batch.size(); index++) levels.add(batch.get(index).toString());
+    return levels;
+  }
+}
@@ -0,0 +1,168 @@
+package blocky.util.levels;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A class for testing the LevelBuckets class.
+ */
+public class LevelBucketsTests {
+
+  // LevelBuckets methods
+  // - static LevelBuckets parseString(String) throws IAE
+  // - int minMoves() throws ISE
+  // - boolean offer(Level) throws IAE, ISE
+  // - int remaining()
+  // - boolean isFull()
+  // - String toString()
+
+  // EXAMPLES --------------------------------------------------------------------------------------
+
+  // levels that take one move
+  private Level oneMove = LevelFileReader.parseLevel("-level "
+          + "XXXXX XP--W XXXXX -player 1 1 -/level");
+  private Level otherOneMove = LevelFileReader.parseLevel("-level "
+          + "XXXXXX XP---W XXXXXX -player 1 1 -/level");
+
+  // levels that take two moves
+  private Level twoMoves = LevelFileReader.parseLevel("-level "
+          + "XXXXX XP--X X---W XXXXX -player 1 1 -/level");
+  private Level otherTwoMoves = LevelFileReader.parseLevel("-level "
+          + "XXXXXX XP---X X----W XXXXXX -player 1 1 -/level");
+
+  // PARSING TESTS ---------------------------------------------------------------------------------
+
+  @Test
+  public void parseStringWorks() {
+    LevelBuckets buckets = LevelBuckets.parseString("3-4:50,5-7:50,8+:20");
+    assertEquals(headers("3-4", 50, "5-7", 50, "8+", 20), buckets.toString());
+    assertEquals(120, buckets.remaining());
+    assertEquals(3, buckets.minMoves());
+    assertFalse(buckets.isFull());
+  }
+
+  @Test
+  public void parseStringAcceptsSingleValuesAndSpaces() {
+    LevelBuckets buckets = LevelBuckets.parseString("5:2, 6-6:1");
+    assertEquals(headers("5", 2, "6", 1), buckets.toString());
+  }
+
+  @Test
+  public void parseStringSortsBucketsByMoves() {
+    LevelBuckets buckets = LevelBuckets.parseString("8+:1,2:3,4-6:2");
+    assertEquals(headers("2", 3, "4-6", 2, "8+", 1), buckets.toString());
+    assertEquals(2, buckets.minMoves());
+  }
+
+  @Test
+  public void parseStringThrowsIAEForOverlappingBuckets() {
+    for (String str : new String[]{"3-5:1,5-7:1", "9:1,8+:1", "4:1,4:2", "2-9:1,4-5:1"}) {
+      try {
+        LevelBuckets.parseString(str);
+        fail("Overlapping buckets " + str + " should have thrown IAE.");
+      } catch (IllegalArgumentException e) {
+        assertEquals("Buckets must not overlap.", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void parseStringThrowsIAEForEmptyBuckets() {
+    for (String bucket : new String[]{"5-3:1", "0:1", "0+:1", "3:0"}) {
+      try {
+        LevelBuckets.parseString(bucket);
+        fail("Empty bucket " + bucket + " should have thrown IAE.");
+      } catch (IllegalArgumentException e) {
+        assertEquals("Bucket \"" + bucket + "\" must have at least 1 move, a range that is not "
+                + "empty, and a quantity of at least 1.", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void parseStringThrowsIAEForMalformattedBuckets() {
+    for (String bucket : new String[]{"3-4", "a:1", "3-4:1:2", "3-:1", "+:1", "3:x", ""}) {
+      try {
+        LevelBuckets.parseString(bucket);
+        fail("Malformatted bucket \"" + bucket + "\" should have thrown IAE.");
+      } catch (IllegalArgumentException e) {
+        assertEquals("Could not parse \"" + bucket + "\" as bucket.", e.getMessage());
+      }
+    }
+
+    try {
+      LevelBuckets.parseString(null);
+      fail("Null buckets should have thrown IAE.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Buckets must be non-null.", e.getMessage());
+    }
+  }
+
+  // OFFERING TESTS --------------------------------------------------------------------------------
+
+  @Test
+  public void offerKeepsLevelsInTheirBucket() {
+    LevelBuckets buckets = LevelBuckets.parseString("2:2,1:1");
+    assertTrue(buckets.offer(twoMoves));
+    assertTrue(buckets.offer(oneMove));
+    assertEquals(1, buckets.remaining());
+
+    assertEquals(DIVIDER + "\n# 1 MOVES (1 of 1)\n" + DIVIDER + "\n\n" + oneMove + "\n\n"
+            + DIVIDER + "\n# 2 MOVES (1 of 2)\n" + DIVIDER + "\n\n" + twoMoves + "\n\n",
+            buckets.toString());
+  }
+
+  @Test
+  public void offerSkipsFullBuckets() {
+    LevelBuckets buckets = LevelBuckets.parseString("1:1,2:2");
+    assertTrue(buckets.offer(oneMove));
+    assertFalse(buckets.offer(otherOneMove)); // its bucket is full
+    assertEquals(2, buckets.minMoves());
+
+    assertTrue(buckets.offer(twoMoves));
+    assertTrue(buckets.offer(otherTwoMoves));
+    assertTrue(buckets.isFull());
+    assertEquals(0, buckets.remaining());
+
+    try {
+      buckets.minMoves();
+      fail("Fewest moves of full buckets should have thrown ISE.");
+    } catch (IllegalStateException e) {
+      assertEquals("Every bucket is full.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void offerSkipsDuplicatesAndLevelsInNoBucket() {
+    LevelBuckets buckets = LevelBuckets.parseString("2+:5");
+    assertFalse(buckets.offer(oneMove)); // too easy for any bucket
+    assertTrue(buckets.offer(twoMoves));
+    assertFalse(buckets.offer(LevelFileReader.parseLevel(twoMoves.toString()))); // same board
+    assertEquals(4, buckets.remaining());
+  }
+
+  // HELPERS ---------------------------------------------------------------------------------------
+
+  private static final String DIVIDER = "# -------------------------";
+
+  /**
+   * Returns the section headers that empty buckets with the given ranges and quantities are
+   * written with, in order.
+   *
+   * @param buckets range and quantity of each bucket, one after the other
+   * @return headers of empty buckets
+   */
+  private static String headers(Object... buckets) {
+    StringBuilder headers = new StringBuilder();
+    for (int i = 0; i < buckets.length; i += 2) {
+      headers.append(DIVIDER).append("\n# ").append(buckets[i]).append(" MOVES (0 of ")
+              .append(buckets[i + 1]).append(")\n").append(DIVIDER).append("\n\n");
+    }
+
+    return headers.toString();
+  }
+}
@@ -0,0 +1,198 @@
+package blocky.util.levels;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A class for testing the LevelFarm class.
+ */
+public class LevelFarmTests {
+
+  // LevelFarm methods
+  // - static LevelFarm create(Path, int, int, GeneratorMode, long, int, int) throws IAE, IOE
+  // - static LevelFarm open(Path) throws IAE, ISE, IOE
+  // - int shards()
+  // - int shardsDone() throws IOE
+  // - int work(LevelGenerator, String, int) throws IAE, ISE, IE, IOE
+  // - int requeue() throws IOE
+  // - int merge(LevelFileWriter) throws IAE, ISE, IOE
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // EXAMPLES --------------------------------------------------------------------------------------
+
+  // tiny boards, so that many levels of the farm have the same board
+  private int size = 2;
+  private int minMoves = 1;
+  private GeneratorMode mode = GeneratorMode.SAMPLING;
+  private long seed = 3;
+  private int quantity = 40;
+  private int shardSize = 9; // so that the last shard is smaller
+
+  // TESTS -----------------------------------------------------------------------------------------
+
+  @Test
+  public void mergeGivesLevelsOfSequenceWithoutDuplicates() throws Exception {
+    LevelFarm farm = this.createFarm();
+    assertEquals(5, farm.shards());
+    assertEquals(5, farm.work(farm.generator(), "a", 2));
+    assertEquals(5, farm.shardsDone());
+
+    assertEquals(this.expectedLevels(), this.merged(farm));
+  }
+
+  @Test
+  public void workersNeverClaimSameShard() throws Exception {
+    LevelFarm farm = this.createFarm();
+    ExecutorService pool = Executors.newFixedThreadPool(3);
+    List<Future<Integer>> workers = new ArrayList<>();
+    for (String worker : new String[]{"a", "b", "c"}) {
+      workers.add(pool.submit(() -> LevelFarm.open(this.folder.getRoot().toPath())
+              .work(farm.generator(), worker, 1)));
+    }
+
+    int generated = 0;
+    for (Future<Integer> worker : workers) generated += worker.get();
+    pool.shutdown();
+
+    // every shard was generated exactly once, by whichever worker claimed it
+    assertEquals(farm.shards(), generated);
+    int headers = 0;
+    Path dir = this.folder.getRoot().toPath();
+    for (Path results : Files.newDirectoryStream(dir.resolve("results"))) {
+      for (String line : Files.readAllLines(results, StandardCharsets.US_ASCII)) {
+        if (line.startsWith("# shard ")) headers++;
+      }
+    }
+    assertEquals(farm.shards(), headers);
+    assertEquals(this.expectedLevels(), this.merged(farm));
+  }
+
+  @Test
+  public void requeueLetsShardsOfDeadWorkerBeGeneratedAgain() throws Exception {
+    LevelFarm farm = this.createFarm();
+    Path dir = this.folder.getRoot().toPath();
+
+    // a worker that claimed shard 1 and died after appending only some of its levels
+    Files.move(dir.resolve("queue/shard-00000001"), dir.resolve("claimed/shard-00000001.a"));
+    LevelBatch batch = farm.generator().generateBatch(this.shardSize, 2, this.seed, 1);
+    String partial = "\n# shard 1\n\n" + batch.get(0) + "\n\n" + batch.get(1) + "\n\n";
+    Files.write(dir.resolve("results/a.txt"), partial.getBytes(StandardCharsets.US_ASCII));
+
+    assertEquals(4, farm.work(farm.generator(), "b", 2));
+    assertEquals(4, farm.shardsDone());
+    assertEquals(1, farm.requeue());
+    assertEquals(0, farm.requeue());
+    assertEquals(1, farm.work(farm.generator(), "c", 2));
+    assertEquals(5, farm.shardsDone());
+
+    // the partly written copy of shard 1 is read first, but is left out for the full one
+    assertEquals(this.expectedLevels(), this.merged(farm));
+  }
+
+  @Test
+  public void mergeOnlyWritesShardsThatAreDone() throws Exception {
+    LevelFarm farm = this.createFarm();
+    Path dir = this.folder.getRoot().toPath();
+    Files.move(dir.resolve("queue/shard-00000004"), dir.resolve("claimed/shard-00000004.a"));
+    assertEquals(4, farm.work(farm.generator(), "a", 2));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (LevelFileWriter writer = LevelFileWriter.toStream(out, farm.generator(), this.seed)) {
+      assertEquals(4, farm.merge(writer));
+      assertEquals(36, writer.nextIndex());
+    }
+  }
+
+  @Test
+  public void mergeThrowsISEForShardMissingFromResults() throws Exception {
+    LevelFarm farm = this.createFarm();
+    Path dir = this.folder.getRoot().toPath();
+    Files.move(dir.resolve("queue/shard-00000000"), dir.resolve("done/shard-00000000"));
+
+    try {
+      this.merged(farm);
+      fail("Merging a done shard with no results should have thrown ISE.");
+    } catch (IllegalStateException e) {
+      assertEquals("Shard 0 is done, but is not in any results.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void createThrowsIAEForExistingFarm() throws Exception {
+    this.createFarm();
+
+    try {
+      this.createFarm();
+      fail("Creating a farm over another should have thrown IAE.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Directory " + this.folder.getRoot() + " already contains a farm.",
+              e.getMessage());
+    }
+  }
+
+  // HELPERS ---------------------------------------------------------------------------------------
+
+  /**
+   * Creates the example farm in the temporary folder.
+   *
+   * @return created farm
+   * @throws Exception if the farm could not be created
+   */
+  private LevelFarm createFarm() throws Exception {
+    return LevelFarm.create(this.folder.getRoot().toPath(), this.size, this.minMoves, this.mode,
+            this.seed, this.quantity, this.shardSize);
+  }
+
+  /**
+   * Returns the levels of the given farm, as merge writes them.
+   *
+   * @param farm farm to merge
+   * @return merged levels
+   * @throws Exception if the farm could not be merged
+   */
+  private String merged(LevelFarm farm) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (LevelFileWriter writer = LevelFileWriter.toStream(out, farm.generator(), this.seed)) {
+      farm.merge(writer);
+    }
+
+    return out.toString("US-ASCII");
+  }
+
+  /**
+   * Returns the first levels of the sequence of the seed, as many as the farm generates, written
+   * in one process with duplicates left out (and not made up for, unlike the gen command).
+   *
+   * @return expected levels
+   * @throws Exception if the levels could not be generated
+   */
+  private String expectedLevels() throws Exception {
+    LevelGenerator generator = new LevelGenerator(this.size, this.minMoves, this.mode);
+    LevelBatch batch = generator.generateBatch(0, this.quantity, this.seed, 2);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (LevelFileWriter writer = LevelFileWriter.toStream(out, generator, this.seed)) {
+      for (int i = 0; i < batch.size(); i++) writer.write(batch.get(i));
+      assertTrue(writer.duplicates() > 0);
+    }
+
+    return out.toString("US-ASCII");
+  }
+}
@@ -0,0 +1,128 @@
+package blocky.util.levels;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A class for testing the LevelFileWriter class.
+ */
+public class LevelFileWriterTests {
+
+  // LevelFileWriter methods
+  // - static LevelFileWriter toStream(OutputStream, LevelGenerator, long) throws IAE, IOE
+  // - static LevelFileWriter toFile(String, LevelGenerator, long) throws IAE, ISE, IOE
+  // - boolean write(Level) throws IAE, IOE
+  // - void close() throws IOE
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // EXAMPLES --------------------------------------------------------------------------------------
+
+  // small boards, so that some levels of a batch have the same board
+  private LevelGenerator generator = new LevelGenerator(3, 3, GeneratorMode.SAMPLING);
+  private long seed = 17;
+  private int quantity = 150; // more than the levels between checkpoints
+
+  // TESTS -----------------------------------------------------------------------------------------
+
+  @Test
+  public void toFileResumesWhereCheckpointLeftOff() throws Exception {
+    // uninterrupted run
+    String whole = this.folder.getRoot() + "/whole.txt";
+    try (LevelFileWriter writer = LevelFileWriter.toFile(whole, this.generator, this.seed)) {
+      this.fill(writer, this.quantity);
+      assertTrue(writer.duplicates() > 0);
+    }
+
+    // run killed after its first checkpoint, which is what is left of it on disk
+    String killed = this.folder.getRoot() + "/killed.txt";
+    try (LevelFileWriter writer = LevelFileWriter.toFile(killed, this.generator, this.seed)) {
+      this.fill(writer, this.quantity);
+      Files.copy(Paths.get(killed), Paths.get(killed + ".partial"));
+      Files.copy(Paths.get(killed + ".checkpoint"), Paths.get(killed + ".partial.checkpoint"));
+    }
+
+    // killed in the middle of writing a level past the checkpoint
+    String partial = killed + ".partial";
+    Files.write(Paths.get(partial), "-level\n-player 1 1\nXXX".getBytes(StandardCharsets.US_ASCII),
+            StandardOpenOption.APPEND);
+
+    // resuming with another seed, which the seed of the checkpoint is used instead of
+    try (LevelFileWriter writer = LevelFileWriter.toFile(partial, this.generator, this.seed + 1)) {
+      assertEquals(this.seed, writer.getSeed());
+      assertEquals(100, writer.levelsWritten());
+      this.fill(writer, this.quantity);
+      assertEquals(this.quantity, writer.levelsWritten());
+    }
+
+    assertArrayEquals(Files.readAllBytes(Paths.get(whole)), Files.readAllBytes(Paths.get(partial)));
+
+    // no board written twice
+    List<Level> levels = LevelFileReader.parseLevels(
+            new ByteArrayInputStream(Files.readAllBytes(Paths.get(partial))));
+    assertEquals(this.quantity, levels.size());
+    CanonicalLevelSet boards = new CanonicalLevelSet();
+    for (Level level : levels) assertTrue(boards.add(level));
+  }
+
+  @Test
+  public void toFileThrowsIAEForFileWithoutCheckpoint() throws IOException {
+    Path file = this.folder.newFile("levels.txt").toPath();
+    Files.write(file, "# seed 1\n\n".getBytes(StandardCharsets.US_ASCII));
+
+    try {
+      LevelFileWriter.toFile(file.toString(), this.generator, this.seed);
+      fail("Writing over file without checkpoint should have thrown IAE.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("File " + file + " already exists and has no checkpoint to resume from.",
+              e.getMessage());
+    }
+  }
+
+  @Test
+  public void toFileThrowsISEForCheckpointOfOtherGenerator() throws IOException {
+    String file = this.folder.getRoot() + "/levels.txt";
+    LevelFileWriter.toFile(file, this.generator, this.seed).close();
+
+    try {
+      LevelFileWriter.toFile(file, new LevelGenerator(5, 3, GeneratorMode.SAMPLING), this.seed);
+      fail("Resuming with another generator should have thrown ISE.");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().startsWith("Checkpoint " + file + ".checkpoint was made for "));
+    }
+  }
+
+  // HELPERS ---------------------------------------------------------------------------------------
+
+  /**
+   * Writes levels of the sequence of the seed of the given writer until it has written the given
+   * number of levels, making up for duplicates that were left out, like the gen command does.
+   *
+   * @param writer   writer to write levels with
+   * @param quantity number of levels to have written
+   * @throws Exception if levels could not be generated or written
+   */
+  private void fill(LevelFileWriter writer, int quantity) throws Exception {
+    while (writer.levelsWritten() < quantity) {
+      LevelBatch batch = this.generator.generateBatch(writer.nextIndex(),
+              quantity - writer.levelsWritten(), writer.getSeed(), 2);
+      for (int i = 0; i < batch.size(); i++) writer.write(batch.get(i));
+    }
+  }
+}
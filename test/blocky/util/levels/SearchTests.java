@@ -0,0 +1,156 @@
+package blocky.util.levels;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import blocky.util.Direction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A class for testing the searches that a LevelSolver can use, and the tables they use.
+ */
+public class SearchTests {
+
+  // LevelSolver methods
+  // - List<Direction> solve(Level) throws IAE, ISE, in every SolverMode
+
+  // BitBoard methods
+  // - int lowerBound(long[])
+
+  // TranspositionTable methods
+  // - TranspositionTable(int, int) throws IAE
+  // - void nextPass()
+  // - boolean record(long[], int)
+
+  // EXAMPLES --------------------------------------------------------------------------------------
+
+  private long[] key0 = {0, 0};
+  private long[] key1 = {1, 0};
+  private long[] key2 = {0, 1};
+
+  // SEARCH TESTS ----------------------------------------------------------------------------------
+
+  @Test
+  public void everySolverModeFindsSameNumberOfMoves() {
+    for (String file : BitBoardTests.LEVEL_FILES) {
+      LevelSet levels = LevelFileReader.parseLevelFile("levelData/" + file);
+      for (int index = 1; index <= levels.size(); index++) {
+        Level level = levels.goToLevel(index);
+        int moves = new StateGraph(new BitBoard(level)).distanceToWin(0);
+
+        for (SolverMode mode : SolverMode.values()) {
+          String name = file + " " + index + " " + mode;
+          try {
+            List<Direction> solution = new LevelSolver(mode).solve(level);
+            assertEquals(name, moves, solution.size());
+          } catch (IllegalStateException e) {
+            assertEquals(name, StateGraph.UNREACHABLE, moves);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void lowerBoundNeverOverestimates() {
+    int checked = 0;
+
+    for (String file : BitBoardTests.LEVEL_FILES) {
+      LevelSet levels = LevelFileReader.parseLevelFile("levelData/" + file);
+      for (int index = 1; index <= levels.size(); index++) {
+        BitBoard board = new BitBoard(levels.goToLevel(index));
+        StateGraph graph = new StateGraph(board);
+
+        // configurations of the graph, found again by replaying its moves in the order it has them
+        long[][] states = new long[graph.size()][];
+        states[0] = board.initialState();
+        for (int id = 0; id < graph.size(); id++) {
+          for (Direction dir : Direction.allDirections()) {
+            int next = graph.successor(id, dir);
+            if (next >= 0 && states[next] == null) {
+              states[next] = new long[board.stateLength()];
+              board.move(states[id], dir, states[next]);
+            }
+          }
+
+          assertTrue(file + " " + index + " " + id,
+                  board.lowerBound(states[id]) <= graph.distanceToWin(id));
+          checked++;
+        }
+
+        // the bound never drops by more than the one move made
+        for (int id = 0; id < graph.size(); id++) {
+          for (Direction dir : Direction.allDirections()) {
+            int next = graph.successor(id, dir);
+            if (next >= 0) {
+              assertTrue(file + " " + index + " " + id + " " + dir,
+                      board.lowerBound(states[id]) <= board.lowerBound(states[next]) + 1);
+            }
+          }
+        }
+      }
+    }
+
+    assertTrue(checked > 1000);
+  }
+
+  // TRANSPOSITION TABLE TESTS ---------------------------------------------------------------------
+
+  @Test
+  public void recordOnlyKeepsFewestMoves() {
+    TranspositionTable table = new TranspositionTable(2, 4);
+    assertTrue(table.record(key1, 5));
+    assertFalse(table.record(key1, 5));
+    assertFalse(table.record(new long[]{1, 0}, 6));
+    assertTrue(table.record(key1, 4));
+    assertFalse(table.record(key1, 5));
+  }
+
+  @Test
+  public void nextPassForgetsEveryState() {
+    TranspositionTable table = new TranspositionTable(2, 4);
+    table.record(key0, 3);
+    table.record(key2, 3);
+    table.nextPass();
+
+    assertTrue(table.record(key0, 3));
+    assertTrue(table.record(key2, 7));
+  }
+
+  @Test
+  public void recordReplacesStateInSameSlot() {
+    TranspositionTable table = new TranspositionTable(2, 1); // two slots, so keys must collide
+    table.record(key0, 1);
+    table.record(key1, 1);
+    table.record(key2, 1);
+
+    // at least one of the keys was pushed out, and can be recorded again
+    int recorded = 0;
+    for (long[] key : new long[][]{key0, key1, key2}) {
+      if (table.record(key, 1)) recorded++;
+    }
+    assertTrue(recorded > 0);
+  }
+
+  @Test
+  public void constructorThrowsIAEForBadArguments() {
+    try {
+      new TranspositionTable(0, 4);
+      fail("Table for empty keys should have thrown IAE.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Keys must contain at least one long.", e.getMessage());
+    }
+
+    try {
+      new TranspositionTable(2, 31);
+      fail("Table with 2^31 slots should have thrown IAE.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Bits must be within 1-30.", e.getMessage());
+    }
+  }
+}
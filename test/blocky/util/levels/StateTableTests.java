@@ -0,0 +1,126 @@
+package blocky.util.levels;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A class for testing the StateTable class.
+ */
+public class StateTableTests {
+
+  // StateTable methods
+  // - StateTable(int) throws IAE
+  // - int size()
+  // - int find(long[])
+  // - int add(long[])
+  // - void copyKey(int, long[]) throws IAE
+  // - void clear()
+
+  // EXAMPLES --------------------------------------------------------------------------------------
+
+  private long[] key0 = {0, 0};
+  private long[] key1 = {1, 0};
+  private long[] key2 = {0, 1};
+  private long[] key3 = {-1, Long.MIN_VALUE};
+
+  // TESTS -----------------------------------------------------------------------------------------
+
+  @Test
+  public void addGivesIDsInOrder() {
+    StateTable table = new StateTable(2);
+    assertEquals(0, table.add(key1));
+    assertEquals(1, table.add(key0));
+    assertEquals(2, table.add(key3));
+    assertEquals(3, table.size());
+  }
+
+  @Test
+  public void addReturnsIDOfStateAlreadyInTable() {
+    StateTable table = new StateTable(2);
+    table.add(key1);
+    table.add(key2);
+    assertEquals(0, table.add(new long[]{1, 0}));
+    assertEquals(1, table.add(key2));
+    assertEquals(2, table.size());
+  }
+
+  @Test
+  public void findWorks() {
+    StateTable table = new StateTable(2);
+    assertEquals(-1, table.find(key0));
+
+    table.add(key2);
+    table.add(key3);
+    assertEquals(0, table.find(key2));
+    assertEquals(1, table.find(new long[]{-1, Long.MIN_VALUE}));
+    assertEquals(-1, table.find(key1));
+  }
+
+  @Test
+  public void copyKeyWorks() {
+    StateTable table = new StateTable(2);
+    table.add(key2);
+    table.add(key3);
+
+    long[] out = new long[2];
+    table.copyKey(1, out);
+    assertArrayEquals(key3, out);
+    table.copyKey(0, out);
+    assertArrayEquals(key2, out);
+  }
+
+  @Test
+  public void copyKeyThrowsIAEForMissingID() {
+    StateTable table = new StateTable(2);
+    table.add(key0);
+
+    try {
+      table.copyKey(1, new long[2]);
+      fail("Copying key of missing state should have thrown IAE.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("No state with id 1", e.getMessage());
+    }
+  }
+
+  @Test
+  public void tableKeepsStatesWhileGrowing() {
+    StateTable table = new StateTable(3);
+    int states = 10_000; // many times the initial number of slots
+
+    for (int i = 0; i < states; i++) assertEquals(i, table.add(new long[]{i, i * 31L, -i}));
+    assertEquals(states, table.size());
+
+    long[] out = new long[3];
+    for (int i = 0; i < states; i++) {
+      assertEquals(i, table.find(new long[]{i, i * 31L, -i}));
+      table.copyKey(i, out);
+      assertArrayEquals(new long[]{i, i * 31L, -i}, out);
+    }
+  }
+
+  @Test
+  public void clearWorks() {
+    StateTable table = new StateTable(2);
+    table.add(key0);
+    table.add(key1);
+    table.clear();
+
+    assertEquals(0, table.size());
+    assertEquals(-1, table.find(key0));
+    assertEquals(0, table.add(key1));
+    assertEquals(-1, table.find(key0));
+  }
+
+  @Test
+  public void constructorThrowsIAEForNoWords() {
+    try {
+      new StateTable(0);
+      fail("Table for empty keys should have thrown IAE.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Keys must contain at least one long.", e.getMessage());
+    }
+  }
+}